@@ -1,11 +1,17 @@
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Scanner;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Backend class for handling graph-based operations.
@@ -22,6 +28,37 @@ public class Backend<NodeType, EdgeType extends Number> implements BackendInterf
   GraphADT<String, Double> graph;
   // Variable to store the total time of all edges
   double totalTime = 0;
+  // Shortest paths already found, keyed by start and end point, until the graph changes
+  LruCache<Route, PathInterface<String, Double>> pathCache;
+
+  // Number of shortest paths kept in the cache unless another capacity is provided
+  public static final int DEFAULT_CACHE_CAPACITY = 1024;
+
+  /**
+   * A start point and end point pair that shortest paths are cached under.
+   */
+  protected static class Route {
+    public final String startPoint;
+    public final String endPoint;
+
+    public Route(String startPoint, String endPoint) {
+      this.startPoint = startPoint;
+      this.endPoint = endPoint;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Route))
+        return false;
+      Route route = (Route) other;
+      return startPoint.equals(route.startPoint) && endPoint.equals(route.endPoint);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * startPoint.hashCode() + endPoint.hashCode();
+    }
+  }
 
   /**
    * Constructor for Backend.
@@ -30,72 +67,107 @@ public class Backend<NodeType, EdgeType extends Number> implements BackendInterf
    * @param graph The DijkstraGraph instance to be used.
    */
   public Backend(GraphADT<String, Double> graph) {
+    this(graph, DEFAULT_CACHE_CAPACITY);
+  }
+
+  /**
+   * Constructor for Backend with a shortest path cache of the provided size.
+   * The least recently requested path is evicted when the cache is full, and
+   * every cached path is discarded once the graph changes.
+   *
+   * @param graph The DijkstraGraph instance to be used.
+   * @param cacheCapacity The number of shortest paths to cache, or 0 to cache none.
+   */
+  public Backend(GraphADT<String, Double> graph, int cacheCapacity) {
     this.graph = graph;
+    this.pathCache = new LruCache<>(cacheCapacity);
   }
 
   /**
    * Reads and loads data from a file into the graph.
-   * Parses the file to construct nodes and edges in the graph.
+   * Parses the file to construct nodes and edges in the graph, streaming it
+   * through a DotReader rather than matching each line against patterns.
    *
    * @param fileName The name of the file to read data from.
    * @throws FileNotFoundException if the file is not found.
+   * @throws UncheckedIOException if the file cannot be read after it is opened.
    */
   public void readDataFromFile(String fileName) throws FileNotFoundException {
-    // Scanner for reading the file
-    Scanner input;
+    Reader input;
     try {
-      input = new Scanner(new File(fileName));
+      input = new InputStreamReader(new FileInputStream(fileName), Charset.defaultCharset());
     } catch (FileNotFoundException e) {
       // Propagate the exception if file is not found
       throw new FileNotFoundException("File is not there");
     }
 
-    // Patterns for parsing nodes and edges from the file
-    Pattern nodePattern = Pattern.compile("\"(\\S+(\\s\\S+)*)\" -- \"(\\S+(\\s\\S+)*)\"");
-    Pattern edgePattern = Pattern.compile("\\d+\\.\\d+");
-
-    // Variables to hold node and edge data
+    // Variables to hold node and edge data, which carry over to lines that lack them
     String startNode = "";
     String endNode = "";
     double weight = 0;
 
-    while (input.hasNextLine()) {
-      String line = input.nextLine().trim();
-
-      // Skip braces, typically used in graphviz DOT files
-      if (line.contains("{") || line.contains("}"))
-        continue;
-
-      // Match and extract nodes and edges
-      Matcher nodeMatcher = nodePattern.matcher(line);
-      Matcher edgeMatcher = edgePattern.matcher(line);
-      if (nodeMatcher.find()) {
-        // Extract node names
-        startNode = nodeMatcher.group(1);
-        endNode = nodeMatcher.group(3);
-        // Insert nodes into the graph if they don't exist
-        if (!graph.containsNode(startNode))
-          graph.insertNode(startNode);
-        if (!graph.containsNode(endNode))
-          graph.insertNode(endNode);
-      }
+    try (DotReader reader = new DotReader(input)) {
+      while (reader.nextLine()) {
+        // Skip braces, typically used in graphviz DOT files
+        if (reader.isBraceLine())
+          continue;
 
-      if (edgeMatcher.find()) {
-        // Extract and parse the edge weight
-        weight = Double.parseDouble(edgeMatcher.group());
-      }
-      // Insert edge into the graph if it doesn't exist
-      if (!graph.containsEdge(startNode, endNode)) {
-        graph.insertEdge(startNode, endNode, weight);
+        if (reader.hasEdge()) {
+          startNode = reader.getPredecessor();
+          endNode = reader.getSuccessor();
+          // Insert nodes into the graph if they don't exist
+          if (!graph.containsNode(startNode))
+            graph.insertNode(startNode);
+          if (!graph.containsNode(endNode))
+            graph.insertNode(endNode);
+        }
+
+        if (reader.hasWeight())
+          weight = reader.getWeight();
+        // Insert edge into the graph if it doesn't exist
+        if (!graph.containsEdge(startNode, endNode)) {
+          graph.insertEdge(startNode, endNode, weight);
+        }
+        // Accumulate the total weight
+        totalTime += weight;
       }
-      // Accumulate the total weight
-      totalTime += weight;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not read " + fileName, e);
+    }
+  }
+
+  /**
+   * Reads and loads data from a file into the graph, as readDataFromFile(fileName) does, but
+   * tokenizes the file on every thread of the provided pool and inserts its nodes and edges in
+   * bulk. The graph, its node ids, and the statistics are the same as the sequential loader's.
+   * Files are only loaded in parallel into an empty DijkstraGraph or BaseGraph; anything else is
+   * loaded sequentially.
+   *
+   * @param fileName The name of the file to read data from.
+   * @param pool The pool whose threads tokenize the file.
+   * @throws FileNotFoundException if the file is not found.
+   * @throws UncheckedIOException if the file cannot be read after it is opened.
+   */
+  @SuppressWarnings("unchecked")
+  public void readDataFromFile(String fileName, ForkJoinPool pool) throws FileNotFoundException {
+    if (!(graph instanceof BaseGraph) || ((BaseGraph<String, Double>) graph).getIdBound() != 0) {
+      readDataFromFile(fileName);
+      return;
+    }
+    File file = new File(fileName);
+    if (!file.isFile())
+      throw new FileNotFoundException("File is not there");
+    try {
+      totalTime = ParallelDotLoader.load((BaseGraph<String, Double>) graph, file, pool, totalTime);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not read " + fileName, e);
     }
   }
 
   /**
    * Finds and returns the shortest path between two nodes.
-   * Utilizes Dijkstra's algorithm via the graph object.
+   * Utilizes Dijkstra's algorithm via the graph object, unless the same path
+   * was found since the graph last changed.
    *
    * @param startPoint The starting node identifier.
    * @param endPoint The ending node identifier.
@@ -105,30 +177,78 @@ public class Backend<NodeType, EdgeType extends Number> implements BackendInterf
     if(!graph.containsNode(startPoint) || !graph.containsNode(endPoint)) {
       throw new NoSuchElementException("Nodes are not present in the graph");
     }
-    // Find the shortest path data and cost
-    List<String> shortestPath = graph.shortestPathData(startPoint, endPoint);
-    Double totalTime = graph.shortestPathCost(startPoint, endPoint);
-
-    // List to store walking times between nodes
-    List<Double> walkingTimes = new ArrayList<>();
-    // Calculate walking times for each path segment
-    for (int i = 0; i < shortestPath.size() - 1; i++ )  {
-      walkingTimes.add(graph.getEdge(shortestPath.get(i), shortestPath.get(i + 1)));
-    }
+    Route route = new Route(startPoint, endPoint);
+    int version = graph.getVersion();
+    PathInterface<String, Double> cached = pathCache.get(route, version);
+    if (cached != null)
+      return cached;
+
+    // Find the nodes, walking times, and total time of the shortest path in one search
+    ShortestPathResult<String> shortestPath = graph.shortestPath(startPoint, endPoint);
 
-    // Return the path with its associated data
-    return new Path(shortestPath, walkingTimes, totalTime);
+    // Cached paths are shared between callers, so they must not be modified
+    PathInterface<String, Double> path = new Path<>(
+        Collections.unmodifiableList(shortestPath.getNodes()),
+        Collections.unmodifiableList(shortestPath.getSegmentCosts()),
+        shortestPath.getTotalCost());
+    pathCache.put(route, path, version);
+    return path;
+  }
+
+  /**
+   * Finds up to count alternative routes between two nodes, cheapest first,
+   * none of which visits a node twice. The first route is the shortest path.
+   * Fewer routes are returned when there are no more.
+   *
+   * @param startPoint The starting node identifier.
+   * @param endPoint The ending node identifier.
+   * @param count The largest number of routes to return.
+   * @return the routes, each with its walking times and total time, cheapest first.
+   * @throws NoSuchElementException if either node is missing or there is no path between them.
+   * @throws UnsupportedOperationException if the graph is not a DijkstraGraph.
+   */
+  public List<PathInterface<String, Double>> getShortestPaths(String startPoint, String endPoint,
+      int count) {
+    if (!(graph instanceof DijkstraGraph))
+      throw new UnsupportedOperationException("alternative routes need a DijkstraGraph");
+    List<PathInterface<String, Double>> paths = new ArrayList<>();
+    for (ShortestPathResult<String> result
+        : ((DijkstraGraph<String, Double>) graph).shortestPaths(startPoint, endPoint, count))
+      paths.add(new Path<>(result));
+    return paths;
+  }
+
+  /**
+   * Plans a tour that starts at the first stop and visits every other stop,
+   * in whatever order takes the least walking time, within a time budget.
+   *
+   * @param stops The node identifiers to visit, starting with the first.
+   * @param roundTrip Whether the tour returns to the first stop.
+   * @param timeBudgetMillis The time allowed for improving the order, in milliseconds.
+   * @return the tour, with its walking times and total time.
+   * @throws NoSuchElementException if a stop is missing or no tour visits every stop.
+   * @throws UnsupportedOperationException if the graph is not a DijkstraGraph.
+   */
+  public PathInterface<String, Double> getTour(List<String> stops, boolean roundTrip,
+      long timeBudgetMillis) {
+    if (!(graph instanceof DijkstraGraph))
+      throw new UnsupportedOperationException("tours need a DijkstraGraph");
+    return new Path<>(((DijkstraGraph<String, Double>) graph)
+        .shortestTour(stops, roundTrip, timeBudgetMillis));
   }
 
   /**
    * Retrieves and returns statistical information about the graph.
-   * Includes details like number of nodes, edges, and total walking time.
+   * Includes details like number of nodes, edges, and total walking time,
+   * followed by the hits, misses, and evictions of the shortest path cache.
    *
    * @return String containing statistical information about the graph.
    */
   public String getStatistics() {
     // Construct and return the statistics string
-    return graph.getNodeCount() + "," + graph.getEdgeCount() + "," + totalTime + ",";
+    return graph.getNodeCount() + "," + graph.getEdgeCount() + "," + totalTime + ","
+        + pathCache.getHits() + "," + pathCache.getMisses() + ","
+        + pathCache.getEvictions() + ",";
   }
 
 
@@ -140,7 +260,7 @@ public class Backend<NodeType, EdgeType extends Number> implements BackendInterf
    */
   public static void main(String[] args) {
     Scanner scanner = new Scanner(System.in);
-    Backend<String, Integer> backend = new Backend<>(new DijkstraGraph<String, Double>(new PlaceholderMap<>()));
+    Backend<String, Integer> backend = new Backend<>(new DijkstraGraph<String, Double>(new OpenAddressingMap<>()));
     Frontend frontend = new Frontend(scanner, backend);
     frontend.run(); //run the application
   }
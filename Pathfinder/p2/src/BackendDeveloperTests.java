@@ -3,9 +3,21 @@ import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Random;
 import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * This class contains test methods for testing the functionality of the BackendPlaceholder class.
@@ -60,7 +72,8 @@ public class BackendDeveloperTests {
     backend.readDataFromFile("campus.dot");
     // Define expected and actual statistics from the backend
     String expected =
-        graph.getNodeCount() + "," + graph.getEdgeCount() + "," + backend.totalTime + ",";
+        graph.getNodeCount() + "," + graph.getEdgeCount() + "," + backend.totalTime + ","
+            + "0,0,0,";
     String actual = backend.getStatistics();
     Assertions.assertEquals(expected, actual);
   }
@@ -209,4 +222,1257 @@ public class BackendDeveloperTests {
     String actual = tester.checkOutput();
     Assertions.assertTrue(actual.contains(expected));
   }
+
+  /**
+   * Test for searching with the indexed heap and with frozen mode.
+   * This test checks that every configuration finds the same shortest path costs as the
+   * original node based search, for every pair of buildings on the campus map.
+   */
+  @Test
+  public void testIndexedHeapQueue() throws FileNotFoundException {
+    backend.readDataFromFile("campus.dot");
+    CompactGraph<String> snapshot = graph.snapshot();
+    for (int i = 0; i < snapshot.getNodeCount(); i++) {
+      for (int j = 0; j < snapshot.getNodeCount(); j++) {
+        String start = snapshot.getData(i);
+        String end = snapshot.getData(j);
+        graph.setFrozen(false);
+        graph.setQueueType(CompactSearch.QueueType.LAZY_DELETION);
+        double expected = graph.shortestPathCost(start, end);
+        graph.setQueueType(CompactSearch.QueueType.INDEXED_HEAP);
+        Assertions.assertEquals(expected, graph.shortestPathCost(start, end));
+        graph.setFrozen(true);
+        Assertions.assertEquals(expected, graph.shortestPathCost(start, end));
+      }
+    }
+  }
+
+  /**
+   * Test for the walking times returned along with a shortest path.
+   * This test checks that each walking time matches the weight of the edge it belongs to and
+   * that they add up to the total time of the path.
+   */
+  @Test
+  public void testShortestPathWalkingTimes() throws FileNotFoundException {
+    backend.readDataFromFile("campus.dot");
+    // the shared backend field is a raw Backend, which erases its paths' type arguments
+    @SuppressWarnings("unchecked")
+    PathInterface<String, Double> shortestPath = backend.getShortestPath("Memorial Union",
+        "North Hall");
+    List<String> path = shortestPath.getPath();
+    List<Double> walkingTimes = shortestPath.getWalkingTimes();
+    Assertions.assertEquals(path.size() - 1, walkingTimes.size());
+    double sum = 0;
+    for (int i = 0; i < walkingTimes.size(); i++) {
+      Number edgeWeight = graph.getEdge(path.get(i), path.get(i + 1));
+      Assertions.assertEquals(edgeWeight.doubleValue(), walkingTimes.get(i));
+      sum += walkingTimes.get(i);
+    }
+    Assertions.assertEquals(shortestPath.getTotalTime(), sum, 1e-9);
+  }
+
+  /**
+   * Test for bidirectional searches.
+   * This test checks that a bidirectional search finds a path with the same total time as the
+   * unidirectional search for every pair of buildings on the campus map, that the path it finds
+   * is connected by real edges, and that it fails for unreachable buildings just the same.
+   */
+  @Test
+  public void testBidirectionalSearch() throws FileNotFoundException {
+    backend.readDataFromFile("campus.dot");
+    CompactGraph<String> snapshot = graph.snapshot();
+    for (int i = 0; i < snapshot.getNodeCount(); i++) {
+      for (int j = 0; j < snapshot.getNodeCount(); j++) {
+        String start = snapshot.getData(i);
+        String end = snapshot.getData(j);
+        if (graph.shortestPathCost(start, end) < 0) {
+          Assertions.assertThrows(NoSuchElementException.class,
+              () -> graph.shortestPath(start, end, DijkstraGraph.SearchMode.BIDIRECTIONAL));
+          continue;
+        }
+        ShortestPathResult<String> expected = graph.shortestPath(start, end,
+            DijkstraGraph.SearchMode.UNIDIRECTIONAL);
+        ShortestPathResult<String> actual = graph.shortestPath(start, end,
+            DijkstraGraph.SearchMode.BIDIRECTIONAL);
+        Assertions.assertEquals(expected.getTotalCost(), actual.getTotalCost(), 1e-9);
+        Assertions.assertEquals(start, actual.getNodes().get(0));
+        Assertions.assertEquals(end, actual.getNodes().get(actual.getNodes().size() - 1));
+        for (int k = 0; k < actual.getSegmentCosts().size(); k++) {
+          Number edgeWeight = graph.getEdge(actual.getNodes().get(k),
+              actual.getNodes().get(k + 1));
+          Assertions.assertEquals(edgeWeight.doubleValue(), actual.getSegmentCosts().get(k));
+        }
+      }
+    }
+  }
+
+  /**
+   * Test for A* searches.
+   * This test builds a grid of cells with random walking times of at least 10 between
+   * neighbouring cells, and checks that A* searches guided by the distance between cells find
+   * paths as short as plain Dijkstra searches, both on the nodes and on the compact snapshot.
+   */
+  @Test
+  public void testAStarSearch() {
+    DijkstraGraph<String, Double> grid = new DijkstraGraph<>(new PlaceholderMap<>());
+    Random random = new Random(7);
+    int width = 12;
+    for (int row = 0; row < width; row++)
+      for (int col = 0; col < width; col++)
+        grid.insertNode(row + "," + col);
+    for (int row = 0; row < width; row++) {
+      for (int col = 0; col < width; col++) {
+        if (col + 1 < width) {
+          grid.insertEdge(row + "," + col, row + "," + (col + 1), 10 + 90 * random.nextDouble());
+          grid.insertEdge(row + "," + (col + 1), row + "," + col, 10 + 90 * random.nextDouble());
+        }
+        if (row + 1 < width) {
+          grid.insertEdge(row + "," + col, (row + 1) + "," + col, 10 + 90 * random.nextDouble());
+          grid.insertEdge((row + 1) + "," + col, row + "," + col, 10 + 90 * random.nextDouble());
+        }
+      }
+    }
+    Heuristic<String> heuristic = (node, target) -> {
+      String[] from = node.split(",");
+      String[] to = target.split(",");
+      return 10 * (Math.abs(Integer.parseInt(from[0]) - Integer.parseInt(to[0]))
+          + Math.abs(Integer.parseInt(from[1]) - Integer.parseInt(to[1])));
+    };
+    for (int i = 0; i < 200; i++) {
+      String start = random.nextInt(width) + "," + random.nextInt(width);
+      String end = random.nextInt(width) + "," + random.nextInt(width);
+      grid.setFrozen(false);
+      double expected = grid.shortestPath(start, end).getTotalCost();
+      Assertions.assertEquals(expected, grid.shortestPath(start, end, heuristic).getTotalCost(),
+          1e-9);
+      grid.setFrozen(true);
+      Assertions.assertEquals(expected, grid.shortestPath(start, end, heuristic).getTotalCost(),
+          1e-9);
+    }
+  }
+
+  /**
+   * Test for the landmark (ALT) heuristic.
+   * This test checks that A* searches guided by landmarks find paths as short as plain Dijkstra
+   * searches on the campus map, that raising a weight keeps the landmark tables while lowering
+   * one recomputes them, and that tables saved to a file are loaded back unchanged.
+   */
+  @Test
+  public void testLandmarkHeuristic() throws IOException {
+    DijkstraGraph<String, Double> campus = new DijkstraGraph<>(new PlaceholderMap<>());
+    new Backend<String, Double>(campus).readDataFromFile("campus.dot");
+    LandmarkHeuristic<String> landmarks = new LandmarkHeuristic<>(campus, 4);
+    CompactGraph<String> snapshot = campus.snapshot();
+    for (int i = 0; i < snapshot.getNodeCount(); i += 3) {
+      for (int j = 0; j < snapshot.getNodeCount(); j += 7) {
+        String start = snapshot.getData(i);
+        String end = snapshot.getData(j);
+        double expected = campus.shortestPathCost(start, end);
+        if (expected < 0)
+          continue;
+        Assertions.assertEquals(expected,
+            campus.shortestPath(start, end, landmarks).getTotalCost(), 1e-9);
+      }
+    }
+    Assertions.assertEquals(4, landmarks.getLandmarks().size());
+    Assertions.assertEquals(1, landmarks.getRebuildCount());
+
+    // raising a weight keeps the tables, lowering one recomputes them
+    campus.insertEdge("Memorial Union", "Science Hall", 500.0);
+    Assertions.assertEquals(campus.shortestPathCost("Memorial Union", "Science Hall"),
+        campus.shortestPath("Memorial Union", "Science Hall", landmarks).getTotalCost(), 1e-9);
+    Assertions.assertEquals(1, landmarks.getRebuildCount());
+    campus.insertEdge("Memorial Union", "Science Hall", 105.8);
+    Assertions.assertEquals(105.8,
+        campus.shortestPath("Memorial Union", "Science Hall", landmarks).getTotalCost());
+    Assertions.assertEquals(2, landmarks.getRebuildCount());
+
+    File file = File.createTempFile("campus", ".landmarks");
+    try {
+      landmarks.save(file);
+      LandmarkHeuristic<String> loaded = LandmarkHeuristic.load(campus, file);
+      Assertions.assertEquals(landmarks.getLandmarks(), loaded.getLandmarks());
+      Assertions.assertEquals(landmarks.estimate("North Hall", "Memorial Union"),
+          loaded.estimate("North Hall", "Memorial Union"));
+      Assertions.assertEquals(0, loaded.getRebuildCount());
+      // tables saved before a weight was lowered could overestimate, so they are refused
+      campus.insertEdge("Memorial Union", "Science Hall", 50.0);
+      Assertions.assertThrows(IOException.class, () -> LandmarkHeuristic.load(campus, file));
+    } finally {
+      file.delete();
+    }
+  }
+
+  /**
+   * Test for contraction hierarchy queries.
+   * This test checks that a contraction hierarchy built from the campus map finds paths with
+   * the same total times as Dijkstra's algorithm for every pair of buildings, and that every
+   * shortcut is unpacked into real edges of the map.
+   */
+  @Test
+  public void testContractionHierarchy() throws FileNotFoundException {
+    backend.readDataFromFile("campus.dot");
+    ContractionHierarchy<String> hierarchy = new ContractionHierarchy<>(graph);
+    CompactGraph<String> snapshot = graph.snapshot();
+    for (int i = 0; i < snapshot.getNodeCount(); i++) {
+      for (int j = 0; j < snapshot.getNodeCount(); j++) {
+        String start = snapshot.getData(i);
+        String end = snapshot.getData(j);
+        double expected = graph.shortestPathCost(start, end);
+        Assertions.assertEquals(expected, hierarchy.shortestPathCost(start, end), 1e-9);
+        if (expected < 0)
+          continue;
+        List<String> path = hierarchy.shortestPathData(start, end);
+        Assertions.assertEquals(start, path.get(0));
+        Assertions.assertEquals(end, path.get(path.size() - 1));
+        for (int k = 0; k + 1 < path.size(); k++)
+          Assertions.assertTrue(graph.containsEdge(path.get(k), path.get(k + 1)));
+      }
+    }
+    Assertions.assertTrue(hierarchy.isCurrent());
+    graph.removeEdge("Memorial Union", "Science Hall");
+    Assertions.assertFalse(hierarchy.isCurrent());
+  }
+
+  /**
+   * Test for one-to-all shortest path trees.
+   * This test checks that a tree from one building holds the same cost and path to every other
+   * building as separate shortest path queries, and that refilling the tree from another
+   * building reuses its arrays.
+   */
+  @Test
+  public void testShortestPathTree() throws FileNotFoundException {
+    backend.readDataFromFile("campus.dot");
+    ShortestPathTree<String> tree = graph.shortestPathTree("Memorial Union");
+    Assertions.assertEquals("Memorial Union", tree.getSource());
+    double[] costs = tree.getCosts();
+    for (String start : new String[] {"Memorial Union", "Computer Sciences and Statistics"}) {
+      Assertions.assertSame(tree, graph.shortestPathTree(start, tree));
+      Assertions.assertSame(costs, tree.getCosts());
+      CompactGraph<String> snapshot = tree.getGraph();
+      for (int id = 0; id < snapshot.getNodeCount(); id++) {
+        String end = snapshot.getData(id);
+        double expected = graph.shortestPathCost(start, end);
+        Assertions.assertEquals(expected, tree.getCost(end), 1e-9);
+        if (expected < 0) {
+          Assertions.assertEquals(Double.POSITIVE_INFINITY, tree.getCost(id));
+          Assertions.assertEquals(-1, tree.getPredecessor(id));
+          continue;
+        }
+        List<String> path = tree.getPathData(end);
+        Assertions.assertEquals(start, path.get(0));
+        Assertions.assertEquals(end, path.get(path.size() - 1));
+      }
+    }
+    Assertions.assertThrows(NoSuchElementException.class,
+        () -> graph.shortestPathTree("Not a building"));
+  }
+
+  /**
+   * Test for the all-pairs distance matrix.
+   * This test checks that the matrix computed for the campus map holds the same cost as a
+   * shortest path query for every pair of buildings, and that a matrix saved to a file and
+   * mapped back holds the same costs.
+   */
+  @Test
+  public void testDistanceMatrix() throws IOException {
+    backend.readDataFromFile("campus.dot");
+    DistanceMatrix<String> matrix = DistanceMatrix.compute(graph);
+    CompactGraph<String> snapshot = graph.snapshot();
+    Assertions.assertEquals(snapshot.getNodeCount(), matrix.getNodeCount());
+    for (int i = 0; i < snapshot.getNodeCount(); i++)
+      for (int j = 0; j < snapshot.getNodeCount(); j++)
+        Assertions.assertEquals(
+            graph.shortestPathCost(snapshot.getData(i), snapshot.getData(j)),
+            matrix.getCost(snapshot.getData(i), snapshot.getData(j)), 1e-9);
+
+    File file = File.createTempFile("campus", ".matrix");
+    try {
+      matrix.save(file);
+      DistanceMatrix<String> loaded = DistanceMatrix.load(graph, file);
+      for (int i = 0; i < snapshot.getNodeCount(); i++)
+        for (int j = 0; j < snapshot.getNodeCount(); j++)
+          Assertions.assertEquals(matrix.getCost(i, j), loaded.getCost(i, j));
+      graph.removeNode("Memorial Union");
+      Assertions.assertThrows(IOException.class, () -> DistanceMatrix.load(graph, file));
+    } finally {
+      file.delete();
+    }
+  }
+
+  /**
+   * Test for the shortest path cache.
+   * This test checks that repeated requests for the same path are answered from the cache, that
+   * the least recently requested path is evicted when the cache is full, that any change to the
+   * graph discards the cached paths, and that the statistics report the cache's counters.
+   */
+  @Test
+  public void testPathCache() throws FileNotFoundException {
+    DijkstraGraph<String, Double> campus = new DijkstraGraph<>(new PlaceholderMap<>());
+    Backend<String, Double> cached = new Backend<>(campus, 2);
+    cached.readDataFromFile("campus.dot");
+    PathInterface<String, Double> first = cached.getShortestPath("Memorial Union", "Science Hall");
+    Assertions.assertSame(first, cached.getShortestPath("Memorial Union", "Science Hall"));
+    cached.getShortestPath("Memorial Union", "Radio Hall");
+    cached.getShortestPath("Science Hall", "Memorial Union");
+    Assertions.assertEquals(1, cached.pathCache.getEvictions());
+    // Memorial Union to Science Hall was the least recently requested, so it was evicted
+    Assertions.assertNotSame(first, cached.getShortestPath("Memorial Union", "Science Hall"));
+    Assertions.assertThrows(UnsupportedOperationException.class,
+        () -> first.getPath().add("Radio Hall"));
+    String[] statistics = cached.getStatistics().split(",");
+    Assertions.assertEquals("1", statistics[3]);
+    Assertions.assertEquals("4", statistics[4]);
+    Assertions.assertEquals("2", statistics[5]);
+
+    // lowering a weight must not leave the old, slower path in the cache
+    double before = cached.getShortestPath("Memorial Union", "Radio Hall").getTotalTime();
+    campus.insertEdge("Memorial Union", "Radio Hall", 1.0);
+    PathInterface<String, Double> after = cached.getShortestPath("Memorial Union", "Radio Hall");
+    Assertions.assertTrue(after.getTotalTime() < before);
+    Assertions.assertEquals(1.0, after.getTotalTime());
+    Assertions.assertEquals(1, cached.pathCache.getInvalidations());
+  }
+
+  /**
+   * Test for the open addressing map.
+   * This test checks that a long random mix of puts and removes leaves the map holding the same
+   * pairs as java.util.HashMap, that the capacity doubles to respect the load factor, and that
+   * the campus map loads into a graph backed by it with the same statistics.
+   */
+  @Test
+  public void testOpenAddressingMap() throws FileNotFoundException {
+    OpenAddressingMap<Integer, Integer> map = new OpenAddressingMap<>(4, 0.75);
+    HashMap<Integer, Integer> expected = new HashMap<>();
+    Assertions.assertEquals(8, map.getCapacity());
+    Random random = new Random(11);
+    for (int i = 0; i < 20000; i++) {
+      // keys that share their low bits collide, which exercises long probe sequences
+      int key = random.nextInt(500) * 64;
+      if (expected.containsKey(key)) {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> map.put(key, 0));
+        Assertions.assertEquals(expected.remove(key), map.remove(key));
+      } else {
+        Assertions.assertThrows(NoSuchElementException.class, () -> map.get(key));
+        map.put(key, i);
+        expected.put(key, i);
+      }
+      Assertions.assertEquals(expected.size(), map.getSize());
+      Assertions.assertTrue(map.getSize() <= map.getCapacity() * 0.75);
+    }
+    for (int key = 0; key < 500 * 64; key += 64) {
+      Assertions.assertEquals(expected.containsKey(key), map.containsKey(key));
+      if (expected.containsKey(key))
+        Assertions.assertEquals(expected.get(key), map.get(key));
+    }
+    map.clear();
+    Assertions.assertEquals(0, map.getSize());
+    Assertions.assertFalse(map.containsKey(0));
+
+    DijkstraGraph<String, Double> campus = new DijkstraGraph<>(new OpenAddressingMap<>());
+    Backend<String, Double> openBackend = new Backend<>(campus);
+    openBackend.readDataFromFile("campus.dot");
+    backend.readDataFromFile("campus.dot");
+    Assertions.assertEquals(backend.getStatistics(), openBackend.getStatistics());
+    Assertions.assertEquals(graph.shortestPathCost("Memorial Union", "Science Hall"),
+        campus.shortestPathCost("Memorial Union", "Science Hall"));
+  }
+
+  /**
+   * Test for node ids.
+   * This test checks that removing a building frees its id for the next inserted building while
+   * every other building keeps its id, and that searches by id find the same paths as searches
+   * by name, with and without a snapshot, after the removal.
+   */
+  @Test
+  public void testNodeIds() throws FileNotFoundException {
+    backend.readDataFromFile("campus.dot");
+    int union = graph.getId("Memorial Union");
+    int science = graph.getId("Science Hall");
+    int radio = graph.getId("Radio Hall");
+    Assertions.assertEquals(graph.getNodeCount(), graph.getIdBound());
+    Assertions.assertEquals("Science Hall", graph.getData(science));
+    Assertions.assertEquals(-1, graph.getId("Not a building"));
+
+    graph.removeNode("Science Hall");
+    Assertions.assertFalse(graph.containsId(science));
+    Assertions.assertThrows(NoSuchElementException.class, () -> graph.getData(science));
+    Assertions.assertEquals(union, graph.getId("Memorial Union"));
+    Assertions.assertEquals(radio, graph.getId("Radio Hall"));
+    Assertions.assertEquals(-1.0, graph.shortestPathCostById(union, science));
+
+    graph.insertNode("New Science Hall");
+    Assertions.assertEquals(science, graph.getId("New Science Hall"));
+    Assertions.assertEquals(graph.getNodeCount(), graph.getIdBound());
+    Assertions.assertTrue(graph.insertEdgeById(union, science, 3));
+    Assertions.assertTrue(graph.containsEdge("Memorial Union", "New Science Hall"));
+    Assertions.assertEquals(3, graph.getEdgeById(union, science).intValue());
+
+    for (boolean frozen : new boolean[] {false, true}) {
+      graph.setFrozen(frozen);
+      Assertions.assertEquals(science, graph.snapshot().getId("New Science Hall"));
+      Assertions.assertEquals(3.0, graph.shortestPathCostById(union, science));
+      Assertions.assertEquals(graph.shortestPath("Memorial Union", "Radio Hall").getNodes(),
+          graph.shortestPathById(union, radio).getNodes());
+      Assertions.assertEquals(graph.shortestPathCost("Radio Hall", "Memorial Union"),
+          graph.shortestPathCostById(radio, union));
+    }
+    Assertions.assertTrue(graph.removeEdgeById(union, science));
+    Assertions.assertFalse(graph.containsEdgeById(union, science));
+    Assertions.assertFalse(graph.removeEdgeById(union, graph.getIdBound()));
+  }
+
+  /**
+   * Test for edge lookups.
+   * This test checks that edges leaving a hub with many successors are found, updated, and
+   * removed correctly once they are indexed by successor, and that looking up missing nodes or
+   * edges returns false instead of throwing.
+   */
+  @Test
+  public void testEdgeLookup() {
+    DijkstraGraph<String, Double> star = new DijkstraGraph<>(new OpenAddressingMap<>());
+    star.insertNode("hub");
+    for (int i = 0; i < 50; i++) {
+      star.insertNode("spoke " + i);
+      Assertions.assertTrue(star.insertEdge("hub", "spoke " + i, (double) i));
+    }
+    Assertions.assertNotNull(star.nodes.get("hub").successorIndex);
+    Assertions.assertEquals(50, star.getEdgeCount());
+    Assertions.assertTrue(star.insertEdge("hub", "spoke 7", 70.0));
+    Assertions.assertEquals(50, star.getEdgeCount());
+    Assertions.assertEquals(70.0, star.getEdge("hub", "spoke 7"));
+    for (int i = 0; i < 50; i += 2)
+      Assertions.assertTrue(star.removeEdge("hub", "spoke " + i));
+    for (int i = 0; i < 50; i++) {
+      Assertions.assertEquals(i % 2 == 1, star.containsEdge("hub", "spoke " + i));
+      Assertions.assertFalse(star.containsEdge("spoke " + i, "hub"));
+    }
+    Assertions.assertEquals(25, star.getEdgeCount());
+    star.removeNode("spoke 9");
+    Assertions.assertFalse(star.containsEdge("hub", "spoke 9"));
+    Assertions.assertEquals(24, star.getEdgeCount());
+    Assertions.assertEquals(11.0, star.shortestPathCost("hub", "spoke 11"));
+
+    Assertions.assertFalse(star.insertEdge("hub", "Not a building", 1.0));
+    Assertions.assertFalse(star.removeEdge("Not a building", "hub"));
+    Assertions.assertFalse(star.containsEdge("Not a building", "hub"));
+    Assertions.assertThrows(NoSuchElementException.class, () -> star.getEdge("hub", "spoke 0"));
+  }
+
+  /**
+   * Test for edge and node removal.
+   * This test repeatedly closes and reopens paths through a hub, checks that every remaining
+   * edge is still listed under both of its nodes, and then checks that removing the hub, which
+   * has edges in both directions and to itself, removes exactly its edges.
+   */
+  @Test
+  public void testRemovals() {
+    DijkstraGraph<Integer, Double> hubGraph = new DijkstraGraph<>(new OpenAddressingMap<>());
+    int hub = 40;
+    for (int node = 0; node <= hub; node++)
+      hubGraph.insertNode(node);
+    for (int node = 0; node < hub; node++) {
+      hubGraph.insertEdge(hub, node, 1.0);
+      hubGraph.insertEdge(node, hub, 2.0);
+      hubGraph.insertEdge(node, (node + 1) % hub, 5.0);
+    }
+    hubGraph.insertEdge(hub, hub, 1.0);
+    Random random = new Random(5);
+    boolean[] open = new boolean[hub];
+    Arrays.fill(open, true);
+    for (int i = 0; i < 500; i++) {
+      int node = random.nextInt(hub);
+      if (open[node]) {
+        Assertions.assertTrue(hubGraph.removeEdge(hub, node));
+        Assertions.assertFalse(hubGraph.removeEdge(hub, node));
+      } else {
+        hubGraph.insertEdge(hub, node, 1.0);
+      }
+      open[node] = !open[node];
+    }
+    int openCount = 0;
+    for (int node = 0; node < hub; node++) {
+      Assertions.assertEquals(open[node], hubGraph.containsEdge(hub, node));
+      // a closed spoke can still be reached around the ring from an open one
+      double cost = hubGraph.shortestPathCost(hub, node);
+      Assertions.assertTrue(open[node] ? cost == 1.0 : cost >= 6.0);
+      if (open[node])
+        openCount++;
+    }
+    BaseGraph<Integer, Double>.Node hubNode = hubGraph.nodes.get(hub);
+    Assertions.assertEquals(openCount + 1, hubNode.edgesLeaving.size());
+    for (int i = 0; i < hubNode.edgesLeaving.size(); i++)
+      Assertions.assertEquals(i, hubNode.edgesLeaving.get(i).leavingIndex);
+    Assertions.assertEquals(openCount + 2 * hub + 1, hubGraph.getEdgeCount());
+
+    hubGraph.removeNode(hub);
+    Assertions.assertEquals(hub, hubGraph.getEdgeCount());
+    for (int node = 0; node < hub; node++) {
+      BaseGraph<Integer, Double>.Node remaining = hubGraph.nodes.get(node);
+      Assertions.assertEquals(1, remaining.edgesLeaving.size());
+      Assertions.assertEquals(1, remaining.edgesEntering.size());
+      Assertions.assertEquals(0, remaining.edgesEntering.get(0).enteringIndex);
+    }
+  }
+
+  /**
+   * Test for dynamic shortest paths.
+   * This test registers two buildings as sources, then makes a long series of random changes to
+   * the campus map: raising, lowering, removing, and restoring walking times, and removing and
+   * adding buildings. After every change, the paths kept for each source must cost the same as
+   * a fresh search over the changed map.
+   */
+  @Test
+  public void testDynamicShortestPaths() throws FileNotFoundException {
+    DijkstraGraph<String, Double> campus = new DijkstraGraph<>(new OpenAddressingMap<>());
+    new Backend<String, Double>(campus).readDataFromFile("campus.dot");
+    DynamicShortestPaths<String, Double> union = campus.registerSource("Memorial Union");
+    DynamicShortestPaths<String, Double> science = campus.registerSource("Science Hall");
+    Assertions.assertSame(union, campus.registerSource("Memorial Union"));
+    CompactGraph<String> original = campus.snapshot();
+    Random random = new Random(15);
+    for (int change = 0; change < 300; change++) {
+      String pred = original.getData(random.nextInt(original.getNodeCount()));
+      String succ = original.getData(random.nextInt(original.getNodeCount()));
+      int kind = random.nextInt(10);
+      // Science Hall may be removed this way, after which its paths are no longer kept
+      if (change % 50 == 25 && !pred.equals("Memorial Union")) {
+        campus.removeNode(pred);
+        campus.insertNode(pred);
+      } else if (kind < 4 && campus.containsEdge(pred, succ)) {
+        campus.removeEdge(pred, succ);
+      } else if (!pred.equals(succ) && campus.containsNode(pred) && campus.containsNode(succ)) {
+        campus.insertEdge(pred, succ, 10 + 400 * random.nextDouble());
+      }
+
+      CompactGraph<String> snapshot = campus.snapshot();
+      CompactSearch<String> search = new CompactSearch<>(snapshot);
+      for (DynamicShortestPaths<String, Double> paths : List.of(union, science)) {
+        if (!campus.containsNode(paths.getSource()))
+          continue;
+        search.search(snapshot.getId(paths.getSource()), -1);
+        for (int id = 0; id < snapshot.getNodeCount(); id++)
+          Assertions.assertEquals(search.getCost(id), paths.getCost(id), 1e-9);
+      }
+    }
+    // queries from a registered source are answered from its paths
+    ShortestPathResult<String> path = campus.shortestPath("Memorial Union", "Radio Hall");
+    double total = 0;
+    for (int i = 0; i < path.getSegmentCosts().size(); i++) {
+      double segment = path.getSegmentCosts().get(i);
+      Assertions.assertEquals(campus.getEdge(path.getNodes().get(i), path.getNodes().get(i + 1)),
+          segment);
+      total += segment;
+    }
+    Assertions.assertEquals(path.getTotalCost(), total, 1e-9);
+    Assertions.assertEquals(union.getCost("Radio Hall"),
+        campus.shortestPathCost("Memorial Union", "Radio Hall"));
+    Assertions.assertTrue(campus.unregisterSource("Memorial Union"));
+    Assertions.assertFalse(campus.unregisterSource("Memorial Union"));
+  }
+
+  /**
+   * Test for the DOT tokenizer.
+   * This test reads lines with edges, weights, braces, and other text straight from a string,
+   * including lines split across the reader's chunks and a line longer than its buffer, and
+   * checks the tokens found in each line.
+   */
+  @Test
+  public void testDotReader() throws IOException {
+    String longName = "Hall".repeat(20000);
+    String text = "graph campus {\n"
+        + "        \"Memorial Union\" -- \"Science Hall\" [seconds=105.8];\r\n"
+        + "\"A\" -- \"B\" [seconds=0];\r\r\n"
+        + "  weight 0.000000000000000000000000000123 but no edge\n"
+        + "\"" + longName + "\" -- \"A\" [seconds=15649999999999997.5];\n"
+        + "\"Two  Spaces\" -- \"B\" 12.75 and 3.5\n"
+        + "}";
+    try (DotReader reader = new DotReader(new java.io.StringReader(text))) {
+      Assertions.assertTrue(reader.nextLine());
+      Assertions.assertTrue(reader.isBraceLine());
+
+      Assertions.assertTrue(reader.nextLine());
+      Assertions.assertFalse(reader.isBraceLine());
+      Assertions.assertEquals("Memorial Union", reader.getPredecessor());
+      Assertions.assertEquals("Science Hall", reader.getSuccessor());
+      Assertions.assertTrue(reader.hasWeight());
+      Assertions.assertEquals(105.8, reader.getWeight());
+
+      // whole seconds have no decimal point, so the line has no weight
+      Assertions.assertTrue(reader.nextLine());
+      Assertions.assertEquals("A", reader.getPredecessor());
+      Assertions.assertFalse(reader.hasWeight());
+
+      Assertions.assertTrue(reader.nextLine());
+      Assertions.assertFalse(reader.hasEdge());
+      Assertions.assertFalse(reader.hasWeight());
+
+      Assertions.assertTrue(reader.nextLine());
+      Assertions.assertFalse(reader.hasEdge());
+      Assertions.assertEquals(Double.parseDouble("0.000000000000000000000000000123"),
+          reader.getWeight());
+
+      Assertions.assertTrue(reader.nextLine());
+      Assertions.assertEquals(longName, reader.getPredecessor());
+      Assertions.assertEquals("A", reader.getSuccessor());
+      Assertions.assertEquals(15649999999999997.5, reader.getWeight());
+
+      // names are words separated by single spaces
+      Assertions.assertTrue(reader.nextLine());
+      Assertions.assertFalse(reader.hasEdge());
+      Assertions.assertEquals(12.75, reader.getWeight());
+
+      Assertions.assertTrue(reader.nextLine());
+      Assertions.assertTrue(reader.isBraceLine());
+      Assertions.assertFalse(reader.nextLine());
+      Assertions.assertEquals(8, reader.getLineCount());
+    }
+  }
+
+  /**
+   * Test for loading DOT files with the tokenizer.
+   * This test loads the campus map and a file of unusual lines both with Backend and with the
+   * regular expressions Backend used to match each line with, and checks that both give the
+   * same nodes, edges, weights, and total time.
+   */
+  @Test
+  public void testDotReaderMatchesPatterns() throws IOException {
+    File tricky = File.createTempFile("tricky", ".dot");
+    tricky.deleteOnExit();
+    try (java.io.FileWriter writer = new java.io.FileWriter(tricky)) {
+      writer.write("graph tricky {\n"
+          + "  \"A\" -- \"B\" [seconds=1.5];\n"
+          + "  \"B\" -- \"C\" [seconds=0];\r\n"
+          + "\n"
+          + "  \"A\" -- \"B\" [seconds=9.25];\r"
+          + "  \"Hall 2.5\" -- \"Two Words\" [seconds=3.0];\n"
+          + "\t\"Lab\" -- \"A\" [seconds=12.125] // was 7.0\n"
+          + "no edge here 4.75\n"
+          + "\"Lab\" -- \"Lab\" [seconds=0.12345678901234567891];\n"
+          + "}\n"
+          + "\"C\" -- \"Lab\" [seconds=2.0]");
+    }
+    for (String fileName : new String[] {"campus.dot", tricky.getPath()}) {
+      DijkstraGraph<String, Double> expected = new DijkstraGraph<>(new OpenAddressingMap<>());
+      double expectedTime = loadWithPatterns(expected, new File(fileName));
+      DijkstraGraph<String, Double> actual = new DijkstraGraph<>(new OpenAddressingMap<>());
+      Backend<String, Double> loader = new Backend<>(actual);
+      loader.readDataFromFile(fileName);
+
+      Assertions.assertEquals(expectedTime, loader.totalTime);
+      CompactGraph<String> expectedSnapshot = expected.snapshot();
+      CompactGraph<String> actualSnapshot = actual.snapshot();
+      Assertions.assertEquals(expectedSnapshot.getNodeCount(), actualSnapshot.getNodeCount());
+      Assertions.assertEquals(expectedSnapshot.getEdgeCount(), actualSnapshot.getEdgeCount());
+      for (int id = 0; id < expectedSnapshot.getNodeCount(); id++) {
+        Assertions.assertEquals(expectedSnapshot.getData(id), actualSnapshot.getData(id));
+        Assertions.assertEquals(expectedSnapshot.getEdgeStart(id), actualSnapshot.getEdgeStart(id));
+        for (int edge = expectedSnapshot.getEdgeStart(id); edge < expectedSnapshot.getEdgeEnd(id);
+            edge++) {
+          Assertions.assertEquals(expectedSnapshot.getTarget(edge), actualSnapshot.getTarget(edge));
+          Assertions.assertEquals(expectedSnapshot.getWeight(edge), actualSnapshot.getWeight(edge));
+        }
+      }
+    }
+  }
+
+  // loads a DOT file with the regular expressions Backend originally matched each line with,
+  // and returns the total time it adds up
+  private static double loadWithPatterns(DijkstraGraph<String, Double> graph, File file)
+      throws FileNotFoundException {
+    Pattern nodePattern = Pattern.compile("\"(\\S+(\\s\\S+)*)\" -- \"(\\S+(\\s\\S+)*)\"");
+    Pattern edgePattern = Pattern.compile("\\d+\\.\\d+");
+    String startNode = "";
+    String endNode = "";
+    double weight = 0;
+    double totalTime = 0;
+    try (Scanner input = new Scanner(file)) {
+      while (input.hasNextLine()) {
+        String line = input.nextLine().trim();
+        if (line.contains("{") || line.contains("}"))
+          continue;
+        Matcher nodeMatcher = nodePattern.matcher(line);
+        Matcher edgeMatcher = edgePattern.matcher(line);
+        if (nodeMatcher.find()) {
+          startNode = nodeMatcher.group(1);
+          endNode = nodeMatcher.group(3);
+          if (!graph.containsNode(startNode))
+            graph.insertNode(startNode);
+          if (!graph.containsNode(endNode))
+            graph.insertNode(endNode);
+        }
+        if (edgeMatcher.find())
+          weight = Double.parseDouble(edgeMatcher.group());
+        if (!graph.containsEdge(startNode, endNode))
+          graph.insertEdge(startNode, endNode, weight);
+        totalTime += weight;
+      }
+    }
+    return totalTime;
+  }
+
+  /**
+   * Test for the binary graph format.
+   * This test writes the campus map to a file, with one building removed, and maps it back. The
+   * mapped graph must answer every query the same as the original without creating its nodes,
+   * and must then change like the original does once a walking time is changed.
+   */
+  @Test
+  public void testGraphFile() throws IOException {
+    DijkstraGraph<String, Double> campus = new DijkstraGraph<>(new OpenAddressingMap<>());
+    new Backend<String, Double>(campus).readDataFromFile("campus.dot");
+    campus.removeNode("Radio Hall");
+    File file = File.createTempFile("campus", ".graph");
+    file.deleteOnExit();
+    GraphFile.save(campus, file);
+
+    DijkstraGraph<String, Double> mapped = GraphFile.load(file);
+    Assertions.assertTrue(mapped.isFrozen());
+    Assertions.assertEquals(campus.getNodeCount(), mapped.getNodeCount());
+    Assertions.assertEquals(campus.getEdgeCount(), mapped.getEdgeCount());
+    Assertions.assertEquals(campus.getIdBound(), mapped.getIdBound());
+    Assertions.assertFalse(mapped.containsNode("Radio Hall"));
+    CompactGraph<String> snapshot = campus.snapshot();
+    for (int start = 0; start < snapshot.getNodeCount(); start += 7) {
+      Assertions.assertEquals(campus.containsId(start), mapped.containsId(start));
+      if (!campus.containsId(start))
+        continue;
+      Assertions.assertEquals(campus.getData(start), mapped.getData(start));
+      for (int end = 0; end < snapshot.getNodeCount(); end++) {
+        Assertions.assertEquals(campus.containsEdgeById(start, end),
+            mapped.containsEdgeById(start, end));
+        Assertions.assertEquals(campus.shortestPathCostById(start, end),
+            mapped.shortestPathCostById(start, end));
+      }
+    }
+    ShortestPathResult<String> path = mapped.shortestPath("Memorial Union", "Science Hall",
+        DijkstraGraph.SearchMode.BIDIRECTIONAL);
+    Assertions.assertEquals(campus.shortestPathData("Memorial Union", "Science Hall"),
+        path.getNodes());
+    Assertions.assertEquals(campus.getEdge("Memorial Union", "Science Hall"),
+        mapped.getEdge("Memorial Union", "Science Hall"));
+    int first = campus.getId("Memorial Union");
+    int last = campus.getId("Science Hall");
+    Assertions.assertEquals(campus.getEdgeById(first, last), mapped.getEdgeById(first, last));
+    Assertions.assertThrows(NoSuchElementException.class,
+        () -> mapped.getEdge("Memorial Union", "Nowhere"));
+    Assertions.assertThrows(NoSuchElementException.class, () -> mapped.getData(999999));
+    // every query and lookup so far was answered from the mapped rows
+    Assertions.assertTrue(mapped.nodesById.isEmpty());
+
+    // the first change creates the nodes, which then change like the original's do
+    for (DijkstraGraph<String, Double> graph : List.of(campus, mapped)) {
+      graph.insertNode("Radio Hall");
+      graph.insertEdge("Memorial Union", "Radio Hall", 1.5);
+      graph.insertEdge("Radio Hall", "Science Hall", 2.5);
+    }
+    Assertions.assertEquals(campus.getId("Radio Hall"), mapped.getId("Radio Hall"));
+    Assertions.assertEquals(campus.getEdgeCount(), mapped.getEdgeCount());
+    Assertions.assertEquals(campus.getEdge("Memorial Union", "Radio Hall"),
+        mapped.getEdge("Memorial Union", "Radio Hall"));
+    Assertions.assertEquals(4.0, mapped.shortestPathCost("Memorial Union", "Science Hall"));
+    Assertions.assertEquals(campus.snapshot().getEdgeCount(), mapped.snapshot().getEdgeCount());
+
+    try (java.io.FileWriter writer = new java.io.FileWriter(file)) {
+      writer.write("graph campus {");
+    }
+    Assertions.assertThrows(IOException.class, () -> GraphFile.load(file));
+  }
+
+  /**
+   * Test for loading DOT files in parallel.
+   * This test writes a file large enough to be split into many chunks, with repeated edges,
+   * lines without edges or weights, and blank lines, and checks that loading it and the campus
+   * map in parallel gives the same graph, node ids, and statistics as loading them sequentially.
+   */
+  @Test
+  public void testParallelDotLoader() throws IOException {
+    File large = File.createTempFile("large", ".dot");
+    large.deleteOnExit();
+    Random random = new Random(18);
+    try (java.io.PrintWriter writer = new java.io.PrintWriter(large)) {
+      writer.println("graph large {");
+      for (int line = 0; line < 20000; line++) {
+        int kind = random.nextInt(20);
+        if (kind == 0)
+          writer.println();
+        else if (kind == 1)
+          writer.println("  // a comment worth " + random.nextInt(100) + ".5 seconds");
+        else
+          writer.println("  \"Hall " + random.nextInt(500) + "\" -- \"Hall " + random.nextInt(500)
+              + "\" [seconds=" + (kind == 2 ? "0" : random.nextInt(1000) / 10.0) + "];");
+      }
+      writer.println("}");
+    }
+    ForkJoinPool pool = new ForkJoinPool(4);
+    for (String fileName : new String[] {"campus.dot", large.getPath()}) {
+      DijkstraGraph<String, Double> sequential = new DijkstraGraph<>(new OpenAddressingMap<>());
+      Backend<String, Double> sequentialBackend = new Backend<>(sequential);
+      sequentialBackend.readDataFromFile(fileName);
+      DijkstraGraph<String, Double> parallel = new DijkstraGraph<>(new OpenAddressingMap<>());
+      Backend<String, Double> parallelBackend = new Backend<>(parallel);
+      parallelBackend.readDataFromFile(fileName, pool);
+
+      Assertions.assertEquals(sequentialBackend.getStatistics(), parallelBackend.getStatistics());
+      CompactGraph<String> expected = sequential.snapshot();
+      CompactGraph<String> actual = parallel.snapshot();
+      Assertions.assertEquals(expected.getNodeCount(), actual.getNodeCount());
+      Assertions.assertEquals(expected.getEdgeCount(), actual.getEdgeCount());
+      for (int id = 0; id < expected.getNodeCount(); id++) {
+        Assertions.assertEquals(expected.getData(id), actual.getData(id));
+        for (int edge = expected.getEdgeStart(id); edge < expected.getEdgeEnd(id); edge++) {
+          int succ = expected.getTarget(edge);
+          Assertions.assertEquals(expected.getWeight(edge),
+              actual.getWeight(actual.findEdge(id, succ)));
+        }
+      }
+    }
+    pool.shutdown();
+
+    // the bulk inserts leave the graph as consistent as single inserts do
+    DijkstraGraph<String, Double> graph = new DijkstraGraph<>(new OpenAddressingMap<>());
+    graph.insertNode("A");
+    int[] ids = graph.insertNodes(List.of("B", "C"));
+    Assertions.assertArrayEquals(new int[] {1, 2}, ids);
+    Assertions.assertThrows(IllegalArgumentException.class, () -> graph.insertNodes(List.of("A")));
+    // a duplicate anywhere in the list leaves the graph and its snapshot unchanged
+    int version = graph.getVersion();
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> graph.insertNodes(List.of("D", "E", "A")));
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> graph.insertNodes(List.of("D", "D")));
+    Assertions.assertFalse(graph.containsNode("D"));
+    Assertions.assertEquals(3, graph.getNodeCount());
+    Assertions.assertEquals(version, graph.getVersion());
+    Assertions.assertEquals(3, graph.snapshot().getNodeCount());
+    graph.insertEdgesById(new int[] {0, 1, 2}, new int[] {1, 2, 0}, List.of(1.0, 2.0, 3.0));
+    Assertions.assertEquals(3, graph.getEdgeCount());
+    Assertions.assertEquals(3.0, graph.shortestPathCost("A", "C"));
+    Assertions.assertTrue(graph.removeEdge("B", "C"));
+    Assertions.assertEquals(-1.0, graph.shortestPathCost("A", "C"));
+  }
+
+  /**
+   * Test for the concurrent graph.
+   * This test runs queries on three threads while a fourth applies batches that each change the
+   * walking time between two buildings in both directions at once. Every snapshot a query sees
+   * must hold both changes of a batch or neither, and its costs must match a fresh search.
+   */
+  @Test
+  public void testConcurrentGraph() throws Exception {
+    DijkstraGraph<String, Double> campus = new DijkstraGraph<>(new OpenAddressingMap<>());
+    new Backend<String, Double>(campus).readDataFromFile("campus.dot");
+    campus.insertEdge("Science Hall", "Memorial Union", 100.0);
+    campus.insertEdge("Memorial Union", "Science Hall", 100.0);
+    ConcurrentGraph<String> graph = new ConcurrentGraph<>(campus);
+
+    java.util.concurrent.atomic.AtomicBoolean writing =
+        new java.util.concurrent.atomic.AtomicBoolean(true);
+    java.util.concurrent.ExecutorService readers =
+        java.util.concurrent.Executors.newFixedThreadPool(3);
+    List<java.util.concurrent.Future<Integer>> results = new java.util.ArrayList<>();
+    for (int reader = 0; reader < 3; reader++) {
+      results.add(readers.submit(() -> {
+        int queries = 0;
+        do {
+          CompactGraph<String> snapshot = graph.getSnapshot();
+          int union = snapshot.getId("Memorial Union");
+          int science = snapshot.getId("Science Hall");
+          Assertions.assertEquals(snapshot.getWeight(snapshot.findEdge(union, science)),
+              snapshot.getWeight(snapshot.findEdge(science, union)));
+          CompactSearch<String> search = new CompactSearch<>(snapshot);
+          search.search(union, -1);
+          String end = snapshot.getData(queries % snapshot.getNodeCount());
+          double cost = search.getCost(snapshot.getId(end));
+          Assertions.assertEquals(cost == Double.POSITIVE_INFINITY ? -1.0 : cost,
+              graph.shortestPathCost(snapshot, "Memorial Union", end));
+          queries++;
+        } while (writing.get());
+        return queries;
+      }));
+    }
+    Random random = new Random(19);
+    int version = graph.getVersion();
+    for (int i = 0; i < 200; i++) {
+      double weight = 1 + 200 * random.nextDouble();
+      int applied = graph.apply(new ConcurrentGraph.Batch<String>()
+          .insertEdge("Memorial Union", "Science Hall", weight)
+          .insertEdge("Science Hall", "Memorial Union", weight));
+      Assertions.assertTrue(applied > version);
+      version = applied;
+    }
+    writing.set(false);
+    for (java.util.concurrent.Future<Integer> result : results)
+      Assertions.assertTrue(result.get() > 0);
+    readers.shutdown();
+
+    graph.apply(new ConcurrentGraph.Batch<String>().removeNode("Science Hall"));
+    Assertions.assertEquals(-1.0, graph.shortestPathCost("Memorial Union", "Science Hall"));
+    Assertions.assertThrows(NoSuchElementException.class,
+        () -> graph.shortestPath("Memorial Union", "Science Hall"));
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> new ConcurrentGraph.Batch<String>().insertEdge("A", "B", -1));
+
+    // a batch that fails partway keeps none of its changes, even once a later batch is applied,
+    // while the graph keeps its settings and registered sources
+    campus.setQueueType(CompactSearch.QueueType.INDEXED_HEAP);
+    campus.registerSource("Memorial Union");
+    version = graph.getVersion();
+    ConcurrentGraph.Batch<String> failing = new ConcurrentGraph.Batch<String>()
+        .insertNode("Science Hall")
+        .insertEdge("Memorial Union", "Science Hall", 1.0);
+    failing.changes.add(g -> {
+      throw new IllegalStateException("change failed");
+    });
+    Assertions.assertThrows(IllegalStateException.class, () -> graph.apply(failing));
+    Assertions.assertEquals(version, graph.getVersion());
+    Assertions.assertEquals(-1, graph.getSnapshot().getId("Science Hall"));
+    graph.apply(new ConcurrentGraph.Batch<String>().insertNode("Dairy Barn"));
+    Assertions.assertEquals(-1, graph.getSnapshot().getId("Science Hall"));
+    Assertions.assertEquals(-1.0, graph.shortestPathCost("Memorial Union", "Science Hall"));
+    Assertions.assertEquals(0.0, graph.shortestPathCost("Dairy Barn", "Dairy Barn"));
+    Assertions.assertEquals(CompactSearch.QueueType.INDEXED_HEAP, campus.getQueueType());
+    Assertions.assertEquals(graph.shortestPathCost("Memorial Union", "Radio Hall"),
+        campus.dynamicPathsFrom("Memorial Union").getCost("Radio Hall"));
+    Assertions.assertTrue(graph.shortestPathCost("Memorial Union", "Radio Hall") > 0);
+  }
+
+  /**
+   * Tests that a RouteServer answers single and batched path queries and statistics the same
+   * way as its backend, turns requests away once too many are in flight, and keeps up with the
+   * load generator.
+   */
+  @Test
+  public void testRouteServer() throws Exception {
+    DijkstraGraph<String, Double> campus = new DijkstraGraph<>(new OpenAddressingMap<>());
+    Backend<String, Double> typed = new Backend<>(campus);
+    typed.readDataFromFile("campus.dot");
+    campus.setFrozen(true);
+    PathInterface<String, Double> expected =
+        typed.getShortestPath("Memorial Union", "Science Hall");
+
+    // Backend implements the raw BackendInterface, whose paths are always String and Double
+    @SuppressWarnings("unchecked")
+    BackendInterface<String, Double> served = typed;
+    try (RouteServer server = new RouteServer(served, new InetSocketAddress("127.0.0.1", 0), 4)) {
+      server.start();
+      String base = "http://127.0.0.1:" + server.getPort();
+      HttpClient client = HttpClient.newHttpClient();
+      HttpResponse<String> response = client.send(HttpRequest.newBuilder(
+          URI.create(base + "/path?start=Memorial+Union&end=Science%20Hall")).build(),
+          HttpResponse.BodyHandlers.ofString());
+      Assertions.assertEquals(200, response.statusCode());
+      Assertions.assertEquals(expected.getTotalTime() + "\t"
+          + String.join("\t", expected.getPath()) + "\n", response.body());
+
+      response = client.send(HttpRequest.newBuilder(URI.create(base + "/paths"))
+          .POST(HttpRequest.BodyPublishers.ofString(
+              "Memorial Union\tScience Hall\nMemorial Union\tNowhere\n")).build(),
+          HttpResponse.BodyHandlers.ofString());
+      Assertions.assertEquals(200, response.statusCode());
+      String[] lines = response.body().split("\n");
+      Assertions.assertEquals(2, lines.length);
+      Assertions.assertEquals(expected.getTotalTime(),
+          Double.parseDouble(lines[0].split("\t")[0]));
+      Assertions.assertEquals("-1", lines[1]);
+
+      response = client.send(HttpRequest.newBuilder(URI.create(base + "/statistics")).build(),
+          HttpResponse.BodyHandlers.ofString());
+      Assertions.assertEquals(typed.getStatistics() + "\n", response.body());
+      Assertions.assertEquals(404, client.send(HttpRequest.newBuilder(
+          URI.create(base + "/path?start=Nowhere&end=Science+Hall")).build(),
+          HttpResponse.BodyHandlers.ofString()).statusCode());
+      Assertions.assertEquals(400, client.send(HttpRequest.newBuilder(
+          URI.create(base + "/path?start=Nowhere")).build(),
+          HttpResponse.BodyHandlers.ofString()).statusCode());
+
+      // with every permit taken, requests are turned away rather than queued
+      server.permits.acquire(4);
+      Assertions.assertEquals(503, client.send(HttpRequest.newBuilder(
+          URI.create(base + "/statistics")).build(),
+          HttpResponse.BodyHandlers.ofString()).statusCode());
+      Assertions.assertEquals(1, server.getRejectedCount());
+      server.permits.release(4);
+
+      List<String> nodes = Arrays.asList("Memorial Union", "Science Hall", "Radio Hall");
+      RouteLoadGenerator.Report report = RouteLoadGenerator.run(server.getPort(), nodes, 3, 300,
+          20);
+      Assertions.assertEquals(300, report.getAnswered() + report.getRejected());
+      Assertions.assertEquals(0, report.getFailed());
+      Assertions.assertTrue(report.getPercentile(0.5) <= report.getPercentile(0.99));
+    }
+  }
+
+  /**
+   * Tests that the component index of the campus graph never rules out a path that exists, that
+   * queries answer the same costs with it, and that it is rebuilt once a new edge joins nodes
+   * that had no path between them.
+   */
+  @Test
+  public void testComponentIndex() throws FileNotFoundException {
+    DijkstraGraph<String, Double> campus = new DijkstraGraph<>(new OpenAddressingMap<>());
+    new Backend<String, Double>(campus).readDataFromFile("campus.dot");
+    campus.insertNode("Island");
+    CompactGraph<String> snapshot = campus.snapshot();
+    ComponentIndex<String> index = campus.componentIndex();
+    Assertions.assertTrue(index.getStrongComponentCount() > 1);
+    Assertions.assertTrue(index.getWeakComponentCount() >= 2);
+
+    int ruledOut = 0;
+    CompactSearch<String> search = new CompactSearch<>(snapshot);
+    for (int source = 0; source < snapshot.getNodeCount(); source++) {
+      search.search(source, -1);
+      for (int target = 0; target < snapshot.getNodeCount(); target++) {
+        double cost = search.getCost(target);
+        if (!index.mayReach(source, target)) {
+          Assertions.assertEquals(Double.POSITIVE_INFINITY, cost);
+          ruledOut++;
+        }
+        if (target % 7 == 0) {
+          Assertions.assertEquals(cost == Double.POSITIVE_INFINITY ? -1.0 : cost,
+              campus.shortestPathCostById(source, target));
+        }
+      }
+    }
+    Assertions.assertTrue(ruledOut > 0);
+    Assertions.assertThrows(NoSuchElementException.class,
+        () -> campus.shortestPath("Memorial Union", "Island"));
+
+    // removing an edge keeps the index, adding one replaces it
+    campus.removeEdge("Memorial Union", "Science Hall");
+    Assertions.assertSame(index, campus.componentIndex());
+    campus.insertEdge("Memorial Union", "Island", 5.0);
+    Assertions.assertNotSame(index, campus.componentIndex());
+    Assertions.assertEquals(5.0, campus.shortestPathCost("Memorial Union", "Island"));
+
+    // queries on the nodes search without the index rather than compile a snapshot for it
+    campus.insertEdge("Island", "Science Hall", 2.0);
+    Assertions.assertEquals(2.0, campus.shortestPathCost("Island", "Science Hall"));
+    Assertions.assertNotEquals(campus.getVersion(), campus.snapshot.getVersion());
+  }
+
+  /**
+   * Tests that Yen's algorithm finds the same costs, in the same order, as listing every loopless
+   * path of a small random graph, and that the backend returns campus routes cheapest first with
+   * the walking time of every segment.
+   */
+  @Test
+  public void testKShortestPaths() throws FileNotFoundException {
+    Random random = new Random(22);
+    DijkstraGraph<String, Double> small = new DijkstraGraph<>(new OpenAddressingMap<>());
+    for (int i = 0; i < 10; i++)
+      small.insertNode("n" + i);
+    for (int i = 0; i < 35; i++)
+      small.insertEdge("n" + random.nextInt(10), "n" + random.nextInt(10),
+          (double) (1 + random.nextInt(20)));
+    CompactGraph<String> snapshot = small.snapshot();
+    List<Double> costs = new java.util.ArrayList<>();
+    listLooplessCosts(snapshot, 0, 9, new boolean[10], 0, costs);
+    java.util.Collections.sort(costs);
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    List<ShortestPathResult<String>> paths =
+        new KShortestPaths<>(snapshot, pool).find(0, 9, 8);
+    pool.shutdown();
+    Assertions.assertEquals(Math.min(8, costs.size()), paths.size());
+    for (int i = 0; i < paths.size(); i++) {
+      ShortestPathResult<String> path = paths.get(i);
+      Assertions.assertEquals(costs.get(i), path.getTotalCost(), 1e-9);
+      Assertions.assertEquals(path.getNodes().size(), new java.util.HashSet<>(path.getNodes()).size());
+      Assertions.assertEquals(path.getTotalCost(),
+          path.getSegmentCosts().stream().mapToDouble(Double::doubleValue).sum(), 1e-9);
+    }
+
+    DijkstraGraph<String, Double> campus = new DijkstraGraph<>(new OpenAddressingMap<>());
+    Backend<String, Double> typed = new Backend<>(campus);
+    typed.readDataFromFile("campus.dot");
+    List<PathInterface<String, Double>> routes =
+        typed.getShortestPaths("Memorial Union", "Science Hall", 5);
+    Assertions.assertEquals(5, routes.size());
+    Assertions.assertEquals(typed.getShortestPath("Memorial Union", "Science Hall").getPath(),
+        routes.get(0).getPath());
+    for (int i = 1; i < routes.size(); i++) {
+      Assertions.assertTrue(routes.get(i - 1).getTotalTime() <= routes.get(i).getTotalTime());
+      Assertions.assertNotEquals(routes.get(i - 1).getPath(), routes.get(i).getPath());
+      Assertions.assertEquals(routes.get(i).getPath().size() - 1,
+          routes.get(i).getWalkingTimes().size());
+    }
+    Assertions.assertThrows(NoSuchElementException.class,
+        () -> typed.getShortestPaths("Memorial Union", "Nowhere", 3));
+  }
+
+  // adds the cost of every loopless path from node to target to costs
+  private static void listLooplessCosts(CompactGraph<String> graph, int node, int target,
+      boolean[] visited, double cost, List<Double> costs) {
+    if (node == target) {
+      costs.add(cost);
+      return;
+    }
+    visited[node] = true;
+    for (int e = graph.getEdgeStart(node); e < graph.getEdgeEnd(node); e++)
+      if (!visited[graph.getTarget(e)])
+        listLooplessCosts(graph, graph.getTarget(e), target, visited, cost + graph.getWeight(e),
+            costs);
+    visited[node] = false;
+  }
+
+  /**
+   * Tests that budgeted searches visit exactly the campus nodes within each budget, in order of
+   * increasing cost, and that one search answers several budgets the same way.
+   */
+  @Test
+  public void testReachableWithin() throws FileNotFoundException {
+    DijkstraGraph<String, Double> campus = new DijkstraGraph<>(new OpenAddressingMap<>());
+    new Backend<String, Double>(campus).readDataFromFile("campus.dot");
+    CompactGraph<String> snapshot = campus.snapshot();
+    CompactSearch<String> full = new CompactSearch<>(snapshot);
+    full.search(snapshot.getId("Memorial Union"), -1);
+
+    List<String> streamed = new java.util.ArrayList<>();
+    double[] last = {0};
+    int count = campus.reachableWithin("Memorial Union", 300, (node, cost) -> {
+      Assertions.assertTrue(cost >= last[0] && cost <= 300);
+      Assertions.assertEquals(full.getCost(snapshot.getId(node)), cost);
+      last[0] = cost;
+      streamed.add(node);
+    });
+    Assertions.assertEquals(streamed.size(), count);
+    Assertions.assertEquals("Memorial Union", streamed.get(0));
+
+    double[] budgets = {300, 60, 120, Double.POSITIVE_INFINITY};
+    List<List<String>> isochrones = campus.reachableWithin("Memorial Union", budgets);
+    Assertions.assertEquals(streamed, isochrones.get(0));
+    for (int i = 0; i < budgets.length; i++) {
+      int within = 0;
+      for (int id = 0; id < snapshot.getNodeCount(); id++)
+        if (full.getCost(id) <= budgets[i] && full.getCost(id) != Double.POSITIVE_INFINITY)
+          within++;
+      Assertions.assertEquals(within, isochrones.get(i).size());
+    }
+    Assertions.assertTrue(isochrones.get(1).size() < isochrones.get(0).size());
+
+    // the search stops at the budget rather than settling every node
+    CompactSearch<String> bounded = new CompactSearch<>(snapshot);
+    Assertions.assertEquals(isochrones.get(1).size(),
+        bounded.searchWithin(snapshot.getId("Memorial Union"), 60, null));
+    Assertions.assertThrows(NoSuchElementException.class,
+        () -> campus.reachableWithin("Nowhere", new double[] {60}));
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> campus.reachableWithin("Memorial Union", new double[] {-1}));
+  }
+
+  /**
+   * Test that many-to-many tables match the costs of single queries, from
+   * searches per source and from a contraction hierarchy's buckets.
+   */
+  @Test
+  public void testShortestPathCosts() throws FileNotFoundException {
+    DijkstraGraph<String, Double> campus = new DijkstraGraph<>(new OpenAddressingMap<>());
+    new Backend<String, Double>(campus).readDataFromFile("campus.dot");
+    CompactGraph<String> snapshot = campus.snapshot();
+    List<String> starts = new java.util.ArrayList<>();
+    for (int id = 0; id < snapshot.getNodeCount(); id += 3)
+      starts.add(snapshot.getData(id));
+    starts.add("Nowhere");
+    List<String> ends = new java.util.ArrayList<>();
+    for (int id = 0; id < snapshot.getNodeCount(); id++)
+      ends.add(snapshot.getData(id));
+    ends.add("Memorial Union");
+
+    double[][] table = campus.shortestPathCosts(starts, ends);
+    double[][] buckets = new ContractionHierarchy<>(campus).shortestPathCosts(starts, ends);
+    Assertions.assertEquals(starts.size(), table.length);
+    int unreachable = 0;
+    for (int i = 0; i < starts.size(); i++) {
+      Assertions.assertEquals(ends.size(), table[i].length);
+      for (int j = 0; j < ends.size(); j++) {
+        double expected = campus.shortestPathCost(starts.get(i), ends.get(j));
+        Assertions.assertEquals(expected, table[i][j], 1e-9);
+        Assertions.assertEquals(expected, buckets[i][j], 1e-9);
+        if (expected == -1)
+          unreachable++;
+      }
+    }
+    // rows for missing nodes and pairs without a path are both -1
+    Assertions.assertTrue(unreachable > ends.size());
+    Assertions.assertEquals(0, campus.shortestPathCosts(starts, List.of())[0].length);
+  }
+
+  /**
+   * Test that tours visit every stop, that small tours are the cheapest
+   * order, and that larger tours improve on the nearest neighbour order.
+   */
+  @Test
+  public void testShortestTour() throws FileNotFoundException {
+    DijkstraGraph<String, Double> campus = new DijkstraGraph<>(new OpenAddressingMap<>());
+    new Backend<String, Double>(campus).readDataFromFile("campus.dot");
+    CompactGraph<String> snapshot = campus.snapshot();
+    ComponentIndex<String> index = campus.componentIndex();
+    int memorial = snapshot.getId("Memorial Union");
+    List<String> stops = new java.util.ArrayList<>();
+    for (int id = 0; id < snapshot.getNodeCount(); id++)
+      if (index.getStrongComponent(id) == index.getStrongComponent(memorial))
+        stops.add(snapshot.getData(id));
+    stops.remove("Memorial Union");
+    stops.add(0, "Memorial Union");
+
+    // small tours match the cheapest of every order of the stops
+    List<String> few = stops.subList(0, 7);
+    int[] ids = DistanceTable.getIds(snapshot, few);
+    double[][] costs = DistanceTable.compute(snapshot, ids, ids, ForkJoinPool.commonPool());
+    for (boolean roundTrip : new boolean[] {false, true}) {
+      ShortestPathResult<String> tour = campus.shortestTour(few, roundTrip, 1000);
+      Assertions.assertEquals(cheapestOrder(costs, new int[] {0}, roundTrip),
+          tour.getTotalCost(), 1e-9);
+      checkTour(campus, few, roundTrip, tour);
+    }
+
+    // larger tours are at least as cheap as visiting the nearest stop next
+    List<String> many = stops.subList(0, 30);
+    ids = DistanceTable.getIds(snapshot, many);
+    costs = DistanceTable.compute(snapshot, ids, ids, ForkJoinPool.commonPool());
+    double nearest = TourPlanner.tourCost(costs, TourPlanner.nearestNeighbour(costs), true);
+    ShortestPathResult<String> tour = campus.shortestTour(many, true, 2000);
+    Assertions.assertTrue(tour.getTotalCost() <= nearest);
+    checkTour(campus, many, true, tour);
+    Assertions.assertEquals(nearest, campus.shortestTour(many, true, 0).getTotalCost(), 1e-9);
+
+    Assertions.assertThrows(NoSuchElementException.class,
+        () -> campus.shortestTour(List.of("Memorial Union", "Nowhere"), false, 100));
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> campus.shortestTour(few, false, -1));
+  }
+
+  // the cost of the cheapest tour that continues a prefix through every other stop
+  private static double cheapestOrder(double[][] costs, int[] prefix, boolean roundTrip) {
+    if (prefix.length == costs.length)
+      return TourPlanner.tourCost(costs, prefix, roundTrip);
+    double best = Double.POSITIVE_INFINITY;
+    for (int next = 0; next < costs.length; next++) {
+      final int stop = next;
+      if (java.util.stream.IntStream.of(prefix).anyMatch(visited -> visited == stop))
+        continue;
+      int[] longer = Arrays.copyOf(prefix, prefix.length + 1);
+      longer[prefix.length] = next;
+      best = Math.min(best, cheapestOrder(costs, longer, roundTrip));
+    }
+    return best;
+  }
+
+  // checks that a tour starts at the first stop, visits every stop, and follows real edges
+  private static void checkTour(DijkstraGraph<String, Double> graph, List<String> stops,
+      boolean roundTrip, ShortestPathResult<String> tour) {
+    List<String> nodes = tour.getNodes();
+    Assertions.assertEquals(stops.get(0), nodes.get(0));
+    if (roundTrip)
+      Assertions.assertEquals(stops.get(0), nodes.get(nodes.size() - 1));
+    Assertions.assertTrue(nodes.containsAll(stops));
+    double total = 0;
+    for (int i = 1; i < nodes.size(); i++) {
+      double weight = graph.getEdge(nodes.get(i - 1), nodes.get(i));
+      Assertions.assertEquals(weight, tour.getSegmentCosts().get(i - 1));
+      total += weight;
+    }
+    Assertions.assertEquals(total, tour.getTotalCost(), 1e-9);
+  }
 }
@@ -1,6 +1,7 @@
 
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.NoSuchElementException;
 
@@ -10,25 +11,88 @@ import java.util.NoSuchElementException;
  */
 public class BaseGraph<NodeType, EdgeType extends Number> {
 
-  // Each node contains unique data along with two lists of directed edges
+  // Nodes with more edges leaving them than this index those edges by successor
+  protected static final int SUCCESSOR_INDEX_THRESHOLD = 8;
+
+  // Each node contains unique data along with two lists of directed edges.
+  // Every edge remembers its position in both lists, so that it can be
+  // removed by moving the last edge of each list into its place
   protected class Node {
     public NodeType data;
-    public List<Edge> edgesLeaving = new LinkedList<>();
-    public List<Edge> edgesEntering = new LinkedList<>();
+    public ArrayList<Edge> edgesLeaving = new ArrayList<>();
+    public ArrayList<Edge> edgesEntering = new ArrayList<>();
+    public int id; // dense id of this node, reused after the node is removed
+    // the edges leaving this node by their successor, once there are too many
+    // to scan, or null; nodes hash by identity, so lookups never touch data
+    public OpenAddressingMap<Node, Edge> successorIndex = null;
 
     public Node(NodeType data) {
       this.data = data;
     }
+
+    // the edge leading from this node to succ, or null when there is none
+    public Edge findEdgeTo(Node succ) {
+      if (successorIndex != null)
+        return successorIndex.getOrDefault(succ, null);
+      for (Edge edge : edgesLeaving)
+        if (edge.successor == succ)
+          return edge;
+      return null;
+    }
+
+    public void addEdgeLeaving(Edge edge) {
+      edge.leavingIndex = edgesLeaving.size();
+      edgesLeaving.add(edge);
+      if (successorIndex != null) {
+        successorIndex.put(edge.successor, edge);
+      } else if (edgesLeaving.size() > SUCCESSOR_INDEX_THRESHOLD) {
+        successorIndex = new OpenAddressingMap<>(edgesLeaving.size() * 2);
+        for (Edge leaving : edgesLeaving)
+          successorIndex.put(leaving.successor, leaving);
+      }
+    }
+
+    public void removeEdgeLeaving(Edge edge) {
+      Edge last = edgesLeaving.remove(edgesLeaving.size() - 1);
+      if (last != edge) {
+        last.leavingIndex = edge.leavingIndex;
+        edgesLeaving.set(edge.leavingIndex, last);
+      }
+      if (successorIndex != null)
+        successorIndex.remove(edge.successor);
+    }
+
+    public void addEdgeEntering(Edge edge) {
+      edge.enteringIndex = edgesEntering.size();
+      edgesEntering.add(edge);
+    }
+
+    public void removeEdgeEntering(Edge edge) {
+      Edge last = edgesEntering.remove(edgesEntering.size() - 1);
+      if (last != edge) {
+        last.enteringIndex = edge.enteringIndex;
+        edgesEntering.set(edge.enteringIndex, last);
+      }
+    }
   }
 
   // Nodes can be retrieved from this map by their unique data
   protected MapADT<NodeType, Node> nodes = null;
 
+  // Nodes are also kept in a list indexed by their id, with null at the ids
+  // of removed nodes, so that they can be enumerated and found by id
+  protected List<Node> nodesById = new ArrayList<>();
+  // Ids of removed nodes, handed out again before any new id
+  protected int[] freeIds = new int[0];
+  protected int freeIdCount = 0;
+
   // Each edge contains data/weight, and two nodes that it connects
   protected class Edge {
     public EdgeType data; // the weight or cost of this edge
     public Node predecessor;
     public Node successor;
+    public int leavingIndex; // position within predecessor.edgesLeaving
+    public int enteringIndex; // position within successor.edgesEntering
 
     public Edge(EdgeType data, Node pred, Node succ) {
       this.data = data;
@@ -40,6 +104,25 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
   protected int edgeCount = 0;
   // Edges can be retrieved through the edge lists in either connected node
 
+  // Incremented by every mutation, so that derived structures can detect when
+  // they are out of date
+  protected int version = 0;
+  // Incremented only by mutations that can make some shortest path cheaper
+  // (new edges and lowered weights) or that free a node id for reuse (node
+  // removals); lower bounds on path costs that were computed before any other
+  // mutation remain valid lower bounds afterwards
+  protected int shorteningVersion = 0;
+
+  // The most recently compiled compact snapshot, or null if none was built yet;
+  // volatile so that threads querying an unchanging graph see a complete one
+  protected volatile CompactGraph<NodeType> snapshot = null;
+
+  // A snapshot that this graph was loaded from, such as one mapped from a
+  // file, and that it answers from until it is first changed; only then are
+  // its Node and Edge objects created. Null once they exist
+  protected CompactGraph<NodeType> loaded = null;
+  protected int loadedNodeCount = 0;
+
   /**
    * Constructor for BaseGraph that provides the map the graph uses.
    *
@@ -59,12 +142,59 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
    * @throws NullPointerException if data is null
    */
   public boolean insertNode(NodeType data) {
+    materialize();
     if (nodes.containsKey(data))
       return false; // throws NPE when data's null
-    nodes.put(data, new Node(data));
+    Node newNode = new Node(data);
+    nodes.put(data, newNode);
+    if (freeIdCount > 0) {
+      newNode.id = freeIds[--freeIdCount];
+      nodesById.set(newNode.id, newNode);
+    } else {
+      newNode.id = nodesById.size();
+      nodesById.add(newNode);
+    }
+    this.version++;
     return true;
   }
 
+  /**
+   * Insert many new nodes into the graph at once. Unlike insertNode, this does
+   * not skip data that is already in the graph: every data item must be new
+   * and appear only once.
+   *
+   * @param data the data items to store in the new nodes
+   * @return the id given to each new node, in the order of data
+   * @throws IllegalArgumentException if a data item is already in the graph
+   *                                  or appears twice
+   * @throws NullPointerException     if a data item is null
+   */
+  public int[] insertNodes(List<NodeType> data) {
+    materialize();
+    // check every item before inserting any, so that a failed call changes nothing
+    OpenAddressingMap<NodeType, Boolean> seen = new OpenAddressingMap<>(data.size());
+    for (NodeType item : data) {
+      if (nodes.containsKey(item) || seen.containsKey(item)) // throws NPE when item's null
+        throw new IllegalArgumentException(item + " is already in the graph or appears twice");
+      seen.put(item, true);
+    }
+    int[] ids = new int[data.size()];
+    for (int i = 0; i < ids.length; i++) {
+      Node newNode = new Node(data.get(i));
+      nodes.put(newNode.data, newNode);
+      if (freeIdCount > 0) {
+        newNode.id = freeIds[--freeIdCount];
+        nodesById.set(newNode.id, newNode);
+      } else {
+        newNode.id = nodesById.size();
+        nodesById.add(newNode);
+      }
+      ids[i] = newNode.id;
+    }
+    this.version++;
+    return ids;
+  }
+
   /**
    * Remove a node from the graph.
    * And also remove all edges adjacent to that node.
@@ -75,16 +205,32 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
    * @throws NullPointerException if data is null
    */
   public boolean removeNode(NodeType data) {
+    materialize();
     // remove this node from nodes collection
     if (!nodes.containsKey(data))
       return false; // throws NPE when data==null
     Node oldNode = nodes.remove(data);
+    // free its id for the next inserted node, leaving every other id as it was
+    nodesById.set(oldNode.id, null);
+    if (freeIdCount == freeIds.length)
+      freeIds = Arrays.copyOf(freeIds, Math.max(4, freeIdCount * 2));
+    freeIds[freeIdCount++] = oldNode.id;
     // remove all edges entering neighboring nodes from this one
+    int removedEdges = oldNode.edgesLeaving.size();
     for (Edge edge : oldNode.edgesLeaving)
-      edge.successor.edgesEntering.remove(edge);
-    // remove all edges leaving neighboring nodes toward this one
-    for (Edge edge : oldNode.edgesEntering)
-      edge.predecessor.edgesLeaving.remove(edge);
+      if (edge.successor != oldNode)
+        edge.successor.removeEdgeEntering(edge);
+    // remove all edges leaving neighboring nodes toward this one, where an
+    // edge from this node to itself was already counted above
+    for (Edge edge : oldNode.edgesEntering) {
+      if (edge.predecessor != oldNode) {
+        edge.predecessor.removeEdgeLeaving(edge);
+        removedEdges++;
+      }
+    }
+    this.edgeCount -= removedEdges;
+    this.version++;
+    this.shorteningVersion++;
     return true;
   }
 
@@ -96,6 +242,8 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
    *         false otherwise
    */
   public boolean containsNode(NodeType data) {
+    if (loaded != null)
+      return loaded.getId(data) != -1;
     return nodes.containsKey(data);
   }
 
@@ -105,9 +253,67 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
    * @return the number of nodes in the graph
    */
   public int getNodeCount() {
+    if (loaded != null)
+      return loadedNodeCount;
     return nodes.getSize();
   }
 
+  /**
+   * Return the id of the node containing the provided data. Every node is
+   * given the smallest unused id when it is inserted, and keeps that id until
+   * it is removed, after which the id may be given to a later node. Ids are
+   * also the ids of the nodes in this graph's snapshots.
+   *
+   * @param data the data item stored in the node
+   * @return the id of that node, or -1 when no such node exists
+   */
+  public int getId(NodeType data) {
+    if (loaded != null)
+      return loaded.getId(data);
+    if (data == null || !nodes.containsKey(data))
+      return -1;
+    return nodes.get(data).id;
+  }
+
+  /**
+   * Return the data stored in the node with the provided id.
+   *
+   * @param id the id of the node
+   * @return the data item stored in that node
+   * @throws NoSuchElementException if no node has this id
+   */
+  public NodeType getData(int id) {
+    if (loaded != null) {
+      // a bad id must not make a read build every Node and Edge object
+      if (!loaded.containsId(id))
+        throw new NoSuchElementException("No node with id " + id);
+      return loaded.getData(id);
+    }
+    return nodeById(id).data;
+  }
+
+  /**
+   * Return one more than the largest id that any node has had since the
+   * graph was created. Every node id is below this bound, but ids freed by
+   * removed nodes and not yet reused are below it too.
+   *
+   * @return the bound on node ids
+   */
+  public int getIdBound() {
+    if (loaded != null)
+      return loaded.getNodeCount();
+    return nodesById.size();
+  }
+
+  // the node with the provided id, throwing NSE when there is none
+  protected Node nodeById(int id) {
+    materialize();
+    Node node = id >= 0 && id < nodesById.size() ? nodesById.get(id) : null;
+    if (node == null)
+      throw new NoSuchElementException("No node with id " + id);
+    return node;
+  }
+
   /**
    * Insert a new directed edge with positive edges weight into the graph.
    * Or if an edge between pred and succ already exists, update the data
@@ -120,26 +326,97 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
    *         false if the pred or succ data are not found in any graph nodes
    */
   public boolean insertEdge(NodeType pred, NodeType succ, EdgeType weight) {
+    materialize();
     // find nodes associated with node data, and return false when not found
-    Node predNode = nodes.get(pred);
-    Node succNode = nodes.get(succ);
+    Node predNode = nodes.getOrDefault(pred, null);
+    Node succNode = nodes.getOrDefault(succ, null);
     if (predNode == null || succNode == null)
       return false;
-    try {
+    return insertEdgeHelper(predNode, succNode, weight);
+  }
+
+  /**
+   * Insert a new directed edge with positive edges weight into the graph, or
+   * update the weight of the edge between those nodes, as insertEdge does.
+   *
+   * @param pred   the id of the new edge's predecessor node
+   * @param succ   the id of the new edge's successor node
+   * @param weight is the non-negative data item stored in the new edge
+   * @return true if the edge could be inserted or updated, or
+   *         false if pred or succ are not the ids of any graph nodes
+   */
+  public boolean insertEdgeById(int pred, int succ, EdgeType weight) {
+    materialize();
+    if (!containsId(pred) || !containsId(succ))
+      return false;
+    return insertEdgeHelper(nodesById.get(pred), nodesById.get(succ), weight);
+  }
+
+  protected boolean insertEdgeHelper(Node predNode, Node succNode, EdgeType weight) {
+    Edge existingEdge = predNode.findEdgeTo(succNode);
+    if (existingEdge != null) {
       // when an edge alread exists within the graph, update its weight
-      Edge existingEdge = getEdgeHelper(pred, succ);
+      if (weight.doubleValue() < existingEdge.data.doubleValue())
+        this.shorteningVersion++;
       existingEdge.data = weight;
-    } catch (NoSuchElementException e) {
+    } else {
       // otherwise create a new edges
       Edge newEdge = new Edge(weight, predNode, succNode);
       this.edgeCount++;
+      this.shorteningVersion++;
       // and insert it into each of its adjacent nodes' respective lists
-      predNode.edgesLeaving.add(newEdge);
-      succNode.edgesEntering.add(newEdge);
+      predNode.addEdgeLeaving(newEdge);
+      succNode.addEdgeEntering(newEdge);
     }
+    this.version++;
     return true;
   }
 
+  /**
+   * Insert many new directed edges into the graph at once, in one pass that
+   * sizes each node's edge lists up front. Unlike insertEdge, this does not
+   * look for an existing edge to update: no two of the new edges, nor a new
+   * edge and an edge already in the graph, may join the same pair of nodes in
+   * the same direction.
+   *
+   * @param preds   the id of each new edge's predecessor node
+   * @param succs   the id of each new edge's successor node
+   * @param weights the non-negative data item stored in each new edge
+   * @throws IllegalArgumentException if the arrays differ in length or hold
+   *                                  an id that is not a node's
+   */
+  public void insertEdgesById(int[] preds, int[] succs, List<EdgeType> weights) {
+    materialize();
+    if (preds.length != succs.length || preds.length != weights.size())
+      throw new IllegalArgumentException("every edge needs a predecessor, successor and weight");
+    int idBound = nodesById.size();
+    int[] leaving = new int[idBound];
+    int[] entering = new int[idBound];
+    for (int i = 0; i < preds.length; i++) {
+      if (!containsId(preds[i]) || !containsId(succs[i]))
+        throw new IllegalArgumentException("No node with id " + preds[i] + " or " + succs[i]);
+      leaving[preds[i]]++;
+      entering[succs[i]]++;
+    }
+    for (int id = 0; id < idBound; id++) {
+      Node node = nodesById.get(id);
+      if (node == null)
+        continue;
+      node.edgesLeaving.ensureCapacity(node.edgesLeaving.size() + leaving[id]);
+      node.edgesEntering.ensureCapacity(node.edgesEntering.size() + entering[id]);
+    }
+    for (int i = 0; i < preds.length; i++) {
+      Node predNode = nodesById.get(preds[i]);
+      Node succNode = nodesById.get(succs[i]);
+      Edge newEdge = new Edge(weights.get(i), predNode, succNode);
+      predNode.addEdgeLeaving(newEdge);
+      succNode.addEdgeEntering(newEdge);
+    }
+    this.edgeCount += preds.length;
+    this.version++;
+    this.shorteningVersion++;
+  }
+
   /**
    * Remove an edge from the graph.
    *
@@ -149,19 +426,41 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
    *         false if such an edge is not found in the graph
    */
   public boolean removeEdge(NodeType pred, NodeType succ) {
-    try {
-      // when an edge exists
-      Edge oldEdge = getEdgeHelper(pred, succ);
-      // remove it from the edge lists of each adjacent node
-      oldEdge.predecessor.edgesLeaving.remove(oldEdge);
-      oldEdge.successor.edgesEntering.remove(oldEdge);
-      // and decrement the edge count before removing
-      this.edgeCount--;
-      return true;
-    } catch (NoSuchElementException e) {
-      // when no such edge exists, return false instead
+    materialize();
+    Node predNode = nodes.getOrDefault(pred, null);
+    Node succNode = nodes.getOrDefault(succ, null);
+    if (predNode == null || succNode == null)
       return false;
-    }
+    return removeEdgeHelper(predNode, succNode);
+  }
+
+  /**
+   * Remove an edge from the graph.
+   *
+   * @param pred the id of the source node for the edge
+   * @param succ the id of the target node for the edge
+   * @return true if the edge could be removed, or
+   *         false if such an edge is not found in the graph
+   */
+  public boolean removeEdgeById(int pred, int succ) {
+    materialize();
+    if (!containsId(pred) || !containsId(succ))
+      return false;
+    return removeEdgeHelper(nodesById.get(pred), nodesById.get(succ));
+  }
+
+  protected boolean removeEdgeHelper(Node predNode, Node succNode) {
+    Edge oldEdge = predNode.findEdgeTo(succNode);
+    // when no such edge exists, return false
+    if (oldEdge == null)
+      return false;
+    // otherwise remove it from the edge lists of each adjacent node
+    predNode.removeEdgeLeaving(oldEdge);
+    succNode.removeEdgeEntering(oldEdge);
+    // and decrement the edge count before removing
+    this.edgeCount--;
+    this.version++;
+    return true;
   }
 
   /**
@@ -172,12 +471,38 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
    * @return true if the edge is found in the graph, or false other
    */
   public boolean containsEdge(NodeType pred, NodeType succ) {
-    try {
-      getEdgeHelper(pred, succ);
-      return true;
-    } catch (NoSuchElementException e) {
+    if (loaded != null)
+      return containsEdgeById(loaded.getId(pred), loaded.getId(succ));
+    Node predNode = nodes.getOrDefault(pred, null);
+    Node succNode = nodes.getOrDefault(succ, null);
+    return predNode != null && succNode != null && predNode.findEdgeTo(succNode) != null;
+  }
+
+  /**
+   * Check if edge is in the graph.
+   *
+   * @param pred the id of the source node for the edge
+   * @param succ the id of the target node for the edge
+   * @return true if the edge is found in the graph, or false other
+   */
+  public boolean containsEdgeById(int pred, int succ) {
+    if (!containsId(pred) || !containsId(succ))
       return false;
-    }
+    if (loaded != null)
+      return loaded.findEdge(pred, succ) != -1;
+    return nodesById.get(pred).findEdgeTo(nodesById.get(succ)) != null;
+  }
+
+  /**
+   * Check whether the graph contains a node with the provided id.
+   *
+   * @param id the id to check for
+   * @return true if a node within the graph has this id, or false otherwise
+   */
+  public boolean containsId(int id) {
+    if (loaded != null)
+      return loaded.containsId(id);
+    return id >= 0 && id < nodesById.size() && nodesById.get(id) != null;
   }
 
   /**
@@ -190,19 +515,60 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
    *                                are not found within this graph
    */
   public EdgeType getEdge(NodeType pred, NodeType succ) {
+    if (loaded != null)
+      return getLoadedEdge(loaded.getId(pred), loaded.getId(succ), pred, succ);
     return getEdgeHelper(pred, succ).data;
   }
 
+  /**
+   * Return the data associated with a specific edge.
+   *
+   * @param pred the id of the source node for the edge
+   * @param succ the id of the target node for the edge
+   * @return the non-negative data from the edge between those nodes
+   * @throws NoSuchElementException if either node or the edge between them
+   *                                are not found within this graph
+   */
+  public EdgeType getEdgeById(int pred, int succ) {
+    if (loaded != null) {
+      for (int id : new int[] {pred, succ})
+        if (!loaded.containsId(id))
+          throw new NoSuchElementException("No node with id " + id);
+      return getLoadedEdge(pred, succ, loaded.getData(pred), loaded.getData(succ));
+    }
+    return getEdgeHelper(nodeById(pred), nodeById(succ)).data;
+  }
+
+  // the weight of an edge of the snapshot this graph was loaded from, read
+  // without creating any Node or Edge objects
+  @SuppressWarnings("unchecked")
+  protected EdgeType getLoadedEdge(int pred, int succ, NodeType predData, NodeType succData) {
+    int edge = pred == -1 || succ == -1 ? -1 : loaded.findEdge(pred, succ);
+    // when no such edge can be found, throw NSE
+    if (edge == -1)
+      throw new NoSuchElementException("No edge from " + predData + " to " + succData);
+    return (EdgeType) (Number) loaded.getWeight(edge);
+  }
+
   protected Edge getEdgeHelper(NodeType pred, NodeType succ) {
+    materialize();
     Node predNode = nodes.get(pred);
-    // search for edge through the predecessor's list of leaving edges
-    for (Edge edge : predNode.edgesLeaving)
-      // compare succ to the data in each leaving edge's successor
-      if (edge.successor.data.equals(succ))
-        return edge;
+    Node succNode = nodes.getOrDefault(succ, null);
+    Edge edge = succNode == null ? null : predNode.findEdgeTo(succNode);
+    // when no such edge can be found, throw NSE
+    if (edge == null)
+      throw new NoSuchElementException("No edge from " + pred.toString() + " to " +
+          succ.toString());
+    return edge;
+  }
+
+  protected Edge getEdgeHelper(Node predNode, Node succNode) {
+    Edge edge = predNode.findEdgeTo(succNode);
     // when no such edge can be found, throw NSE
-    throw new NoSuchElementException("No edge from " + pred.toString() + " to " +
-        succ.toString());
+    if (edge == null)
+      throw new NoSuchElementException("No edge from " + predNode.data.toString() + " to " +
+          succNode.data.toString());
+    return edge;
   }
 
   /**
@@ -214,4 +580,145 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
     return this.edgeCount;
   }
 
+  /**
+   * Return the version of this graph, which changes with every mutation.
+   *
+   * @return the number of mutations made to this graph
+   */
+  public int getVersion() {
+    return this.version;
+  }
+
+  /**
+   * Return the version of this graph that only changes with mutations that can make a shortest
+   * path cheaper or free a node id for reuse. Lower bounds on path costs computed
+   * over a snapshot stay valid for later snapshots until this version changes.
+   *
+   * @return the number of mutations that could shorten paths or free node ids
+   */
+  public int getShorteningVersion() {
+    return this.shorteningVersion;
+  }
+
+  /**
+   * Makes this empty graph hold the nodes and edges of a snapshot, keeping
+   * their ids. Until the graph is first changed, it answers queries from the
+   * snapshot itself and has no Node or Edge objects, so that a snapshot
+   * mapped from a file is ready as soon as it is mapped. The snapshot's
+   * weights are read back as Doubles, so EdgeType must be Double.
+   *
+   * @param loaded the snapshot to hold the contents of
+   * @throws IllegalStateException if this graph already has nodes
+   */
+  protected void serveFrom(CompactGraph<NodeType> loaded) {
+    if (!nodesById.isEmpty() || this.loaded != null)
+      throw new IllegalStateException("only an empty graph can be loaded from a snapshot");
+    int nodeCount = 0;
+    for (int id = 0; id < loaded.getNodeCount(); id++)
+      if (loaded.containsId(id))
+        nodeCount++;
+    this.loaded = loaded;
+    this.loadedNodeCount = nodeCount;
+    this.snapshot = loaded;
+    this.version = loaded.getVersion();
+    this.edgeCount = loaded.getEdgeCount();
+  }
+
+  /**
+   * Discards every node and edge of this graph, and then serves it from an
+   * earlier snapshot of itself as serveFrom does, so that changes made since
+   * that snapshot are undone. The graph keeps its map and every other
+   * setting, and its version goes back to the snapshot's. The weights are
+   * read back as Doubles, so EdgeType must be Double.
+   *
+   * @param earlier a snapshot this graph returned before the changes to undo
+   */
+  protected void revertTo(CompactGraph<NodeType> earlier) {
+    nodes.clear();
+    nodesById.clear();
+    freeIdCount = 0;
+    loaded = null;
+    snapshot = null;
+    serveFrom(earlier);
+    // bounds computed while the discarded changes were in place may not hold
+    shorteningVersion++;
+  }
+
+  // creates the Node and Edge objects of the snapshot this graph was loaded
+  // from, so that it can be changed; its version and snapshot stay the same
+  @SuppressWarnings("unchecked")
+  protected void materialize() {
+    if (loaded == null)
+      return;
+    CompactGraph<NodeType> source = loaded;
+    loaded = null;
+    int idBound = source.getNodeCount();
+    for (int id = 0; id < idBound; id++) {
+      Node node = null;
+      if (source.containsId(id)) {
+        node = new Node(source.getData(id));
+        node.id = id;
+        nodes.put(node.data, node);
+      }
+      nodesById.add(node);
+    }
+    // free ids are handed out from the end of the stack, lowest id first
+    for (int id = idBound - 1; id >= 0; id--) {
+      if (nodesById.get(id) != null)
+        continue;
+      if (freeIdCount == freeIds.length)
+        freeIds = Arrays.copyOf(freeIds, Math.max(4, freeIdCount * 2));
+      freeIds[freeIdCount++] = id;
+    }
+    for (int id = 0; id < idBound; id++) {
+      Node pred = nodesById.get(id);
+      for (int e = source.getEdgeStart(id); e < source.getEdgeEnd(id); e++) {
+        Node succ = nodesById.get(source.getTarget(e));
+        Edge edge = new Edge((EdgeType) (Number) source.getWeight(e), pred, succ);
+        pred.addEdgeLeaving(edge);
+        succ.addEdgeEntering(edge);
+      }
+    }
+  }
+
+  /**
+   * Return a compact, immutable snapshot of this graph's current nodes and
+   * edges. The snapshot is compiled on demand and reused until the next
+   * mutation of this graph. Several threads may call this at once, as long as
+   * none of them changes the graph meanwhile.
+   *
+   * @return a CompactGraph holding the current contents of this graph
+   */
+  public CompactGraph<NodeType> snapshot() {
+    CompactGraph<NodeType> current = snapshot;
+    if (current != null && current.getVersion() == version)
+      return current;
+    int nodeCount = nodesById.size();
+    List<NodeType> data = new ArrayList<>(nodeCount);
+    // count the edges leaving each node to find where its row starts; the
+    // ids of removed nodes get empty rows
+    int[] offsets = new int[nodeCount + 1];
+    for (int i = 0; i < nodeCount; i++) {
+      Node node = nodesById.get(i);
+      data.add(node == null ? null : node.data);
+      offsets[i + 1] = offsets[i] + (node == null ? 0 : node.edgesLeaving.size());
+    }
+    // then copy each row's successors and weights into place
+    int[] targets = new int[offsets[nodeCount]];
+    double[] weights = new double[offsets[nodeCount]];
+    for (int i = 0; i < nodeCount; i++) {
+      if (nodesById.get(i) == null)
+        continue;
+      int next = offsets[i];
+      for (Edge edge : nodesById.get(i).edgesLeaving) {
+        targets[next] = edge.successor.id;
+        weights[next] = edge.data.doubleValue();
+        next++;
+      }
+    }
+    current = new CompactGraph<>(data, offsets, targets, weights, version);
+    snapshot = current;
+    return current;
+  }
+
 }
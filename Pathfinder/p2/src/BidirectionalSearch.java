@@ -0,0 +1,256 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs a bidirectional version of Dijkstra's algorithm over a CompactGraph.
+ * One search grows forward from the start node along the edges leaving each
+ * node, while another grows backward from the end node along the edges
+ * entering each node. The searches take turns settling the node at the top of
+ * the smaller of their two queues, and every relaxation that reaches a node
+ * already reached by the other search is a candidate for the shortest path.
+ * Once the sum of the two queues' lowest costs is no less than the best
+ * candidate found, no better path can exist and the search stops. On graphs
+ * like road or campus maps, this settles far fewer nodes than a search that
+ * only grows from the start node. As in CompactSearch, the work arrays are
+ * stamped with the generation of the search that last reached or settled
+ * each node, so starting a new search does not clear them.
+ *
+ * @param <NodeType> the data type stored at each node of the graph
+ */
+public class BidirectionalSearch<NodeType> {
+
+  protected final CompactGraph<NodeType> graph;
+
+  // forward search: costs from the source, and the edge leading into each node
+  protected final double[] forwardDist;
+  protected final int[] forwardPred;
+  protected final int[] forwardEdge;
+  // generation of the last search that reached or settled each node forward
+  protected final int[] forwardReached;
+  protected final int[] forwardSettled;
+  protected final IndexedMinHeap forwardQueue;
+
+  // backward search: costs to the target, and the reverse edge leaving each node
+  protected final double[] backwardDist;
+  protected final int[] backwardSucc;
+  protected final int[] backwardEdge;
+  // generation of the last search that reached or settled each node backward
+  protected final int[] backwardReached;
+  protected final int[] backwardSettled;
+  protected final IndexedMinHeap backwardQueue;
+
+  protected int generation = 0;
+
+  protected int meetingNode = -1; // node on the best path found, or -1
+  protected double bestCost = Double.POSITIVE_INFINITY;
+  protected int settledCount = 0;
+
+  /**
+   * Constructor that allocates the work arrays for searching a graph.
+   *
+   * @param graph the snapshot that this object searches
+   */
+  public BidirectionalSearch(CompactGraph<NodeType> graph) {
+    this.graph = graph;
+    int nodeCount = graph.getNodeCount();
+    forwardDist = new double[nodeCount];
+    forwardPred = new int[nodeCount];
+    forwardEdge = new int[nodeCount];
+    forwardReached = new int[nodeCount];
+    forwardSettled = new int[nodeCount];
+    forwardQueue = new IndexedMinHeap(nodeCount);
+    backwardDist = new double[nodeCount];
+    backwardSucc = new int[nodeCount];
+    backwardEdge = new int[nodeCount];
+    backwardReached = new int[nodeCount];
+    backwardSettled = new int[nodeCount];
+    backwardQueue = new IndexedMinHeap(nodeCount);
+  }
+
+  /**
+   * Return the snapshot that this object searches.
+   *
+   * @return the snapshot that this object searches
+   */
+  public CompactGraph<NodeType> getGraph() {
+    return graph;
+  }
+
+  /**
+   * Compute the shortest path from the source node to the target node.
+   *
+   * @param source the id of the starting node
+   * @param target the id of the destination node
+   * @return true if a path from source to target was found
+   */
+  public boolean search(int source, int target) {
+    nextGeneration();
+    forwardQueue.clear();
+    backwardQueue.clear();
+    settledCount = 0;
+
+    forwardDist[source] = 0;
+    forwardPred[source] = -1;
+    forwardReached[source] = generation;
+    forwardQueue.insertOrDecrease(source, 0);
+    backwardDist[target] = 0;
+    backwardSucc[target] = -1;
+    backwardReached[target] = generation;
+    backwardQueue.insertOrDecrease(target, 0);
+    meetingNode = source == target ? source : -1;
+    bestCost = source == target ? 0 : Double.POSITIVE_INFINITY;
+
+    while (!forwardQueue.isEmpty() && !backwardQueue.isEmpty()) {
+      double forwardMin = forwardQueue.getPriority(forwardQueue.peek());
+      double backwardMin = backwardQueue.getPriority(backwardQueue.peek());
+      // no path through an unsettled node can beat the best one found
+      if (forwardMin + backwardMin >= bestCost)
+        break;
+      if (forwardQueue.size() <= backwardQueue.size())
+        expandForward();
+      else
+        expandBackward();
+    }
+    return meetingNode != -1;
+  }
+
+  // starts a new generation, so that every node counts as unreached
+  protected void nextGeneration() {
+    if (generation == Integer.MAX_VALUE) {
+      // only once every two billion searches do the stamps need clearing
+      Arrays.fill(forwardReached, 0);
+      Arrays.fill(forwardSettled, 0);
+      Arrays.fill(backwardReached, 0);
+      Arrays.fill(backwardSettled, 0);
+      generation = 0;
+    }
+    generation++;
+  }
+
+  // the cost of the best path found from the source to a node
+  protected double forwardCost(int node) {
+    return forwardReached[node] == generation ? forwardDist[node] : Double.POSITIVE_INFINITY;
+  }
+
+  // the cost of the best path found from a node to the target
+  protected double backwardCost(int node) {
+    return backwardReached[node] == generation ? backwardDist[node] : Double.POSITIVE_INFINITY;
+  }
+
+  // settles the top node of the forward queue and relaxes its leaving edges
+  protected void expandForward() {
+    int u = forwardQueue.poll();
+    forwardSettled[u] = generation;
+    settledCount++;
+    for (int e = graph.getEdgeStart(u); e < graph.getEdgeEnd(u); e++) {
+      int v = graph.getTarget(e);
+      double cost = forwardDist[u] + graph.getWeight(e);
+      if (forwardSettled[v] != generation && cost < forwardCost(v)) {
+        forwardDist[v] = cost;
+        forwardReached[v] = generation;
+        forwardPred[v] = u;
+        forwardEdge[v] = e;
+        forwardQueue.insertOrDecrease(v, cost);
+        if (cost + backwardCost(v) < bestCost) {
+          bestCost = cost + backwardCost(v);
+          meetingNode = v;
+        }
+      }
+    }
+  }
+
+  // settles the top node of the backward queue and relaxes its entering edges
+  protected void expandBackward() {
+    int v = backwardQueue.poll();
+    backwardSettled[v] = generation;
+    settledCount++;
+    for (int r = graph.getReverseEdgeStart(v); r < graph.getReverseEdgeEnd(v); r++) {
+      int u = graph.getSource(r);
+      double cost = backwardDist[v] + graph.getReverseWeight(r);
+      if (backwardSettled[u] != generation && cost < backwardCost(u)) {
+        backwardDist[u] = cost;
+        backwardReached[u] = generation;
+        backwardSucc[u] = v;
+        backwardEdge[u] = r;
+        backwardQueue.insertOrDecrease(u, cost);
+        if (cost + forwardCost(u) < bestCost) {
+          bestCost = cost + forwardCost(u);
+          meetingNode = u;
+        }
+      }
+    }
+  }
+
+  /**
+   * Return the number of nodes settled by both halves of the last search.
+   *
+   * @return the number of nodes settled by the last search
+   */
+  public int getSettledCount() {
+    return settledCount;
+  }
+
+  /**
+   * Return the cost of the shortest path found by the last search.
+   *
+   * @return the cost of that path, or infinity when no path was found
+   */
+  public double getCost() {
+    return bestCost;
+  }
+
+  /**
+   * Return the ids of the nodes along the shortest path found by the last
+   * search, by splicing the forward path to the meeting node onto the
+   * backward path from it.
+   *
+   * @return the ids along that path, from source to target
+   */
+  public int[] getPath() {
+    int length = 0;
+    for (int v = meetingNode; v != -1; v = forwardPred[v])
+      length++;
+    int meetingIndex = length - 1;
+    for (int v = backwardSucc[meetingNode]; v != -1; v = backwardSucc[v])
+      length++;
+    int[] path = new int[length];
+    int index = meetingIndex;
+    for (int v = meetingNode; v != -1; v = forwardPred[v])
+      path[index--] = v;
+    index = meetingIndex + 1;
+    for (int v = backwardSucc[meetingNode]; v != -1; v = backwardSucc[v])
+      path[index++] = v;
+    return path;
+  }
+
+  /**
+   * Return the shortest path found by the last search, along with the weight
+   * of each edge on that path and its total cost. The total is summed from
+   * the start of the path, the same order a forward search adds it in.
+   *
+   * @return the nodes, edge weights, and total cost of that path
+   */
+  public ShortestPathResult<NodeType> getPathResult() {
+    int[] ids = getPath();
+    int meetingIndex = 0;
+    while (ids[meetingIndex] != meetingNode)
+      meetingIndex++;
+    List<NodeType> path = new ArrayList<>(ids.length);
+    List<Double> segmentCosts = new ArrayList<>(ids.length);
+    double totalCost = 0;
+    for (int i = 0; i < ids.length; i++) {
+      path.add(graph.getData(ids[i]));
+      if (i == 0)
+        continue;
+      // nodes up to the meeting node were reached forward, later ones backward
+      double weight = i <= meetingIndex
+          ? graph.getWeight(forwardEdge[ids[i]])
+          : graph.getReverseWeight(backwardEdge[ids[i - 1]]);
+      segmentCosts.add(weight);
+      totalCost += weight;
+    }
+    return new ShortestPathResult<>(path, segmentCosts, totalCost);
+  }
+
+}
@@ -0,0 +1,312 @@
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.List;
+
+/**
+ * An immutable, compressed sparse row (CSR) snapshot of a directed graph with
+ * non-negative edge weights. Each node is identified by the same dense int id
+ * it has in the graph, from 0 to getNodeCount() - 1; the ids of removed nodes
+ * that no node has reused yet have null data and no edges. The edges leaving
+ * node v occupy the edge indexes
+ * getEdgeStart(v) through getEdgeEnd(v) - 1, and each edge index maps to a
+ * target id and a primitive weight. The same edges are also stored grouped by
+ * their target, so that searches can walk the graph backwards.
+ *
+ * The rows are held in int and double buffers, which either wrap arrays on
+ * the heap or map a file written by GraphFile, so that a large graph can be
+ * searched without reading it into the heap.
+ *
+ * @param <NodeType> the data type stored at each node of the graph
+ */
+public class CompactGraph<NodeType> {
+
+  // node data by id, and ids by node data
+  protected final List<NodeType> data;
+  protected final MapADT<NodeType, Integer> ids;
+
+  // edges leaving each node: row v spans offsets[v] to offsets[v + 1] - 1
+  protected final IntBuffer offsets;
+  protected final IntBuffer targets;
+  protected final DoubleBuffer weights;
+
+  // edges entering each node, laid out the same way
+  protected final IntBuffer reverseOffsets;
+  protected final IntBuffer sources;
+  protected final DoubleBuffer reverseWeights;
+
+  // version of the graph this snapshot was compiled from
+  protected final int version;
+
+  /**
+   * Constructor that wraps the provided forward rows and derives the reverse
+   * rows from them.
+   *
+   * @param data    the node data for each id, in id order
+   * @param offsets the start of each node's row, followed by the edge count
+   * @param targets the target id of each edge
+   * @param weights the weight of each edge
+   * @param version the version of the graph these rows were compiled from
+   */
+  public CompactGraph(List<NodeType> data, int[] offsets, int[] targets, double[] weights,
+      int version) {
+    this.data = data;
+    this.offsets = IntBuffer.wrap(offsets);
+    this.targets = IntBuffer.wrap(targets);
+    this.weights = DoubleBuffer.wrap(weights);
+    this.version = version;
+    this.ids = indexIds(data);
+
+    // count the edges entering each node, then place each edge in its row
+    int nodeCount = data.size();
+    int[] reverseOffsets = new int[nodeCount + 1];
+    for (int e = 0; e < targets.length; e++)
+      reverseOffsets[targets[e] + 1]++;
+    for (int v = 0; v < nodeCount; v++)
+      reverseOffsets[v + 1] += reverseOffsets[v];
+    int[] sources = new int[targets.length];
+    double[] reverseWeights = new double[targets.length];
+    int[] next = new int[nodeCount];
+    for (int v = 0; v < nodeCount; v++) {
+      for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+        int slot = reverseOffsets[targets[e]] + next[targets[e]]++;
+        sources[slot] = v;
+        reverseWeights[slot] = weights[e];
+      }
+    }
+    this.reverseOffsets = IntBuffer.wrap(reverseOffsets);
+    this.sources = IntBuffer.wrap(sources);
+    this.reverseWeights = DoubleBuffer.wrap(reverseWeights);
+  }
+
+  /**
+   * Constructor that wraps both the forward and the reverse rows, which must
+   * hold the same edges.
+   *
+   * @param data           the node data for each id, in id order
+   * @param offsets        the start of each node's row, followed by the edge count
+   * @param targets        the target id of each edge
+   * @param weights        the weight of each edge
+   * @param reverseOffsets the start of each node's reverse row, followed by the edge count
+   * @param sources        the source id of each reverse edge
+   * @param reverseWeights the weight of each reverse edge
+   * @param version        the version of the graph these rows were compiled from
+   */
+  public CompactGraph(List<NodeType> data, IntBuffer offsets, IntBuffer targets,
+      DoubleBuffer weights, IntBuffer reverseOffsets, IntBuffer sources,
+      DoubleBuffer reverseWeights, int version) {
+    this.data = data;
+    this.offsets = offsets;
+    this.targets = targets;
+    this.weights = weights;
+    this.reverseOffsets = reverseOffsets;
+    this.sources = sources;
+    this.reverseWeights = reverseWeights;
+    this.version = version;
+    this.ids = indexIds(data);
+  }
+
+  // maps the data of every node to its id
+  private static <NodeType> MapADT<NodeType, Integer> indexIds(List<NodeType> data) {
+    MapADT<NodeType, Integer> ids = new OpenAddressingMap<>(data.size());
+    for (int i = 0; i < data.size(); i++)
+      if (data.get(i) != null)
+        ids.put(data.get(i), i);
+    return ids;
+  }
+
+  /**
+   * Return the number of node ids in this snapshot, which includes the ids of
+   * removed nodes that have not been reused.
+   *
+   * @return one more than the largest node id in this snapshot
+   */
+  public int getNodeCount() {
+    return data.size();
+  }
+
+  /**
+   * Return the number of edges in this snapshot.
+   *
+   * @return the number of edges in this snapshot
+   */
+  public int getEdgeCount() {
+    return targets.limit();
+  }
+
+  /**
+   * Return the version of the graph that this snapshot was compiled from.
+   *
+   * @return the graph version at the time this snapshot was compiled
+   */
+  public int getVersion() {
+    return version;
+  }
+
+  /**
+   * Return the id of the node containing the provided data.
+   *
+   * @param node the data item stored in the node
+   * @return the id of that node, or -1 when no such node exists
+   */
+  public int getId(NodeType node) {
+    if (node == null)
+      return -1;
+    return ids.getOrDefault(node, -1);
+  }
+
+  /**
+   * Check whether a node has the provided id in this snapshot.
+   *
+   * @param id the id to check
+   * @return true if a node has this id, or false if the id is out of range
+   *         or belonged to a removed node
+   */
+  public boolean containsId(int id) {
+    return id >= 0 && id < data.size() && data.get(id) != null;
+  }
+
+  /**
+   * Return the data stored in the node with the provided id.
+   *
+   * @param id the id of the node
+   * @return the data item stored in that node, or null for the id of a
+   *         removed node
+   */
+  public NodeType getData(int id) {
+    return data.get(id);
+  }
+
+  /**
+   * Return the index of the first edge leaving a node.
+   *
+   * @param id the id of the node
+   * @return the first edge index of that node's row
+   */
+  public int getEdgeStart(int id) {
+    return offsets.get(id);
+  }
+
+  /**
+   * Return one past the index of the last edge leaving a node.
+   *
+   * @param id the id of the node
+   * @return the end (exclusive) of that node's row
+   */
+  public int getEdgeEnd(int id) {
+    return offsets.get(id + 1);
+  }
+
+  /**
+   * Return the id of the node that an edge leads to.
+   *
+   * @param edge the index of the edge
+   * @return the id of the edge's successor node
+   */
+  public int getTarget(int edge) {
+    return targets.get(edge);
+  }
+
+  /**
+   * Return the weight of an edge.
+   *
+   * @param edge the index of the edge
+   * @return the non-negative weight of that edge
+   */
+  public double getWeight(int edge) {
+    return weights.get(edge);
+  }
+
+  /**
+   * Return the index of the first edge entering a node.
+   *
+   * @param id the id of the node
+   * @return the first reverse edge index of that node's row
+   */
+  public int getReverseEdgeStart(int id) {
+    return reverseOffsets.get(id);
+  }
+
+  /**
+   * Return one past the index of the last edge entering a node.
+   *
+   * @param id the id of the node
+   * @return the end (exclusive) of that node's reverse row
+   */
+  public int getReverseEdgeEnd(int id) {
+    return reverseOffsets.get(id + 1);
+  }
+
+  /**
+   * Return the id of the node that a reverse edge comes from.
+   *
+   * @param reverseEdge the index of the reverse edge
+   * @return the id of the edge's predecessor node
+   */
+  public int getSource(int reverseEdge) {
+    return sources.get(reverseEdge);
+  }
+
+  /**
+   * Return the weight of a reverse edge.
+   *
+   * @param reverseEdge the index of the reverse edge
+   * @return the non-negative weight of that edge
+   */
+  public double getReverseWeight(int reverseEdge) {
+    return reverseWeights.get(reverseEdge);
+  }
+
+  /**
+   * Find the edge leading from one node to another.
+   *
+   * @param pred the id of the edge's predecessor node
+   * @param succ the id of the edge's successor node
+   * @return the index of that edge, or -1 when there is no such edge
+   */
+  public int findEdge(int pred, int succ) {
+    for (int e = offsets.get(pred); e < offsets.get(pred + 1); e++)
+      if (targets.get(e) == succ)
+        return e;
+    return -1;
+  }
+
+  /**
+   * Return a hash of the node count and of every edge of this snapshot, with
+   * its endpoints' ids and its weight, so that data computed from one
+   * snapshot can be checked against another. Snapshots with the same edges
+   * have the same fingerprint, whatever order their rows list the edges in.
+   *
+   * @return the fingerprint of this snapshot's edges
+   */
+  public long getFingerprint() {
+    int nodeCount = data.size();
+    long fingerprint = mix(nodeCount);
+    for (int v = 0; v < nodeCount; v++) {
+      for (int e = offsets.get(v); e < offsets.get(v + 1); e++) {
+        long endpoints = (long) v << 32 | targets.get(e);
+        // summing keeps the fingerprint independent of the order of the edges
+        fingerprint += mix(mix(endpoints) + Double.doubleToLongBits(weights.get(e)));
+      }
+    }
+    return fingerprint;
+  }
+
+  // spreads every bit of a value over the whole result (the SplitMix64 finalizer)
+  private static long mix(long value) {
+    value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+    value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+    return value ^ (value >>> 31);
+  }
+
+  /**
+   * Return a snapshot of the reverse graph, in which every edge points the
+   * other way. Node ids are the same in both snapshots.
+   *
+   * @return the reversed snapshot
+   */
+  public CompactGraph<NodeType> reverse() {
+    return new CompactGraph<>(data, reverseOffsets, sources, reverseWeights, offsets, targets,
+        weights, version);
+  }
+
+}
@@ -0,0 +1,373 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Runs Dijkstra's shortest path algorithm over a CompactGraph. The distance
+ * and predecessor of every node are kept in primitive arrays indexed by node
+ * id, and these arrays are reused by every search run through the same
+ * CompactSearch object. Each search has its own generation number, and an
+ * entry in those arrays only counts when the node's stamp matches the current
+ * generation, so starting a new search takes O(1) time instead of clearing
+ * every array.
+ *
+ * @param <NodeType> the data type stored at each node of the graph
+ */
+public class CompactSearch<NodeType> {
+
+  /**
+   * The kinds of priority queue that a search can order its frontier with.
+   * LAZY_DELETION queues a new entry on a java.util.PriorityQueue for every
+   * relaxation and skips stale entries when they are polled, so the queue
+   * can grow to the number of edges. INDEXED_HEAP keeps each node in an
+   * IndexedMinHeap at most once and lowers its priority in place.
+   */
+  public enum QueueType {
+    LAZY_DELETION, INDEXED_HEAP
+  }
+
+  /**
+   * A queued node id along with the priority it was queued with. Entries
+   * whose node was already settled are skipped when they are polled.
+   */
+  protected static class QueueEntry implements Comparable<QueueEntry> {
+    public int node;
+    public double priority;
+
+    public QueueEntry(int node, double priority) {
+      this.node = node;
+      this.priority = priority;
+    }
+
+    public int compareTo(QueueEntry other) {
+      return Double.compare(priority, other.priority);
+    }
+  }
+
+  /**
+   * Receives the nodes settled by searchWithin, in order of increasing cost.
+   */
+  public interface SettledNodeVisitor {
+    /**
+     * Receives one settled node.
+     *
+     * @param node the id of the node
+     * @param cost the cost of the shortest path to that node
+     * @return true to continue the search, or false to stop it here
+     */
+    public boolean visit(int node, double cost);
+  }
+
+  protected final CompactGraph<NodeType> graph;
+  protected final double[] dist; // cost of the best path found to each node
+  protected final int[] pred; // previous node along that path, or -1
+  protected final int[] predEdge; // edge index leading into each node, or -1
+  // generation of the last search that reached or settled each node
+  protected final int[] reached;
+  protected final int[] settled;
+  protected int generation = 0;
+  protected int settledCount = 0;
+  protected final QueueType queueType;
+  protected final IndexedMinHeap heap; // null unless queueType is INDEXED_HEAP
+
+  /**
+   * Constructor that allocates the work arrays for searching a graph with a
+   * lazy deletion priority queue.
+   *
+   * @param graph the snapshot that this object searches
+   */
+  public CompactSearch(CompactGraph<NodeType> graph) {
+    this(graph, QueueType.LAZY_DELETION);
+  }
+
+  /**
+   * Constructor that allocates the work arrays for searching a graph.
+   *
+   * @param graph     the snapshot that this object searches
+   * @param queueType the kind of priority queue to order the frontier with
+   */
+  public CompactSearch(CompactGraph<NodeType> graph, QueueType queueType) {
+    this.graph = graph;
+    this.queueType = queueType;
+    this.heap = queueType == QueueType.INDEXED_HEAP
+        ? new IndexedMinHeap(graph.getNodeCount()) : null;
+    int nodeCount = graph.getNodeCount();
+    dist = new double[nodeCount];
+    pred = new int[nodeCount];
+    predEdge = new int[nodeCount];
+    reached = new int[nodeCount];
+    settled = new int[nodeCount];
+  }
+
+  /**
+   * Return the snapshot that this object searches.
+   *
+   * @return the snapshot that this object searches
+   */
+  public CompactGraph<NodeType> getGraph() {
+    return graph;
+  }
+
+  /**
+   * Return the kind of priority queue that this object searches with.
+   *
+   * @return the queue type of this search
+   */
+  public QueueType getQueueType() {
+    return queueType;
+  }
+
+  /**
+   * Compute shortest paths leaving the source node, until the target node is
+   * settled or until every node reachable from the source has been settled.
+   *
+   * @param source the id of the starting node
+   * @param target the id of the destination node, or -1 to search the whole
+   *               graph
+   * @return true if the target was reached (always true when target is -1)
+   */
+  public boolean search(int source, int target) {
+    return search(source, target, null);
+  }
+
+  /**
+   * Compute shortest paths leaving the source node as an A* search, which
+   * settles nodes in order of their path cost plus the heuristic's estimate
+   * of their remaining cost to the target. Without a heuristic, or without a
+   * target, this is the same as search(source, target).
+   *
+   * @param source    the id of the starting node
+   * @param target    the id of the destination node, or -1 to search the
+   *                  whole graph
+   * @param heuristic estimates the remaining cost to the target, or null
+   * @return true if the target was reached (always true when target is -1)
+   */
+  public boolean search(int source, int target, Heuristic<NodeType> heuristic) {
+    return search(source, target, heuristic, Double.POSITIVE_INFINITY, null);
+  }
+
+  /**
+   * Compute shortest paths leaving the source node, but only those whose
+   * cost is within a budget: no path is extended past the budget, so the
+   * search costs only as much as the part of the graph within it. Each node
+   * is passed to the visitor as it is settled, which is in order of
+   * increasing cost, and the visitor can stop the search early. Afterwards,
+   * getCost and the path methods answer for the visited nodes.
+   *
+   * @param source  the id of the starting node
+   * @param budget  the largest path cost to visit, which may be infinite
+   * @param visitor receives each node within the budget, or null for none
+   * @return the number of nodes visited
+   * @throws IllegalArgumentException if budget is negative or not a number
+   */
+  public int searchWithin(int source, double budget, SettledNodeVisitor visitor) {
+    if (!(budget >= 0))
+      throw new IllegalArgumentException("budget must not be negative");
+    search(source, -1, null, budget, visitor);
+    return settledCount;
+  }
+
+  // the body of every search: stops at the target, at the first path that
+  // would cost more than the budget, or when the visitor asks it to
+  protected boolean search(int source, int target, Heuristic<NodeType> heuristic, double budget,
+      SettledNodeVisitor visitor) {
+    if (target == -1)
+      heuristic = null;
+    nextGeneration();
+    settledCount = 0;
+    reach(source, 0, -1, -1);
+    if (queueType == QueueType.INDEXED_HEAP)
+      return searchIndexed(source, target, heuristic, budget, visitor);
+
+    PriorityQueue<QueueEntry> queue = new PriorityQueue<>();
+    queue.add(new QueueEntry(source, 0));
+    while (!queue.isEmpty()) {
+      QueueEntry current = queue.poll();
+      int u = current.node;
+      // skip entries for nodes that were settled through a cheaper entry
+      if (settled[u] == generation)
+        continue;
+      settled[u] = generation;
+      settledCount++;
+      if (u == target)
+        return true;
+      if (visitor != null && !visitor.visit(u, dist[u]))
+        return target == -1;
+      for (int e = graph.getEdgeStart(u); e < graph.getEdgeEnd(u); e++) {
+        int v = graph.getTarget(e);
+        double cost = dist[u] + graph.getWeight(e);
+        if (settled[v] != generation && cost <= budget && cost < getCost(v)) {
+          double priority = priority(v, cost, target, heuristic);
+          // an infinite estimate means the target cannot be reached through v
+          if (priority == Double.POSITIVE_INFINITY)
+            continue;
+          reach(v, cost, u, e);
+          queue.add(new QueueEntry(v, priority));
+        }
+      }
+    }
+    return target == -1;
+  }
+
+  // starts a new generation, so that every node counts as unreached
+  protected void nextGeneration() {
+    if (generation == Integer.MAX_VALUE) {
+      // only once every two billion searches do the stamps need clearing
+      Arrays.fill(reached, 0);
+      Arrays.fill(settled, 0);
+      generation = 0;
+    }
+    generation++;
+  }
+
+  // records a cheaper path to a node
+  protected void reach(int node, double cost, int predecessor, int edge) {
+    reached[node] = generation;
+    dist[node] = cost;
+    pred[node] = predecessor;
+    predEdge[node] = edge;
+  }
+
+  // the body of search() when nodes are queued on the indexed heap
+  protected boolean searchIndexed(int source, int target, Heuristic<NodeType> heuristic,
+      double budget, SettledNodeVisitor visitor) {
+    heap.clear();
+    heap.insertOrDecrease(source, 0);
+    while (!heap.isEmpty()) {
+      int u = heap.poll();
+      settled[u] = generation;
+      settledCount++;
+      if (u == target)
+        return true;
+      if (visitor != null && !visitor.visit(u, dist[u]))
+        return target == -1;
+      for (int e = graph.getEdgeStart(u); e < graph.getEdgeEnd(u); e++) {
+        int v = graph.getTarget(e);
+        double cost = dist[u] + graph.getWeight(e);
+        if (settled[v] != generation && cost <= budget && cost < getCost(v)) {
+          double priority = priority(v, cost, target, heuristic);
+          // an infinite estimate means the target cannot be reached through v
+          if (priority == Double.POSITIVE_INFINITY)
+            continue;
+          reach(v, cost, u, e);
+          heap.insertOrDecrease(v, priority);
+        }
+      }
+    }
+    return target == -1;
+  }
+
+  // the queue priority of a node reached with the provided path cost
+  protected double priority(int node, double cost, int target, Heuristic<NodeType> heuristic) {
+    if (heuristic == null)
+      return cost;
+    return cost + heuristic.estimate(graph, node, target);
+  }
+
+  /**
+   * Return the cost of the shortest path found to a node by the last search.
+   *
+   * @param node the id of the node
+   * @return the cost of that path, or infinity when the node was not reached
+   */
+  public double getCost(int node) {
+    return reached[node] == generation ? dist[node] : Double.POSITIVE_INFINITY;
+  }
+
+  /**
+   * Checks whether the last search settled a node, in which case getCost
+   * returns the exact cost of its shortest path rather than an upper bound.
+   *
+   * @param node the id of the node
+   * @return true if the node was settled by the last search
+   */
+  public boolean isSettled(int node) {
+    return settled[node] == generation;
+  }
+
+  /**
+   * Return the previous node along the shortest path found to a node by the
+   * last search.
+   *
+   * @param node the id of the node
+   * @return the id of the previous node, or -1 for the source and for nodes
+   *         that were not reached
+   */
+  public int getPredecessor(int node) {
+    return reached[node] == generation ? pred[node] : -1;
+  }
+
+  /**
+   * Return the index of the edge that leads into a node along the shortest
+   * path found to it by the last search.
+   *
+   * @param node the id of the node
+   * @return the index of that edge, or -1 for the source and for nodes that
+   *         were not reached
+   */
+  public int getPredecessorEdge(int node) {
+    return reached[node] == generation ? predEdge[node] : -1;
+  }
+
+  /**
+   * Return the number of nodes settled by the last search.
+   *
+   * @return the number of nodes settled by the last search
+   */
+  public int getSettledCount() {
+    return settledCount;
+  }
+
+  /**
+   * Return the ids of the nodes along the shortest path found to a node by
+   * the last search, ordered from the source to that node.
+   *
+   * @param node the id of the final node in the path
+   * @return the ids along that path
+   */
+  public int[] getPath(int node) {
+    int length = 0;
+    for (int v = node; v != -1; v = getPredecessor(v))
+      length++;
+    int[] path = new int[length];
+    for (int v = node; v != -1; v = getPredecessor(v))
+      path[--length] = v;
+    return path;
+  }
+
+  /**
+   * Return the data of the nodes along the shortest path found to a node by
+   * the last search, ordered from the source to that node.
+   *
+   * @param node the id of the final node in the path
+   * @return the node data along that path
+   */
+  public List<NodeType> getPathData(int node) {
+    LinkedList<NodeType> path = new LinkedList<>();
+    for (int v = node; v != -1; v = getPredecessor(v))
+      path.addFirst(graph.getData(v));
+    return path;
+  }
+
+  /**
+   * Return the shortest path found to a node by the last search, along with
+   * the weight of each edge on that path and its total cost.
+   *
+   * @param node the id of the final node in the path
+   * @return the nodes, edge weights, and total cost of that path
+   */
+  public ShortestPathResult<NodeType> getPathResult(int node) {
+    int[] ids = getPath(node);
+    List<NodeType> path = new ArrayList<>(ids.length);
+    List<Double> segmentCosts = new ArrayList<>(ids.length);
+    for (int i = 0; i < ids.length; i++) {
+      path.add(graph.getData(ids[i]));
+      if (i > 0)
+        segmentCosts.add(graph.getWeight(predEdge[ids[i]]));
+    }
+    return new ShortestPathResult<>(path, segmentCosts, getCost(node));
+  }
+
+}
@@ -0,0 +1,233 @@
+/**
+ * Groups the nodes of a snapshot into its strongly and weakly connected
+ * components, so that many queries between nodes with no path between them
+ * can be answered without a search. Two nodes in different weakly connected
+ * components are never joined by a path in either direction. The strongly
+ * connected components are numbered so that every edge leads from a
+ * component to one with the same or a lower number; a node can therefore
+ * only reach nodes whose component numbers are no higher than its own, and
+ * searches for a target can skip every node numbered below the target's.
+ *
+ * Removing edges or nodes, or raising edge weights, never joins two nodes
+ * that had no path between them, so an index stays a correct source of "no
+ * path" answers until an edge is added or a node id is reused. Nodes added
+ * after the index was built are outside it, and could reach anything.
+ *
+ * @param <NodeType> the data type stored at each node of the graph
+ */
+public class ComponentIndex<NodeType> {
+
+  // strongly connected component of each node id, in reverse topological order
+  protected final int[] strong;
+  // weakly connected component of each node id, named by one of its nodes
+  protected final int[] weak;
+  protected final int strongCount;
+  protected final int weakCount;
+  // the graph version that this index stays correct for
+  protected final int version;
+
+  /**
+   * Constructor that finds the components of a snapshot.
+   *
+   * @param graph   the snapshot to index
+   * @param version the version of the graph that this index is kept for,
+   *                such as its shortening version
+   */
+  public ComponentIndex(CompactGraph<NodeType> graph, int version) {
+    this.version = version;
+    int nodeCount = graph.getNodeCount();
+    this.strong = new int[nodeCount];
+    this.weak = new int[nodeCount];
+    // the ids of removed nodes are components of their own, which are not counted
+    int removed = 0;
+    for (int id = 0; id < nodeCount; id++)
+      if (!graph.containsId(id))
+        removed++;
+    this.strongCount = findStrongComponents(graph) - removed;
+    this.weakCount = findWeakComponents(graph) - removed;
+  }
+
+  // Tarjan's algorithm with an explicit stack, which completes components in
+  // reverse topological order; returns the number of components
+  private int findStrongComponents(CompactGraph<NodeType> graph) {
+    int nodeCount = graph.getNodeCount();
+    int[] index = new int[nodeCount]; // discovery order + 1, or 0 if undiscovered
+    int[] low = new int[nodeCount];
+    int[] nextEdge = new int[nodeCount];
+    boolean[] onStack = new boolean[nodeCount];
+    int[] stack = new int[nodeCount]; // nodes of components not yet completed
+    int[] path = new int[nodeCount]; // the nodes of the depth-first search path
+    int stackSize = 0;
+    int counter = 0;
+    int count = 0;
+    for (int root = 0; root < nodeCount; root++) {
+      if (index[root] != 0)
+        continue;
+      int depth = 0;
+      path[depth++] = root;
+      index[root] = low[root] = ++counter;
+      nextEdge[root] = graph.getEdgeStart(root);
+      stack[stackSize++] = root;
+      onStack[root] = true;
+      while (depth > 0) {
+        int u = path[depth - 1];
+        if (nextEdge[u] < graph.getEdgeEnd(u)) {
+          int v = graph.getTarget(nextEdge[u]++);
+          if (index[v] == 0) {
+            path[depth++] = v;
+            index[v] = low[v] = ++counter;
+            nextEdge[v] = graph.getEdgeStart(v);
+            stack[stackSize++] = v;
+            onStack[v] = true;
+          } else if (onStack[v]) {
+            low[u] = Math.min(low[u], index[v]);
+          }
+          continue;
+        }
+        // every edge of u is explored: complete its component if it is the root
+        if (low[u] == index[u]) {
+          int v;
+          do {
+            v = stack[--stackSize];
+            onStack[v] = false;
+            strong[v] = count;
+          } while (v != u);
+          count++;
+        }
+        depth--;
+        if (depth > 0) {
+          int parent = path[depth - 1];
+          low[parent] = Math.min(low[parent], low[u]);
+        }
+      }
+    }
+    return count;
+  }
+
+  // union-find over every edge, ignoring its direction; returns the number of components
+  private int findWeakComponents(CompactGraph<NodeType> graph) {
+    int nodeCount = graph.getNodeCount();
+    for (int v = 0; v < nodeCount; v++)
+      weak[v] = v;
+    int count = nodeCount;
+    for (int u = 0; u < nodeCount; u++) {
+      for (int e = graph.getEdgeStart(u); e < graph.getEdgeEnd(u); e++) {
+        int a = find(u);
+        int b = find(graph.getTarget(e));
+        if (a != b) {
+          weak[Math.max(a, b)] = Math.min(a, b);
+          count--;
+        }
+      }
+    }
+    // point every node straight at the root of its component
+    for (int v = 0; v < nodeCount; v++)
+      weak[v] = find(v);
+    return count;
+  }
+
+  // the root of a node's set, halving the path to it along the way
+  private int find(int v) {
+    while (weak[v] != v) {
+      weak[v] = weak[weak[v]];
+      v = weak[v];
+    }
+    return v;
+  }
+
+  /**
+   * Return the version of the graph that this index was built for.
+   *
+   * @return the version provided when this index was built
+   */
+  public int getVersion() {
+    return version;
+  }
+
+  /**
+   * Return the number of node ids in this index.
+   *
+   * @return one more than the largest node id this index knows
+   */
+  public int getNodeCount() {
+    return strong.length;
+  }
+
+  /**
+   * Return the number of strongly connected components of the graph's nodes.
+   *
+   * @return the number of strongly connected components
+   */
+  public int getStrongComponentCount() {
+    return strongCount;
+  }
+
+  /**
+   * Return the number of weakly connected components of the graph's nodes.
+   *
+   * @return the number of weakly connected components
+   */
+  public int getWeakComponentCount() {
+    return weakCount;
+  }
+
+  /**
+   * Return the strongly connected component of a node. Every edge leads to a
+   * component with the same or a lower number.
+   *
+   * @param id the id of the node
+   * @return the number of its strongly connected component
+   */
+  public int getStrongComponent(int id) {
+    return strong[id];
+  }
+
+  /**
+   * Return the weakly connected component of a node.
+   *
+   * @param id the id of the node
+   * @return the id of one node in the same weakly connected component
+   */
+  public int getWeakComponent(int id) {
+    return weak[id];
+  }
+
+  /**
+   * Checks whether a path from one node to another may exist. A false answer
+   * is certain; a true answer still needs a search to confirm.
+   *
+   * @param source the id of the node the path starts from
+   * @param target the id of the node the path ends at
+   * @return false if there is certainly no path, true otherwise
+   */
+  public boolean mayReach(int source, int target) {
+    if (source == target || source >= strong.length || target >= strong.length)
+      return true;
+    return weak[source] == weak[target] && strong[source] >= strong[target];
+  }
+
+  /**
+   * Returns a heuristic that estimates an infinite cost from every node that
+   * cannot reach the target, so that searches skip those nodes, and defers
+   * to the provided heuristic for every other node. The result is admissible
+   * and consistent whenever the provided heuristic is, since no edge leads
+   * from a node that cannot reach the target to one that can.
+   *
+   * @param heuristic the heuristic to refine, or null for none
+   * @return a heuristic that also rules out unreachable nodes
+   */
+  public Heuristic<NodeType> restrict(Heuristic<NodeType> heuristic) {
+    return new Heuristic<NodeType>() {
+      public double estimate(NodeType node, NodeType target) {
+        return heuristic == null ? 0 : heuristic.estimate(node, target);
+      }
+
+      public double estimate(CompactGraph<NodeType> graph, int node, int target) {
+        if (!mayReach(node, target))
+          return Double.POSITIVE_INFINITY;
+        return heuristic == null ? 0 : heuristic.estimate(graph, node, target);
+      }
+    };
+  }
+
+}
@@ -0,0 +1,253 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * A graph that many threads can query while others change it. Queries never
+ * lock: each one reads the most recently published snapshot of the graph,
+ * which is immutable, and runs Dijkstra's algorithm on it with work arrays
+ * owned by its own thread. Writers record their changes in a Batch and apply
+ * it as a whole: the batch is applied to a private DijkstraGraph under a lock,
+ * and a new snapshot of the result is then published with a single volatile
+ * write. A query therefore sees every change of a batch or none of them.
+ *
+ * Each batch compiles a new snapshot, which takes time proportional to the
+ * size of the graph, so writers should group their changes into as few
+ * batches as they can.
+ *
+ * @param <NodeType> the data type stored at each node of the graph
+ */
+public class ConcurrentGraph<NodeType> {
+
+  /**
+   * A group of changes that are applied to a ConcurrentGraph together, in the
+   * order they were added. Batches are not thread-safe; each writer builds
+   * its own.
+   *
+   * @param <NodeType> the data type stored at each node of the graph
+   */
+  public static class Batch<NodeType> {
+    protected final List<Consumer<DijkstraGraph<NodeType, Double>>> changes = new ArrayList<>();
+
+    /**
+     * Adds a node, unless it is already in the graph when the batch is applied.
+     *
+     * @param data the data item stored in the new node
+     * @return this batch
+     * @throws NullPointerException if data is null
+     */
+    public Batch<NodeType> insertNode(NodeType data) {
+      Objects.requireNonNull(data);
+      changes.add(graph -> graph.insertNode(data));
+      return this;
+    }
+
+    /**
+     * Removes a node and every edge joined to it, if it is in the graph when
+     * the batch is applied.
+     *
+     * @param data the data item stored in the node to remove
+     * @return this batch
+     * @throws NullPointerException if data is null
+     */
+    public Batch<NodeType> removeNode(NodeType data) {
+      Objects.requireNonNull(data);
+      changes.add(graph -> graph.removeNode(data));
+      return this;
+    }
+
+    /**
+     * Adds an edge or updates its weight, if both of its nodes are in the
+     * graph when the batch is applied.
+     *
+     * @param pred   the data item in the edge's predecessor node
+     * @param succ   the data item in the edge's successor node
+     * @param weight the non-negative weight of the edge
+     * @return this batch
+     * @throws NullPointerException     if pred or succ are null
+     * @throws IllegalArgumentException if weight is negative or not a number
+     */
+    public Batch<NodeType> insertEdge(NodeType pred, NodeType succ, double weight) {
+      Objects.requireNonNull(pred);
+      Objects.requireNonNull(succ);
+      if (!(weight >= 0))
+        throw new IllegalArgumentException("edge weights must not be negative");
+      changes.add(graph -> graph.insertEdge(pred, succ, weight));
+      return this;
+    }
+
+    /**
+     * Removes an edge, if it is in the graph when the batch is applied.
+     *
+     * @param pred the data item in the edge's predecessor node
+     * @param succ the data item in the edge's successor node
+     * @return this batch
+     * @throws NullPointerException if pred or succ are null
+     */
+    public Batch<NodeType> removeEdge(NodeType pred, NodeType succ) {
+      Objects.requireNonNull(pred);
+      Objects.requireNonNull(succ);
+      changes.add(graph -> graph.removeEdge(pred, succ));
+      return this;
+    }
+
+    /**
+     * Return the number of changes in this batch.
+     *
+     * @return the number of changes added so far
+     */
+    public int getSize() {
+      return changes.size();
+    }
+  }
+
+  // Only touched by writers, while they hold the lock
+  protected final DijkstraGraph<NodeType, Double> graph;
+  protected final ReentrantLock writeLock = new ReentrantLock();
+  // The snapshot that queries run on, replaced as a whole after every batch
+  protected volatile CompactGraph<NodeType> published;
+  // Each thread's work arrays, rebuilt when a new snapshot is published
+  protected final ThreadLocal<CompactSearch<NodeType>> searches = new ThreadLocal<>();
+
+  /**
+   * Constructor that takes over a graph. The graph must not be used
+   * directly afterwards, except through this object.
+   *
+   * @param graph the graph holding the initial nodes and edges
+   */
+  public ConcurrentGraph(DijkstraGraph<NodeType, Double> graph) {
+    this.graph = graph;
+    this.published = graph.snapshot();
+  }
+
+  /**
+   * Applies every change of a batch, in order, and then publishes a snapshot
+   * of the result for later queries. Batches from several writers are
+   * applied one at a time. If a change throws a RuntimeException, none of
+   * the batch's changes are kept: the graph goes back to the last published
+   * snapshot, keeping its map and settings, and the exception is passed on.
+   *
+   * @param batch the changes to apply
+   * @return the version of the published snapshot
+   */
+  public int apply(Batch<NodeType> batch) {
+    writeLock.lock();
+    try {
+      try {
+        for (Consumer<DijkstraGraph<NodeType, Double>> change : batch.changes)
+          change.accept(graph);
+      } catch (RuntimeException e) {
+        // drop the changes applied so far, so that a later batch cannot publish them
+        graph.revertTo(published);
+        throw e;
+      }
+      CompactGraph<NodeType> snapshot = graph.snapshot();
+      published = snapshot;
+      return snapshot.getVersion();
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Return the most recently published snapshot. Queries given the same
+   * snapshot all see the same version of the graph, however many batches are
+   * applied meanwhile.
+   *
+   * @return the current snapshot
+   */
+  public CompactGraph<NodeType> getSnapshot() {
+    return published;
+  }
+
+  /**
+   * Return the version of the most recently published snapshot.
+   *
+   * @return the version of the graph that queries currently see
+   */
+  public int getVersion() {
+    return published.getVersion();
+  }
+
+  /**
+   * Returns the shortest path between two nodes in the current snapshot.
+   *
+   * @param start the data item in the starting node for the path
+   * @param end   the data item in the destination node for the path
+   * @return the nodes, edge weights, and total cost of this shortest path
+   * @throws NoSuchElementException when no path from start to end is found
+   *                                or when either start or end data do not
+   *                                correspond to a graph node
+   */
+  public ShortestPathResult<NodeType> shortestPath(NodeType start, NodeType end) {
+    return shortestPath(published, start, end);
+  }
+
+  /**
+   * Returns the shortest path between two nodes in the provided snapshot.
+   *
+   * @param snapshot a snapshot returned by getSnapshot()
+   * @param start    the data item in the starting node for the path
+   * @param end      the data item in the destination node for the path
+   * @return the nodes, edge weights, and total cost of this shortest path
+   * @throws NoSuchElementException when no path from start to end is found
+   *                                or when either start or end data do not
+   *                                correspond to a graph node
+   */
+  public ShortestPathResult<NodeType> shortestPath(CompactGraph<NodeType> snapshot,
+      NodeType start, NodeType end) {
+    int target = snapshot.getId(end);
+    CompactSearch<NodeType> search = search(snapshot, snapshot.getId(start), target);
+    if (search == null)
+      throw new NoSuchElementException("No path from start to end is found");
+    return search.getPathResult(target);
+  }
+
+  /**
+   * Returns the cost of the shortest path between two nodes in the current
+   * snapshot.
+   *
+   * @param start the data item in the starting node for the path
+   * @param end   the data item in the destination node for the path
+   * @return the cost of the shortest path between these nodes, or -1 when
+   *         there is no such path
+   */
+  public double shortestPathCost(NodeType start, NodeType end) {
+    return shortestPathCost(published, start, end);
+  }
+
+  /**
+   * Returns the cost of the shortest path between two nodes in the provided
+   * snapshot.
+   *
+   * @param snapshot a snapshot returned by getSnapshot()
+   * @param start    the data item in the starting node for the path
+   * @param end      the data item in the destination node for the path
+   * @return the cost of the shortest path between these nodes, or -1 when
+   *         there is no such path
+   */
+  public double shortestPathCost(CompactGraph<NodeType> snapshot, NodeType start,
+      NodeType end) {
+    int target = snapshot.getId(end);
+    CompactSearch<NodeType> search = search(snapshot, snapshot.getId(start), target);
+    return search == null ? -1.0 : search.getCost(target);
+  }
+
+  // runs this thread's search on a snapshot, returning null when either node
+  // is missing or there is no path between them
+  protected CompactSearch<NodeType> search(CompactGraph<NodeType> snapshot, int source,
+      int target) {
+    if (source == -1 || target == -1)
+      return null;
+    CompactSearch<NodeType> search = searches.get();
+    if (search == null || search.getGraph() != snapshot) {
+      search = new CompactSearch<>(snapshot, CompactSearch.QueueType.INDEXED_HEAP);
+      searches.set(search);
+    }
+    return search.search(source, target) ? search : null;
+  }
+
+}
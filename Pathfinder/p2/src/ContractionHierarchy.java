@@ -0,0 +1,653 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A contraction hierarchy built from a snapshot of a graph, for answering
+ * many point-to-point shortest path queries quickly.
+ *
+ * Preprocessing contracts the nodes one at a time, least important first.
+ * Contracting a node v removes it from the remaining graph, and for every
+ * pair of remaining neighbours u and w whose only shortest path runs through
+ * u -> v -> w, adds a shortcut edge u -> w with the cost of that path. The
+ * importance of a node is its edge difference: the number of shortcuts its
+ * contraction would add minus the number of edges it would remove, plus the
+ * number of its neighbours already contracted, so that contraction spreads
+ * evenly over the graph. Each node's rank is the order it was contracted in.
+ *
+ * A query runs a bidirectional search that only follows edges toward nodes
+ * of higher rank: forward from the start node, and backward from the end
+ * node. Every shortest path has a highest ranked node, and both searches
+ * reach it along edges and shortcuts, so the best node settled by both
+ * searches lies on a shortest path. Because these upward searches only see
+ * a small part of the graph, queries settle very few nodes. Shortcuts
+ * remember the node they bypass, and are unpacked into the original edges
+ * before a path is returned.
+ *
+ * The hierarchy does not change when the graph it was built from changes;
+ * isCurrent() tells whether it still matches that graph.
+ *
+ * @param <NodeType> the data type stored at each node of the graph
+ */
+public class ContractionHierarchy<NodeType> {
+
+  // Witness searches give up after settling this many nodes, and keep the
+  // shortcut they were testing; this only ever adds unneeded shortcuts
+  private static final int WITNESS_SETTLE_LIMIT = 500;
+
+  protected final BaseGraph<NodeType, ?> source;
+  protected final CompactGraph<NodeType> graph;
+  protected final int[] rank;
+  protected int shortcutCount = 0;
+
+  // edges and shortcuts leading to higher ranked nodes, by their lower end
+  protected int[] upOffsets;
+  protected int[] upTargets;
+  protected double[] upWeights;
+  protected int[] upMiddles; // bypassed node of each shortcut, or -1
+
+  // edges and shortcuts coming from higher ranked nodes, by their lower end
+  protected int[] downOffsets;
+  protected int[] downSources;
+  protected double[] downWeights;
+  protected int[] downMiddles;
+
+  // query work arrays; an entry is only valid when its stamp matches
+  protected final double[] forwardDist;
+  protected final double[] backwardDist;
+  protected final int[] forwardPred; // previous node on each forward path
+  protected final int[] forwardEdge; // up edge leading into each node
+  protected final int[] backwardSucc; // next node on each backward path
+  protected final int[] backwardEdge; // down edge leaving each node
+  protected final int[] forwardStamp;
+  protected final int[] backwardStamp;
+  protected int stamp = 0;
+  protected final IndexedMinHeap forwardQueue;
+  protected final IndexedMinHeap backwardQueue;
+  protected int settledCount = 0;
+
+  /**
+   * Builds a contraction hierarchy from the current contents of a graph.
+   *
+   * @param source the graph to build the hierarchy from
+   */
+  public ContractionHierarchy(BaseGraph<NodeType, ?> source) {
+    this.source = source;
+    this.graph = source.snapshot();
+    int nodeCount = graph.getNodeCount();
+    this.rank = new int[nodeCount];
+    new Contractor().contract();
+
+    forwardDist = new double[nodeCount];
+    backwardDist = new double[nodeCount];
+    forwardPred = new int[nodeCount];
+    forwardEdge = new int[nodeCount];
+    backwardSucc = new int[nodeCount];
+    backwardEdge = new int[nodeCount];
+    forwardStamp = new int[nodeCount];
+    backwardStamp = new int[nodeCount];
+    forwardQueue = new IndexedMinHeap(nodeCount);
+    backwardQueue = new IndexedMinHeap(nodeCount);
+  }
+
+  /**
+   * Holds the shrinking graph while nodes are contracted. Every edge, along
+   * with every shortcut added, is listed both under the node it leaves and
+   * under the node it enters; edges to contracted nodes stay in the lists but
+   * are skipped.
+   */
+  protected class Contractor {
+    int nodeCount = graph.getNodeCount();
+    int[][] outTargets = new int[nodeCount][];
+    double[][] outWeights = new double[nodeCount][];
+    int[][] outMiddles = new int[nodeCount][];
+    int[] outSizes = new int[nodeCount];
+    int[][] inSources = new int[nodeCount][];
+    double[][] inWeights = new double[nodeCount][];
+    int[] inSizes = new int[nodeCount];
+    boolean[] contracted = new boolean[nodeCount];
+    int[] contractedNeighbours = new int[nodeCount];
+
+    // witness search work arrays
+    double[] witnessDist = new double[nodeCount];
+    int[] witnessStamp = new int[nodeCount];
+    int witnessGeneration = 0;
+    IndexedMinHeap witnessQueue = new IndexedMinHeap(nodeCount);
+
+    Contractor() {
+      for (int v = 0; v < nodeCount; v++) {
+        int outDegree = graph.getEdgeEnd(v) - graph.getEdgeStart(v);
+        outTargets[v] = new int[Math.max(outDegree, 2)];
+        outWeights[v] = new double[Math.max(outDegree, 2)];
+        outMiddles[v] = new int[Math.max(outDegree, 2)];
+        int inDegree = graph.getReverseEdgeEnd(v) - graph.getReverseEdgeStart(v);
+        inSources[v] = new int[Math.max(inDegree, 2)];
+        inWeights[v] = new double[Math.max(inDegree, 2)];
+      }
+      for (int v = 0; v < nodeCount; v++)
+        for (int e = graph.getEdgeStart(v); e < graph.getEdgeEnd(v); e++)
+          if (graph.getTarget(e) != v)
+            addEdge(v, graph.getTarget(e), graph.getWeight(e), -1);
+    }
+
+    // contracts every node in order of importance, and records the hierarchy
+    void contract() {
+      IndexedMinHeap order = new IndexedMinHeap(nodeCount);
+      for (int v = 0; v < nodeCount; v++)
+        order.insertOrDecrease(v, importance(v));
+      int nextRank = 0;
+      while (!order.isEmpty()) {
+        int v = order.poll();
+        // priorities go stale as neighbours are contracted, so recheck lazily
+        double current = importance(v);
+        if (!order.isEmpty() && current > order.getPriority(order.peek())) {
+          order.insertOrDecrease(v, current);
+          continue;
+        }
+        shortcutCount += shortcuts(v, true);
+        contracted[v] = true;
+        rank[v] = nextRank++;
+        for (int i = 0; i < outSizes[v]; i++)
+          contractedNeighbours[outTargets[v][i]]++;
+        for (int i = 0; i < inSizes[v]; i++)
+          contractedNeighbours[inSources[v][i]]++;
+      }
+      buildSearchGraphs();
+    }
+
+    // edge difference plus the number of neighbours already contracted
+    double importance(int v) {
+      int removed = 0;
+      for (int i = 0; i < outSizes[v]; i++)
+        if (!contracted[outTargets[v][i]])
+          removed++;
+      for (int i = 0; i < inSizes[v]; i++)
+        if (!contracted[inSources[v][i]])
+          removed++;
+      return shortcuts(v, false) - removed + contractedNeighbours[v];
+    }
+
+    // counts, and optionally adds, the shortcuts needed to contract v
+    int shortcuts(int v, boolean add) {
+      double maxOut = 0;
+      for (int j = 0; j < outSizes[v]; j++)
+        if (!contracted[outTargets[v][j]])
+          maxOut = Math.max(maxOut, outWeights[v][j]);
+      int count = 0;
+      for (int i = 0; i < inSizes[v]; i++) {
+        int u = inSources[v][i];
+        if (contracted[u])
+          continue;
+        double viaWeight = inWeights[v][i];
+        witnessSearch(u, v, viaWeight + maxOut);
+        for (int j = 0; j < outSizes[v]; j++) {
+          int w = outTargets[v][j];
+          if (contracted[w] || w == u)
+            continue;
+          double viaCost = viaWeight + outWeights[v][j];
+          if (witnessCost(w) > viaCost) {
+            count++;
+            if (add)
+              addEdge(u, w, viaCost, v);
+          }
+        }
+      }
+      return count;
+    }
+
+    // cheapest costs from u that avoid v, up to maxCost
+    void witnessSearch(int u, int v, double maxCost) {
+      witnessGeneration++;
+      witnessQueue.clear();
+      witnessStamp[u] = witnessGeneration;
+      witnessDist[u] = 0;
+      witnessQueue.insertOrDecrease(u, 0);
+      int settled = 0;
+      while (!witnessQueue.isEmpty() && settled < WITNESS_SETTLE_LIMIT) {
+        int x = witnessQueue.poll();
+        if (witnessDist[x] > maxCost)
+          break;
+        settled++;
+        for (int i = 0; i < outSizes[x]; i++) {
+          int y = outTargets[x][i];
+          if (y == v || contracted[y])
+            continue;
+          double cost = witnessDist[x] + outWeights[x][i];
+          if (witnessStamp[y] != witnessGeneration || cost < witnessDist[y]) {
+            witnessStamp[y] = witnessGeneration;
+            witnessDist[y] = cost;
+            witnessQueue.insertOrDecrease(y, cost);
+          }
+        }
+      }
+    }
+
+    double witnessCost(int w) {
+      return witnessStamp[w] == witnessGeneration ? witnessDist[w] : Double.POSITIVE_INFINITY;
+    }
+
+    // adds an edge u -> w, or lowers the weight of the existing one
+    void addEdge(int u, int w, double weight, int middle) {
+      for (int i = 0; i < outSizes[u]; i++) {
+        if (outTargets[u][i] == w) {
+          if (weight < outWeights[u][i]) {
+            outWeights[u][i] = weight;
+            outMiddles[u][i] = middle;
+            for (int j = 0; j < inSizes[w]; j++)
+              if (inSources[w][j] == u)
+                inWeights[w][j] = weight;
+          }
+          return;
+        }
+      }
+      if (outSizes[u] == outTargets[u].length) {
+        outTargets[u] = Arrays.copyOf(outTargets[u], outSizes[u] * 2);
+        outWeights[u] = Arrays.copyOf(outWeights[u], outSizes[u] * 2);
+        outMiddles[u] = Arrays.copyOf(outMiddles[u], outSizes[u] * 2);
+      }
+      outTargets[u][outSizes[u]] = w;
+      outWeights[u][outSizes[u]] = weight;
+      outMiddles[u][outSizes[u]++] = middle;
+      if (inSizes[w] == inSources[w].length) {
+        inSources[w] = Arrays.copyOf(inSources[w], inSizes[w] * 2);
+        inWeights[w] = Arrays.copyOf(inWeights[w], inSizes[w] * 2);
+      }
+      inSources[w][inSizes[w]] = u;
+      inWeights[w][inSizes[w]++] = weight;
+    }
+
+    // splits every edge into the upward graph or the downward graph
+    void buildSearchGraphs() {
+      upOffsets = new int[nodeCount + 1];
+      downOffsets = new int[nodeCount + 1];
+      for (int u = 0; u < nodeCount; u++) {
+        for (int i = 0; i < outSizes[u]; i++) {
+          int w = outTargets[u][i];
+          if (rank[w] > rank[u])
+            upOffsets[u + 1]++;
+          else
+            downOffsets[w + 1]++;
+        }
+      }
+      for (int v = 0; v < nodeCount; v++) {
+        upOffsets[v + 1] += upOffsets[v];
+        downOffsets[v + 1] += downOffsets[v];
+      }
+      upTargets = new int[upOffsets[nodeCount]];
+      upWeights = new double[upOffsets[nodeCount]];
+      upMiddles = new int[upOffsets[nodeCount]];
+      downSources = new int[downOffsets[nodeCount]];
+      downWeights = new double[downOffsets[nodeCount]];
+      downMiddles = new int[downOffsets[nodeCount]];
+      int[] upNext = Arrays.copyOf(upOffsets, nodeCount);
+      int[] downNext = Arrays.copyOf(downOffsets, nodeCount);
+      for (int u = 0; u < nodeCount; u++) {
+        for (int i = 0; i < outSizes[u]; i++) {
+          int w = outTargets[u][i];
+          if (rank[w] > rank[u]) {
+            int slot = upNext[u]++;
+            upTargets[slot] = w;
+            upWeights[slot] = outWeights[u][i];
+            upMiddles[slot] = outMiddles[u][i];
+          } else {
+            int slot = downNext[w]++;
+            downSources[slot] = u;
+            downWeights[slot] = outWeights[u][i];
+            downMiddles[slot] = outMiddles[u][i];
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Checks whether the graph this hierarchy was built from is unchanged since.
+   *
+   * @return true if the hierarchy still matches its graph, false otherwise
+   */
+  public boolean isCurrent() {
+    return source.getVersion() == graph.getVersion();
+  }
+
+  /**
+   * Returns the number of shortcuts added while building this hierarchy.
+   *
+   * @return the number of shortcut edges
+   */
+  public int getShortcutCount() {
+    return shortcutCount;
+  }
+
+  /**
+   * Returns the number of nodes settled by both halves of the last query.
+   *
+   * @return the number of nodes settled by the last query
+   */
+  public int getSettledCount() {
+    return settledCount;
+  }
+
+  /**
+   * Return the data associated with a specific edge of the original graph. Shortcuts are not
+   * edges of the graph, so they are never returned.
+   *
+   * @param pred the data item contained in the source node for the edge
+   * @param succ the data item contained in the target node for the edge
+   * @return the non-negative weight of the edge between those nodes
+   * @throws NoSuchElementException if either node or the edge between them
+   *                                are not found within this graph
+   */
+  public double getEdge(NodeType pred, NodeType succ) {
+    int predId = graph.getId(pred);
+    int succId = graph.getId(succ);
+    int edge = predId == -1 || succId == -1 ? -1 : graph.findEdge(predId, succId);
+    if (edge == -1)
+      throw new NoSuchElementException("No edge from " + pred + " to " + succ);
+    return graph.getWeight(edge);
+  }
+
+  /**
+   * Returns the shortest path from the node with the provided start value to the node with the
+   * provided end value, with every shortcut unpacked into the edges it bypasses.
+   *
+   * @param start the data item in the starting node for the path
+   * @param end   the data item in the destination node for the path
+   * @return the nodes, edge weights, and total cost of this shortest path
+   * @throws NoSuchElementException when no path from start to end is found
+   *                                or when either start or end data do not
+   *                                correspond to a graph node
+   */
+  public ShortestPathResult<NodeType> shortestPath(NodeType start, NodeType end) {
+    int sourceId = graph.getId(start);
+    int targetId = graph.getId(end);
+    if (sourceId == -1 || targetId == -1) {
+      throw new NoSuchElementException("Start or end node not found in the graph.");
+    }
+    int meeting = search(sourceId, targetId);
+    if (meeting == -1) {
+      throw new NoSuchElementException("No path from start to end is found");
+    }
+
+    // unpack the upward edges from the start, then the downward edges to the end
+    List<NodeType> path = new ArrayList<>();
+    List<Double> segmentCosts = new ArrayList<>();
+    path.add(start);
+    List<Integer> upPath = new ArrayList<>();
+    for (int v = meeting; v != sourceId; v = forwardPred[v])
+      upPath.add(v);
+    for (int i = upPath.size() - 1; i >= 0; i--) {
+      int v = upPath.get(i);
+      unpack(forwardPred[v], v, false, forwardEdge[v], path, segmentCosts);
+    }
+    for (int v = meeting; v != targetId; v = backwardSucc[v])
+      unpack(v, backwardSucc[v], true, backwardEdge[v], path, segmentCosts);
+    double totalCost = 0;
+    for (double cost : segmentCosts)
+      totalCost += cost;
+    return new ShortestPathResult<>(path, segmentCosts, totalCost);
+  }
+
+  /**
+   * Returns the list of data values from nodes along the shortest path from the node with the
+   * provided start value through the node with the provided end value, as
+   * DijkstraGraph.shortestPathData would.
+   *
+   * @param start the data item in the starting node for the path
+   * @param end   the data item in the destination node for the path
+   * @return list of data item from node along this shortest path
+   */
+  public List<NodeType> shortestPathData(NodeType start, NodeType end) {
+    return shortestPath(start, end).getNodes();
+  }
+
+  /**
+   * Returns the cost of the shortest path from the node containing the start data to the node
+   * containing the end data, or -1 when there is no such path, as
+   * DijkstraGraph.shortestPathCost would.
+   *
+   * @param start the data item in the starting node for the path
+   * @param end   the data item in the destination node for the path
+   * @return the cost of the shortest path between these nodes
+   */
+  public double shortestPathCost(NodeType start, NodeType end) {
+    try {
+      return shortestPath(start, end).getTotalCost();
+    } catch (NoSuchElementException e) {
+      return -1.0;
+    }
+  }
+
+  /**
+   * Computes the cost of the shortest path from every source to every target
+   * with the bucket method: one backward upward search from each target
+   * leaves the cost it found at every node it settles in a bucket there, and
+   * one forward upward search from each source then combines the cost to
+   * every node it settles with the entries of that node's bucket. Since every
+   * shortest path is found by an upward search from each end meeting at its
+   * highest ranked node, the smallest combination is the cost of the path.
+   * Both sets of searches run in parallel on the threads of a pool, with work
+   * arrays apart from those of single queries, so this may be called while
+   * another thread computes a table or answers a single query.
+   *
+   * @param sources the ids of the row nodes, which may repeat
+   * @param targets the ids of the column nodes, which may repeat
+   * @param pool    the pool whose threads run the searches
+   * @return the cost from sources[i] to targets[j] at [i][j], or infinity
+   *         when there is no such path
+   * @throws IllegalArgumentException if a source or target is not a node id
+   */
+  public double[][] distanceTable(int[] sources, int[] targets, ForkJoinPool pool) {
+    DistanceTable.checkIds(graph, sources);
+    DistanceTable.checkIds(graph, targets);
+    int nodeCount = graph.getNodeCount();
+    ThreadLocal<UpwardSearch> searches =
+        ThreadLocal.withInitial(() -> new UpwardSearch(nodeCount));
+
+    // the nodes settled by the backward search from each target, with their costs
+    int[][] reached = new int[targets.length][];
+    double[][] reachedCosts = new double[targets.length][];
+    DistanceTable.run(pool, targets.length, j -> {
+      UpwardSearch search = searches.get();
+      int count = search.search(targets[j], false);
+      reached[j] = Arrays.copyOf(search.settled, count);
+      reachedCosts[j] = new double[count];
+      for (int i = 0; i < count; i++)
+        reachedCosts[j][i] = search.dist[search.settled[i]];
+    });
+
+    // buckets are stored by node, as the column and cost of each entry
+    int[] bucketOffsets = new int[nodeCount + 1];
+    for (int[] nodes : reached)
+      for (int v : nodes)
+        bucketOffsets[v + 1]++;
+    for (int v = 0; v < nodeCount; v++)
+      bucketOffsets[v + 1] += bucketOffsets[v];
+    int[] bucketColumns = new int[bucketOffsets[nodeCount]];
+    double[] bucketCosts = new double[bucketOffsets[nodeCount]];
+    int[] fill = Arrays.copyOf(bucketOffsets, nodeCount);
+    for (int j = 0; j < targets.length; j++) {
+      for (int i = 0; i < reached[j].length; i++) {
+        int entry = fill[reached[j][i]]++;
+        bucketColumns[entry] = j;
+        bucketCosts[entry] = reachedCosts[j][i];
+      }
+    }
+
+    double[][] table = new double[sources.length][];
+    DistanceTable.run(pool, sources.length, i -> {
+      UpwardSearch search = searches.get();
+      int count = search.search(sources[i], true);
+      double[] row = new double[targets.length];
+      Arrays.fill(row, Double.POSITIVE_INFINITY);
+      for (int k = 0; k < count; k++) {
+        int v = search.settled[k];
+        double cost = search.dist[v];
+        for (int entry = bucketOffsets[v]; entry < bucketOffsets[v + 1]; entry++)
+          row[bucketColumns[entry]] = Math.min(row[bucketColumns[entry]],
+              cost + bucketCosts[entry]);
+      }
+      table[i] = row;
+    });
+    return table;
+  }
+
+  /**
+   * Returns the costs of the shortest paths from every start node to every
+   * end node, as DijkstraGraph.shortestPathCosts would.
+   *
+   * @param starts the data items in the starting nodes of the paths
+   * @param ends   the data items in the destination nodes of the paths
+   * @return the cost from starts[i] to ends[j] at [i][j], or -1 when there is
+   *         no such path or either node is not in the graph
+   */
+  public double[][] shortestPathCosts(List<NodeType> starts, List<NodeType> ends) {
+    return DistanceTable.compute(graph, starts, ends,
+        (sources, targets) -> distanceTable(sources, targets, ForkJoinPool.commonPool()));
+  }
+
+  /**
+   * Work arrays for one thread's upward searches that settle every node they
+   * can reach, for computing distance tables.
+   */
+  protected class UpwardSearch {
+    protected final double[] dist;
+    protected final int[] stamps;
+    protected int stamp = 0;
+    protected final IndexedMinHeap queue;
+    // the nodes settled by the last search, in the order they were settled
+    protected final int[] settled;
+
+    protected UpwardSearch(int nodeCount) {
+      dist = new double[nodeCount];
+      stamps = new int[nodeCount];
+      queue = new IndexedMinHeap(nodeCount);
+      settled = new int[nodeCount];
+    }
+
+    // settles every node reachable from start along up edges, or along down
+    // edges backward, and returns the number of nodes settled
+    protected int search(int start, boolean forward) {
+      stamp++;
+      queue.clear();
+      stamps[start] = stamp;
+      dist[start] = 0;
+      queue.insertOrDecrease(start, 0);
+      int count = 0;
+      while (!queue.isEmpty()) {
+        int v = queue.poll();
+        settled[count++] = v;
+        int[] offsets = forward ? upOffsets : downOffsets;
+        int[] ends = forward ? upTargets : downSources;
+        double[] weights = forward ? upWeights : downWeights;
+        for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+          int w = ends[e];
+          double cost = dist[v] + weights[e];
+          if (stamps[w] != stamp || cost < dist[w]) {
+            stamps[w] = stamp;
+            dist[w] = cost;
+            queue.insertOrDecrease(w, cost);
+          }
+        }
+      }
+      return count;
+    }
+  }
+
+  // runs the upward bidirectional search and returns the best meeting node
+  protected int search(int sourceId, int targetId) {
+    stamp++;
+    settledCount = 0;
+    forwardQueue.clear();
+    backwardQueue.clear();
+    forwardStamp[sourceId] = stamp;
+    forwardDist[sourceId] = 0;
+    forwardQueue.insertOrDecrease(sourceId, 0);
+    backwardStamp[targetId] = stamp;
+    backwardDist[targetId] = 0;
+    backwardQueue.insertOrDecrease(targetId, 0);
+    int meeting = -1;
+    double best = Double.POSITIVE_INFINITY;
+
+    // each side stops on its own once it cannot improve the best path
+    while (!forwardQueue.isEmpty() || !backwardQueue.isEmpty()) {
+      boolean forward = backwardQueue.isEmpty() || (!forwardQueue.isEmpty()
+          && forwardQueue.getPriority(forwardQueue.peek())
+          <= backwardQueue.getPriority(backwardQueue.peek()));
+      IndexedMinHeap queue = forward ? forwardQueue : backwardQueue;
+      if (queue.getPriority(queue.peek()) >= best) {
+        queue.clear();
+        continue;
+      }
+      int v = queue.poll();
+      settledCount++;
+      if (forward) {
+        if (backwardStamp[v] == stamp && forwardDist[v] + backwardDist[v] < best) {
+          best = forwardDist[v] + backwardDist[v];
+          meeting = v;
+        }
+        for (int e = upOffsets[v]; e < upOffsets[v + 1]; e++) {
+          int w = upTargets[e];
+          double cost = forwardDist[v] + upWeights[e];
+          if (forwardStamp[w] != stamp || cost < forwardDist[w]) {
+            forwardStamp[w] = stamp;
+            forwardDist[w] = cost;
+            forwardPred[w] = v;
+            forwardEdge[w] = e;
+            forwardQueue.insertOrDecrease(w, cost);
+          }
+        }
+      } else {
+        if (forwardStamp[v] == stamp && forwardDist[v] + backwardDist[v] < best) {
+          best = forwardDist[v] + backwardDist[v];
+          meeting = v;
+        }
+        for (int e = downOffsets[v]; e < downOffsets[v + 1]; e++) {
+          int u = downSources[e];
+          double cost = backwardDist[v] + downWeights[e];
+          if (backwardStamp[u] != stamp || cost < backwardDist[u]) {
+            backwardStamp[u] = stamp;
+            backwardDist[u] = cost;
+            backwardSucc[u] = v;
+            backwardEdge[u] = e;
+            backwardQueue.insertOrDecrease(u, cost);
+          }
+        }
+      }
+    }
+    return meeting;
+  }
+
+  // appends the original edges that an up edge (stored under u) or a down
+  // edge (stored under w) from u to w stands for
+  protected void unpack(int u, int w, boolean down, int edge, List<NodeType> path,
+      List<Double> segmentCosts) {
+    // each entry is {u, w, 1 if down edge else 0, edge index}, leftmost on top
+    Deque<int[]> stack = new ArrayDeque<>();
+    stack.push(new int[] {u, w, down ? 1 : 0, edge});
+    while (!stack.isEmpty()) {
+      int[] top = stack.pop();
+      boolean isDown = top[2] == 1;
+      int middle = isDown ? downMiddles[top[3]] : upMiddles[top[3]];
+      if (middle == -1) {
+        path.add(graph.getData(top[1]));
+        segmentCosts.add(isDown ? downWeights[top[3]] : upWeights[top[3]]);
+        continue;
+      }
+      // the bypassed node ranks below both ends: u -> middle is a down edge
+      // stored under middle, and middle -> w is an up edge stored under it
+      int second = upOffsets[middle];
+      while (upTargets[second] != top[1])
+        second++;
+      int first = downOffsets[middle];
+      while (downSources[first] != top[0])
+        first++;
+      stack.push(new int[] {middle, top[1], 0, second});
+      stack.push(new int[] {top[0], middle, 1, first});
+    }
+  }
+
+}
@@ -2,10 +2,13 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.ObjDoubleConsumer;
 
 /**
  * This class extends the BaseGraph data structure with additional methods for
@@ -24,31 +27,82 @@ public class DijkstraGraph<NodeType, EdgeType extends Number>
    * field. The total cost of this path is stored in its cost field. And the
    * predecessor SearchNode within this path is referened by the predecessor
    * field (this field is null within the SearchNode containing the starting
-   * node in its node field).
+   * node in its node field). The edge that leads from the predecessor's node
+   * to this node is stored in the edge field (null for the starting node).
    *
-   * SearchNodes are Comparable and are sorted by cost so that the lowest cost
-   * SearchNode has the highest priority within a java.util.PriorityQueue.
+   * SearchNodes are Comparable and are sorted by priority so that the lowest
+   * priority SearchNode is polled first from a java.util.PriorityQueue. The
+   * priority is the cost of the path plus the heuristic estimate of the cost
+   * left to the end node, or just the cost when no heuristic is used.
    */
   protected class SearchNode implements Comparable<SearchNode> {
     public Node node;
     public double cost;
     public SearchNode predecessor;
+    public Edge edge;
+    public double priority;
 
     public SearchNode(Node node, double cost, SearchNode predecessor) {
+      this(node, cost, predecessor, null);
+    }
+
+    public SearchNode(Node node, double cost, SearchNode predecessor, Edge edge) {
+      this(node, cost, predecessor, edge, cost);
+    }
+
+    public SearchNode(Node node, double cost, SearchNode predecessor, Edge edge,
+        double priority) {
       this.node = node;
       this.cost = cost;
       this.predecessor = predecessor;
+      this.edge = edge;
+      this.priority = priority;
     }
 
     public int compareTo(SearchNode other) {
-      if (cost > other.cost)
+      if (priority > other.priority)
         return +1;
-      if (cost < other.cost)
+      if (priority < other.priority)
         return -1;
       return 0;
     }
   }
 
+  // When frozen, searches run on a compact snapshot of this graph instead of
+  // walking its Node and Edge objects
+  protected boolean frozen = false;
+  // The kind of priority queue that searches on the snapshot are run with
+  protected CompactSearch.QueueType queueType = CompactSearch.QueueType.LAZY_DELETION;
+  // Each thread's work arrays for frozen searches, reused until the snapshot is recompiled
+  protected final ThreadLocal<CompactSearch<NodeType>> compactSearch = new ThreadLocal<>();
+  // Guides unidirectional queries toward their end node, or null for plain Dijkstra
+  protected Heuristic<NodeType> heuristic = null;
+  // Each thread's work arrays for bidirectional searches, reused until the snapshot is recompiled
+  protected final ThreadLocal<BidirectionalSearch<NodeType>> bidirectionalSearch =
+      new ThreadLocal<>();
+  // Each thread's work arrays for shortest path trees, reused while the snapshot is unchanged
+  protected final ThreadLocal<CompactSearch<NodeType>> treeSearch = new ThreadLocal<>();
+  // Each thread's work arrays for searches bounded by a budget
+  protected final ThreadLocal<CompactSearch<NodeType>> budgetSearch = new ThreadLocal<>();
+  // Answers "no path" without a search; rebuilt once an edge is added or a node id is freed
+  protected volatile ComponentIndex<NodeType> components = null;
+  // Finds alternative routes on the current snapshot, reusing each thread's search arrays
+  protected volatile KShortestPaths<NodeType> kShortestPaths = null;
+  // Shortest paths from registered sources, repaired after every change to the graph
+  protected OpenAddressingMap<Node, DynamicShortestPaths<NodeType, EdgeType>> dynamicPaths =
+      new OpenAddressingMap<>();
+  protected List<DynamicShortestPaths<NodeType, EdgeType>> dynamicPathList = new ArrayList<>();
+
+  /**
+   * The directions that a shortest path query can search in. UNIDIRECTIONAL grows a single
+   * search forward from the start node. BIDIRECTIONAL also grows a search backward from the end
+   * node along the edges entering each node, and stops once the two searches prove that the best
+   * path where they meet is the shortest.
+   */
+  public enum SearchMode {
+    UNIDIRECTIONAL, BIDIRECTIONAL
+  }
+
   /**
    * Constructor that sets the map that the graph uses.
    * @param map the map that the graph uses to map a data object to the node
@@ -58,6 +112,130 @@ public class DijkstraGraph<NodeType, EdgeType extends Number>
     super(map);
   }
 
+  /**
+   * Registers a node as a source whose shortest paths to every node are kept up to date as this
+   * graph changes. Later queries starting from this node look their answers up instead of
+   * searching, and every change to an edge repairs only the paths that it affects.
+   *
+   * @param source the data item in the node to keep shortest paths from
+   * @return the paths kept for this source
+   * @throws NoSuchElementException when source does not correspond to a graph node
+   */
+  public DynamicShortestPaths<NodeType, EdgeType> registerSource(NodeType source) {
+    if (!containsNode(source)) {
+      throw new NoSuchElementException("Start node not found in the graph.");
+    }
+    materialize();
+    Node node = nodes.get(source);
+    DynamicShortestPaths<NodeType, EdgeType> paths = dynamicPaths.getOrDefault(node, null);
+    if (paths == null) {
+      paths = new DynamicShortestPaths<>(this, node);
+      dynamicPaths.put(node, paths);
+      dynamicPathList.add(paths);
+    }
+    return paths;
+  }
+
+  /**
+   * Stops keeping the shortest paths from a registered source up to date. Sources are also
+   * unregistered when their node is removed.
+   *
+   * @param source the data item in the registered node
+   * @return true if the node was a registered source, or false otherwise
+   */
+  public boolean unregisterSource(NodeType source) {
+    Node node = nodes.getOrDefault(source, null);
+    if (node == null || !dynamicPaths.containsKey(node))
+      return false;
+    dynamicPathList.remove(dynamicPaths.remove(node));
+    return true;
+  }
+
+  /**
+   * Undoes the changes made since an earlier snapshot, as BaseGraph.revertTo
+   * does. The queue type, heuristic and frozen mode stay as they were, and
+   * every registered source that is still a node is registered again, so the
+   * paths returned by earlier calls to registerSource are no longer kept up
+   * to date.
+   *
+   * @param earlier a snapshot this graph returned before the changes to undo
+   */
+  @Override
+  protected void revertTo(CompactGraph<NodeType> earlier) {
+    List<NodeType> sources = new ArrayList<>(dynamicPathList.size());
+    for (DynamicShortestPaths<NodeType, EdgeType> paths : dynamicPathList)
+      sources.add(paths.getSource());
+    dynamicPaths = new OpenAddressingMap<>();
+    dynamicPathList = new ArrayList<>();
+    components = null;
+    kShortestPaths = null;
+    super.revertTo(earlier);
+    for (NodeType source : sources)
+      if (containsNode(source))
+        registerSource(source);
+  }
+
+  // the paths kept for a registered source node, or null
+  protected DynamicShortestPaths<NodeType, EdgeType> dynamicPathsFrom(Node node) {
+    if (node == null || dynamicPathList.isEmpty())
+      return null;
+    return dynamicPaths.getOrDefault(node, null);
+  }
+
+  // the paths kept for the registered source with the provided data, or null
+  protected DynamicShortestPaths<NodeType, EdgeType> dynamicPathsFrom(NodeType data) {
+    if (data == null || dynamicPathList.isEmpty())
+      return null;
+    return dynamicPathsFrom(nodes.getOrDefault(data, null));
+  }
+
+  @Override
+  public boolean removeNode(NodeType data) {
+    Node node = dynamicPathList.isEmpty() ? null : nodes.getOrDefault(data, null);
+    if (node == null)
+      return super.removeNode(data);
+    if (dynamicPaths.containsKey(node))
+      dynamicPathList.remove(dynamicPaths.remove(node));
+    for (DynamicShortestPaths<NodeType, EdgeType> paths : dynamicPathList)
+      paths.nodeRemoving(node.id);
+    boolean removed = super.removeNode(data);
+    for (DynamicShortestPaths<NodeType, EdgeType> paths : dynamicPathList)
+      paths.repair();
+    return removed;
+  }
+
+  @Override
+  protected boolean insertEdgeHelper(Node predNode, Node succNode, EdgeType weight) {
+    Edge existingEdge = dynamicPathList.isEmpty() ? null : predNode.findEdgeTo(succNode);
+    double oldWeight = existingEdge == null ? Double.POSITIVE_INFINITY
+        : existingEdge.data.doubleValue();
+    boolean inserted = super.insertEdgeHelper(predNode, succNode, weight);
+    double newWeight = weight.doubleValue();
+    for (DynamicShortestPaths<NodeType, EdgeType> paths : dynamicPathList) {
+      if (newWeight < oldWeight)
+        paths.edgeShortened(predNode.id, succNode.id, newWeight);
+      else if (newWeight > oldWeight)
+        paths.edgeLengthened(predNode.id, succNode.id);
+    }
+    return inserted;
+  }
+
+  @Override
+  public void insertEdgesById(int[] preds, int[] succs, List<EdgeType> weights) {
+    super.insertEdgesById(preds, succs, weights);
+    for (DynamicShortestPaths<NodeType, EdgeType> paths : dynamicPathList)
+      paths.recompute();
+  }
+
+  @Override
+  protected boolean removeEdgeHelper(Node predNode, Node succNode) {
+    boolean removed = super.removeEdgeHelper(predNode, succNode);
+    if (removed)
+      for (DynamicShortestPaths<NodeType, EdgeType> paths : dynamicPathList)
+        paths.edgeLengthened(predNode.id, succNode.id);
+    return removed;
+  }
+
   /**
    * This helper method creates a network of SearchNodes while computing the shortest path
    * between the provided start and end locations. The SearchNode that is returned by this
@@ -73,42 +251,84 @@ public class DijkstraGraph<NodeType, EdgeType extends Number>
    *                                correspond to a graph node
    */
   protected SearchNode computeShortestPath(NodeType start, NodeType end) {
+    return computeShortestPath(start, end, heuristic);
+  }
+
+  /**
+   * This helper method runs an A* search from the provided start to end locations, which settles
+   * nodes in order of their path cost plus the heuristic's estimate of their cost to the end
+   * node. Without a heuristic, this is exactly Dijkstra's shortest path algorithm. Like
+   * computeShortestPath(start, end), it returns the SearchNode at the end of the shortest path.
+   *
+   * @param start     the data item in the starting node for the path
+   * @param end       the data item in the destination node for the path
+   * @param heuristic estimates the remaining cost from a node to end, or null
+   * @return SearchNode for the final end node within the shortest path
+   * @throws NoSuchElementException when no path from start to end is found
+   *                                or when either start or end data do not
+   *                                correspond to a graph node
+   */
+  protected SearchNode computeShortestPath(NodeType start, NodeType end,
+      Heuristic<NodeType> heuristic) {
 
     //checks if any of the nodes provided are empty and if hte
     if (!containsNode(start) || !containsNode(end) || start == null || end == null) {
       throw new NoSuchElementException("Start or end node not found in the graph.");
     }
+    materialize();
+    return computeShortestPath(nodes.get(start), nodes.get(end), heuristic);
+  }
+
+  /**
+   * The body of computeShortestPath(start, end, heuristic) once the start and end nodes have
+   * been found. Nodes are marked as visited in an array indexed by their ids, and the end node is
+   * recognized by identity, so the search never hashes or compares node data.
+   *
+   * @param startNode the starting node for the path
+   * @param endNode   the destination node for the path
+   * @param heuristic estimates the remaining cost from a node to endNode, or null
+   * @return SearchNode for the final end node within the shortest path
+   * @throws NoSuchElementException when no path from start to end is found
+   */
+  protected SearchNode computeShortestPath(Node startNode, Node endNode,
+      Heuristic<NodeType> heuristic) {
     PriorityQueue<SearchNode> priorityQueue = new PriorityQueue<>(); //make a priorityQueue to
     // store SearchNodes
-    MapADT<NodeType, SearchNode> visitedNode = new PlaceholderMap<>();
-    SearchNode startNode = new SearchNode(nodes.get(start), 0, null);
+    ComponentIndex<NodeType> index = availableComponentIndex();
+    if (index != null && !index.mayReach(startNode.id, endNode.id)) {
+      throw new NoSuchElementException("No path from start to end is found");
+    }
+    // when every node can reach every other, there is nothing to skip
+    boolean prune = index != null && index.getStrongComponentCount() > 1;
+    boolean[] visited = new boolean[getIdBound()];
 
-    priorityQueue.add(startNode); 
+    priorityQueue.add(new SearchNode(startNode, 0, null));
 
     while (!priorityQueue.isEmpty()) {
       SearchNode current = priorityQueue.poll();
 
       // Check if the current node is the end node
-      if (current.node.data.equals(end)) {
+      if (current.node == endNode) {
         return current; // Found the shortest path
       }
 
       // Skip if the current node is already visited
-      if (visitedNode.containsKey(current.node.data)) {
+      if (visited[current.node.id]) {
         continue;
       }
 
       // Mark the current node as visited
-      visitedNode.put(current.node.data, current);
+      visited[current.node.id] = true;
 
       // Explore each edge leaving the current node
       for (Edge edge : current.node.edgesLeaving) {
-        NodeType successorData = edge.successor.data;
-
-        // Only consider unvisited successors
-        if (!visitedNode.containsKey(successorData)) {
+        // Only consider unvisited successors that may still lead to the end node
+        if (!visited[edge.successor.id]
+            && (!prune || index.mayReach(edge.successor.id, endNode.id))) {
           double newPathCost = current.cost + edge.data.doubleValue();
-          SearchNode node = new SearchNode(edge.successor, newPathCost, current);
+          double priority = heuristic == null ? newPathCost
+              : newPathCost + heuristic.estimate(edge.successor.data, endNode.data);
+          SearchNode node = new SearchNode(edge.successor, newPathCost, current, edge, priority);
           priorityQueue.add(node);
         }
       }
@@ -118,6 +338,344 @@ public class DijkstraGraph<NodeType, EdgeType extends Number>
     throw new NoSuchElementException("No path from start to end is found");
   }
 
+  /**
+   * Returns the strongly and weakly connected components of this graph, which queries check
+   * before searching so that they answer at once when there is no path, and which limit their
+   * searches to nodes that may reach the end node. The index is built from the snapshot of this
+   * graph when first needed, and is kept while edges are only removed or made heavier, since
+   * those changes cannot join nodes that had no path between them. Queries only rebuild it when
+   * a current snapshot exists; queries on the nodes of a graph that has just gained an edge
+   * search without it rather than compile a snapshot.
+   *
+   * @return the component index for the current contents of this graph
+   */
+  public ComponentIndex<NodeType> componentIndex() {
+    ComponentIndex<NodeType> index = components;
+    if (index == null || index.getVersion() != shorteningVersion) {
+      int version = shorteningVersion;
+      index = new ComponentIndex<>(snapshot(), version);
+      components = index;
+    }
+    return index;
+  }
+
+  // the component index if it is current, or if a current snapshot exists to build it from,
+  // or else null
+  protected ComponentIndex<NodeType> availableComponentIndex() {
+    ComponentIndex<NodeType> index = components;
+    if (index != null && index.getVersion() == shorteningVersion)
+      return index;
+    CompactGraph<NodeType> current = snapshot;
+    if (current == null || current.getVersion() != version)
+      return null;
+    return componentIndex();
+  }
+
+  /**
+   * Turns frozen mode on or off. While frozen, shortest path queries run on a compact snapshot
+   * of this graph. The graph can still be changed through insertNode, insertEdge, and the remove
+   * methods: a new snapshot is compiled by the first query after each change.
+   *
+   * @param frozen true to run queries on a compact snapshot, false to run them on the nodes
+   */
+  public void setFrozen(boolean frozen) {
+    this.frozen = frozen;
+  }
+
+  /**
+   * Checks whether shortest path queries run on a compact snapshot of this graph.
+   *
+   * @return true if this graph is in frozen mode, false otherwise
+   */
+  public boolean isFrozen() {
+    return frozen;
+  }
+
+  /**
+   * Selects the kind of priority queue that shortest path queries are run with. The default,
+   * LAZY_DELETION, queues a new entry for every relaxation. INDEXED_HEAP keeps each node queued
+   * at most once and lowers its priority in place; since that heap is keyed by node id, selecting
+   * it makes queries run on the compact snapshot of this graph even when it is not frozen.
+   *
+   * @param queueType the kind of priority queue to search with
+   */
+  public void setQueueType(CompactSearch.QueueType queueType) {
+    this.queueType = queueType;
+  }
+
+  /**
+   * Returns the kind of priority queue that shortest path queries are run with.
+   *
+   * @return the queue type used by this graph's searches
+   */
+  public CompactSearch.QueueType getQueueType() {
+    return queueType;
+  }
+
+  /**
+   * Checks whether queries run on the compact snapshot of this graph, either because it is
+   * frozen or because the selected queue type needs node ids.
+   *
+   * @return true if queries run on the snapshot, false if they run on the nodes
+   */
+  protected boolean searchesSnapshot() {
+    return frozen || queueType == CompactSearch.QueueType.INDEXED_HEAP;
+  }
+
+  /**
+   * Sets the heuristic that guides this graph's unidirectional queries, turning them into A*
+   * searches. With no heuristic (null, the default) they fall back to plain Dijkstra searches.
+   *
+   * @param heuristic an admissible and consistent heuristic, or null
+   */
+  public void setHeuristic(Heuristic<NodeType> heuristic) {
+    this.heuristic = heuristic;
+  }
+
+  /**
+   * Returns the heuristic that guides this graph's unidirectional queries.
+   *
+   * @return the heuristic used by queries, or null when they run plain Dijkstra searches
+   */
+  public Heuristic<NodeType> getHeuristic() {
+    return heuristic;
+  }
+
+  /**
+   * This helper method runs Dijkstra's algorithm (or A*, when a heuristic is provided) on the
+   * current snapshot of this graph, and returns the search that holds the resulting shortest
+   * path. Each thread searches with its own work arrays, so that threads may query a graph
+   * at the same time as long as none of them changes it.
+   *
+   * @param start     the data item in the starting node for the path
+   * @param end       the data item in the destination node for the path
+   * @param heuristic estimates the remaining cost from a node to end, or null
+   * @return the CompactSearch whose last search reached end
+   * @throws NoSuchElementException when no path from start to end is found
+   *                                or when either start or end data do not
+   *                                correspond to a graph node
+   */
+  protected CompactSearch<NodeType> computeCompactPath(NodeType start, NodeType end,
+      Heuristic<NodeType> heuristic) {
+    return computeCompactPath(getId(start), getId(end), heuristic);
+  }
+
+  // the body of computeCompactPath once the ids of the start and end nodes are known
+  protected CompactSearch<NodeType> computeCompactPath(int source, int target,
+      Heuristic<NodeType> heuristic) {
+    CompactGraph<NodeType> graph = snapshot();
+    if (!graph.containsId(source) || !graph.containsId(target)) {
+      throw new NoSuchElementException("Start or end node not found in the graph.");
+    }
+    ComponentIndex<NodeType> index = availableComponentIndex();
+    if (index != null && !index.mayReach(source, target)) {
+      throw new NoSuchElementException("No path from start to end is found");
+    }
+    if (index != null && index.getStrongComponentCount() > 1) {
+      heuristic = index.restrict(heuristic);
+    }
+    CompactSearch<NodeType> search = compactSearch.get();
+    if (search == null || search.getGraph() != graph || search.getQueueType() != queueType) {
+      search = new CompactSearch<>(graph, queueType);
+      compactSearch.set(search);
+    }
+    if (!search.search(source, target, heuristic)) {
+      throw new NoSuchElementException("No path from start to end is found");
+    }
+    return search;
+  }
+
+  /**
+   * Returns the shortest path from the node with the provided start value to the node with the
+   * provided end value, as found by a single run of Dijkstra's algorithm. The result holds the
+   * data of the nodes along that path, the weight of each edge along it, and its total cost.
+   *
+   * @param start the data item in the starting node for the path
+   * @param end   the data item in the destination node for the path
+   * @return the nodes, edge weights, and total cost of this shortest path
+   * @throws NoSuchElementException when no path from start to end is found
+   *                                or when either start or end data do not
+   *                                correspond to a graph node
+   */
+  public ShortestPathResult<NodeType> shortestPath(NodeType start, NodeType end) {
+    return shortestPath(start, end, heuristic);
+  }
+
+  /**
+   * Returns the shortest path from the node with the provided start value to the node with the
+   * provided end value, as found by a single A* search guided by the provided heuristic. When
+   * the heuristic is null, this falls back to a plain run of Dijkstra's algorithm.
+   *
+   * @param start     the data item in the starting node for the path
+   * @param end       the data item in the destination node for the path
+   * @param heuristic estimates the remaining cost from a node to end, or null
+   * @return the nodes, edge weights, and total cost of this shortest path
+   * @throws NoSuchElementException when no path from start to end is found
+   *                                or when either start or end data do not
+   *                                correspond to a graph node
+   */
+  public ShortestPathResult<NodeType> shortestPath(NodeType start, NodeType end,
+      Heuristic<NodeType> heuristic) {
+    DynamicShortestPaths<NodeType, EdgeType> paths = dynamicPathsFrom(start);
+    if (paths != null) {
+      return paths.getPathResult(end);
+    }
+    if (searchesSnapshot()) {
+      return computeCompactPath(start, end, heuristic).getPathResult(snapshot().getId(end));
+    }
+
+    return pathResult(computeShortestPath(start, end, heuristic));
+  }
+
+  /**
+   * Returns the shortest path from the node with the provided start id to the node with the
+   * provided end id, as shortestPath(start, end) does for node data.
+   *
+   * @param start the id of the starting node for the path
+   * @param end   the id of the destination node for the path
+   * @return the nodes, edge weights, and total cost of this shortest path
+   * @throws NoSuchElementException when no path from start to end is found
+   *                                or when either start or end are not the
+   *                                ids of graph nodes
+   */
+  public ShortestPathResult<NodeType> shortestPathById(int start, int end) {
+    DynamicShortestPaths<NodeType, EdgeType> paths =
+        dynamicPathList.isEmpty() || !containsId(start) ? null
+            : dynamicPathsFrom(nodesById.get(start));
+    if (paths != null && containsId(end)) {
+      return paths.getPathResult(getData(end));
+    }
+    if (searchesSnapshot()) {
+      return computeCompactPath(start, end, heuristic).getPathResult(end);
+    }
+    if (!containsId(start) || !containsId(end)) {
+      throw new NoSuchElementException("Start or end node not found in the graph.");
+    }
+    materialize();
+    return pathResult(computeShortestPath(nodesById.get(start), nodesById.get(end), heuristic));
+  }
+
+  /**
+   * Returns the cost of the shortest path from the node with the provided start id to the node
+   * with the provided end id, as shortestPathCost(start, end) does for node data.
+   *
+   * @param start the id of the starting node for the path
+   * @param end   the id of the destination node for the path
+   * @return the cost of the shortest path between these nodes, or -1 when
+   *         there is no such path
+   */
+  public double shortestPathCostById(int start, int end) {
+    try {
+      DynamicShortestPaths<NodeType, EdgeType> paths =
+          dynamicPathList.isEmpty() || !containsId(start) ? null
+            : dynamicPathsFrom(nodesById.get(start));
+      if (paths != null) {
+        double cost = paths.getCost(end);
+        return containsId(end) && cost != Double.POSITIVE_INFINITY ? cost : -1.0;
+      }
+      if (searchesSnapshot()) {
+        return computeCompactPath(start, end, heuristic).getCost(end);
+      }
+      if (!containsId(start) || !containsId(end)) {
+        return -1.0;
+      }
+      materialize();
+      return computeShortestPath(nodesById.get(start), nodesById.get(end), heuristic).cost;
+    }
+    catch (NoSuchElementException e) {
+      return -1.0;
+    }
+  }
+
+  // the nodes, edge weights, and total cost of the path ending at a SearchNode
+  protected ShortestPathResult<NodeType> pathResult(SearchNode last) {
+    LinkedList<NodeType> path = new LinkedList<>();
+    LinkedList<Double> segmentCosts = new LinkedList<>();
+    // Backtrack from the end node, reading each segment's weight off its edge
+    for (SearchNode current = last; current != null; current = current.predecessor) {
+      path.addFirst(current.node.data);
+      if (current.edge != null) {
+        segmentCosts.addFirst(current.edge.data.doubleValue());
+      }
+    }
+    return new ShortestPathResult<>(path, segmentCosts, last.cost);
+  }
+
+  /**
+   * Returns the shortest path from the node with the provided start value to the node with the
+   * provided end value, searching in the provided direction. Bidirectional searches always run
+   * on the compact snapshot of this graph.
+   *
+   * @param start the data item in the starting node for the path
+   * @param end   the data item in the destination node for the path
+   * @param mode  the direction to search in
+   * @return the nodes, edge weights, and total cost of this shortest path
+   * @throws NoSuchElementException when no path from start to end is found
+   *                                or when either start or end data do not
+   *                                correspond to a graph node
+   */
+  public ShortestPathResult<NodeType> shortestPath(NodeType start, NodeType end,
+      SearchMode mode) {
+    if (mode == SearchMode.UNIDIRECTIONAL) {
+      return shortestPath(start, end);
+    }
+
+    CompactGraph<NodeType> graph = snapshot();
+    int source = graph.getId(start);
+    int target = graph.getId(end);
+    if (source == -1 || target == -1) {
+      throw new NoSuchElementException("Start or end node not found in the graph.");
+    }
+    ComponentIndex<NodeType> index = availableComponentIndex();
+    if (index != null && !index.mayReach(source, target)) {
+      throw new NoSuchElementException("No path from start to end is found");
+    }
+    BidirectionalSearch<NodeType> search = bidirectionalSearch.get();
+    if (search == null || search.getGraph() != graph) {
+      search = new BidirectionalSearch<>(graph);
+      bidirectionalSearch.set(search);
+    }
+    if (!search.search(source, target)) {
+      throw new NoSuchElementException("No path from start to end is found");
+    }
+    return search.getPathResult();
+  }
+
+  /**
+   * Returns up to count loopless paths from the node with the provided start value to the node
+   * with the provided end value, cheapest first, such as a shortest route and its best
+   * alternatives. The paths are found on the compact snapshot of this graph with Yen's
+   * algorithm, whose spur searches run in parallel on the common ForkJoinPool.
+   *
+   * @param start the data item in the starting node for the paths
+   * @param end   the data item in the destination node for the paths
+   * @param count the largest number of paths to return
+   * @return the nodes, edge weights, and total cost of each path, cheapest first
+   * @throws NoSuchElementException   when no path from start to end is found
+   *                                  or when either start or end data do not
+   *                                  correspond to a graph node
+   * @throws IllegalArgumentException if count is not positive
+   */
+  public List<ShortestPathResult<NodeType>> shortestPaths(NodeType start, NodeType end,
+      int count) {
+    CompactGraph<NodeType> graph = snapshot();
+    int source = graph.getId(start);
+    int target = graph.getId(end);
+    if (source == -1 || target == -1) {
+      throw new NoSuchElementException("Start or end node not found in the graph.");
+    }
+    ComponentIndex<NodeType> index = availableComponentIndex();
+    if (index != null && !index.mayReach(source, target)) {
+      throw new NoSuchElementException("No path from start to end is found");
+    }
+    KShortestPaths<NodeType> paths = kShortestPaths;
+    if (paths == null || paths.getGraph() != graph) {
+      paths = new KShortestPaths<>(graph, ForkJoinPool.commonPool());
+      kShortestPaths = paths;
+    }
+    return paths.find(source, target, count);
+  }
+
   /**
    * Returns the list of data values from nodes along the shortest path from the node with the
    * provided start value through the node with the provided end value. This list of data values
@@ -130,6 +688,14 @@ public class DijkstraGraph<NodeType, EdgeType extends Number>
    * @return list of data item from node along this shortest path
    */
   public List<NodeType> shortestPathData(NodeType start, NodeType end) {
+    DynamicShortestPaths<NodeType, EdgeType> paths = dynamicPathsFrom(start);
+    if (paths != null) {
+      return paths.getPathData(end);
+    }
+    if (searchesSnapshot()) {
+      return computeCompactPath(start, end, heuristic).getPathData(snapshot().getId(end));
+    }
+
     // Initialize the linked list to store the path
     LinkedList<NodeType> path = new LinkedList<>();
 
@@ -158,6 +724,13 @@ public class DijkstraGraph<NodeType, EdgeType extends Number>
    */
   public double shortestPathCost(NodeType start, NodeType end) {
     try {
+      DynamicShortestPaths<NodeType, EdgeType> paths = dynamicPathsFrom(start);
+      if (paths != null) {
+        return paths.getCost(end);
+      }
+      if (searchesSnapshot()) {
+        return computeCompactPath(start, end, heuristic).getCost(snapshot().getId(end));
+      }
       return computeShortestPath(start, end).cost;
     }
     catch (Exception e) {
@@ -165,6 +738,181 @@ public class DijkstraGraph<NodeType, EdgeType extends Number>
     }
   }
 
+  /**
+   * Returns the costs of the shortest paths from every start node to every end node, such as
+   * the travel times from 50 dorms to 200 lecture halls. Rather than one search for each pair,
+   * this runs one search on the compact snapshot of this graph from each start node, which
+   * stops once it has settled every end node, and runs those searches in parallel on the common
+   * ForkJoinPool.
+   *
+   * @param starts the data items in the starting nodes of the paths
+   * @param ends   the data items in the destination nodes of the paths
+   * @return the cost from starts[i] to ends[j] at [i][j], or -1 when there is no such path or
+   *         either node is not in the graph, as shortestPathCost would return
+   */
+  public double[][] shortestPathCosts(List<NodeType> starts, List<NodeType> ends) {
+    CompactGraph<NodeType> graph = snapshot();
+    return DistanceTable.compute(graph, starts, ends, (sources, targets) ->
+        DistanceTable.compute(graph, sources, targets, ForkJoinPool.commonPool()));
+  }
+
+  /**
+   * Returns a short tour that starts at the first stop and visits every other stop, in whatever
+   * order is cheapest, such as a maintenance crew's route through the buildings of one shift.
+   * The order is planned by a TourPlanner on the compact snapshot of this graph using the
+   * threads of the common ForkJoinPool, and the shortest paths between consecutive stops are
+   * joined into one path.
+   *
+   * @param stops            the data items in the nodes to visit, starting with the first
+   * @param roundTrip        whether the tour returns to the first stop at the end
+   * @param timeBudgetMillis the time allowed for improving the order of the stops
+   * @return the nodes, edge weights, and total cost of the tour
+   * @throws NoSuchElementException   when a stop does not correspond to a graph node,
+   *                                  or no tour can visit every stop
+   * @throws IllegalArgumentException if there are no stops or the budget is negative
+   */
+  public ShortestPathResult<NodeType> shortestTour(List<NodeType> stops, boolean roundTrip,
+      long timeBudgetMillis) {
+    return new TourPlanner<>(snapshot(), ForkJoinPool.commonPool())
+        .plan(stops, roundTrip, timeBudgetMillis);
+  }
+
+  /**
+   * Returns the shortest paths from the node with the provided start value to every node of the
+   * graph, as found by a single run of Dijkstra's algorithm over a snapshot of the graph.
+   *
+   * @param start the data item in the starting node for every path
+   * @return a new tree holding the cost and predecessor of every node
+   * @throws NoSuchElementException when start does not correspond to a graph node
+   */
+  public ShortestPathTree<NodeType> shortestPathTree(NodeType start) {
+    return shortestPathTree(start, new ShortestPathTree<>());
+  }
+
+  /**
+   * Refills the provided tree with the shortest paths from the node with the provided start
+   * value to every node of the graph. Each thread keeps its own work arrays, which are reused
+   * until the graph changes, and the tree's arrays are reused while the node count stays the
+   * same, so repeated calls allocate nothing. Several threads may build trees at once, as long
+   * as none of them changes the graph meanwhile.
+   *
+   * @param start the data item in the starting node for every path
+   * @param tree  the tree to overwrite with the result
+   * @return the provided tree
+   * @throws NoSuchElementException when start does not correspond to a graph node
+   */
+  public ShortestPathTree<NodeType> shortestPathTree(NodeType start,
+      ShortestPathTree<NodeType> tree) {
+    return shortestPathTreeById(getId(start), tree);
+  }
+
+  /**
+   * Refills the provided tree with the shortest paths from the node with the provided start id
+   * to every node of the graph, as shortestPathTree(start, tree) does for node data.
+   *
+   * @param start the id of the starting node for every path
+   * @param tree  the tree to overwrite with the result
+   * @return the provided tree
+   * @throws NoSuchElementException when start is not the id of a graph node
+   */
+  public ShortestPathTree<NodeType> shortestPathTreeById(int start,
+      ShortestPathTree<NodeType> tree) {
+    CompactGraph<NodeType> graph = snapshot();
+    int source = start;
+    if (!graph.containsId(source)) {
+      throw new NoSuchElementException("Start node not found in the graph.");
+    }
+    CompactSearch<NodeType> search = treeSearch.get();
+    if (search == null || search.getGraph() != graph) {
+      search = new CompactSearch<>(graph, CompactSearch.QueueType.INDEXED_HEAP);
+      treeSearch.set(search);
+    }
+    search.search(source, -1);
+    tree.fill(search, source);
+    return tree;
+  }
+
+  /**
+   * Passes every node that can be reached from the node with the provided start value within a
+   * budget to the visitor, along with the cost of its shortest path, in order of increasing cost.
+   * The search never extends a path past the budget, so it costs only as much as the part of the
+   * graph within the budget. The visitor must not run another budgeted search on this graph.
+   *
+   * @param start   the data item in the starting node
+   * @param budget  the largest path cost to visit
+   * @param visitor receives the data of each node within the budget and the cost to reach it
+   * @return the number of nodes within the budget, including the start node
+   * @throws NoSuchElementException   when start does not correspond to a graph node
+   * @throws IllegalArgumentException if budget is negative or not a number
+   */
+  public int reachableWithin(NodeType start, double budget, ObjDoubleConsumer<NodeType> visitor) {
+    CompactGraph<NodeType> graph = snapshot();
+    return budgetSearch(graph, start).searchWithin(graph.getId(start), budget, (node, cost) -> {
+      visitor.accept(graph.getData(node), cost);
+      return true;
+    });
+  }
+
+  /**
+   * Returns the nodes that can be reached from the node with the provided start value within
+   * each of several budgets, such as 60, 120, and 300 seconds, from a single search bounded by
+   * the largest of them. Each list holds the data of the nodes within its budget in order of
+   * increasing cost, starting with the start node; since a smaller budget's nodes are the first
+   * nodes of a larger one's, the lists are views of one shared list.
+   *
+   * @param start   the data item in the starting node
+   * @param budgets the largest path cost of each list, in any order
+   * @return for each budget, in the order given, the nodes within it
+   * @throws NoSuchElementException   when start does not correspond to a graph node
+   * @throws IllegalArgumentException if a budget is negative or not a number
+   */
+  public List<List<NodeType>> reachableWithin(NodeType start, double[] budgets) {
+    double largest = 0;
+    for (double budget : budgets) {
+      if (!(budget >= 0)) {
+        throw new IllegalArgumentException("budget must not be negative");
+      }
+      largest = Math.max(largest, budget);
+    }
+    CompactGraph<NodeType> graph = snapshot();
+    CompactSearch<NodeType> search = budgetSearch(graph, start);
+    List<NodeType> nodes = new ArrayList<>();
+    search.searchWithin(graph.getId(start), largest,
+        (node, cost) -> nodes.add(graph.getData(node)));
+
+    // nodes are visited in order of increasing cost, so each budget's nodes
+    // come first, and the number of them can be found by binary search
+    List<NodeType> visited = Collections.unmodifiableList(nodes);
+    List<List<NodeType>> result = new ArrayList<>(budgets.length);
+    for (double budget : budgets) {
+      int low = 0;
+      int high = nodes.size();
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (search.getCost(graph.getId(nodes.get(middle))) <= budget) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      result.add(visited.subList(0, low));
+    }
+    return result;
+  }
+
+  // this thread's search for budgeted queries from a node of the snapshot
+  protected CompactSearch<NodeType> budgetSearch(CompactGraph<NodeType> graph, NodeType start) {
+    if (graph.getId(start) == -1) {
+      throw new NoSuchElementException("Start node not found in the graph.");
+    }
+    CompactSearch<NodeType> search = budgetSearch.get();
+    if (search == null || search.getGraph() != graph) {
+      search = new CompactSearch<>(graph, CompactSearch.QueueType.INDEXED_HEAP);
+      budgetSearch.set(search);
+    }
+    return search;
+  }
+
 
   /**
    * Test method for verifying the shortest path computation from node D to I.
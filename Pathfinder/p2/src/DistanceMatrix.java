@@ -0,0 +1,240 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The cost of the shortest path between every pair of nodes of a graph
+ * snapshot, stored as one dense row-major matrix: the cost from node i to
+ * node j is entry i * getNodeCount() + j. A matrix is computed by running one
+ * single-source search per node, spread across the threads of a ForkJoinPool,
+ * and can be written to a file and memory-mapped back later without being
+ * recomputed or read into the heap.
+ *
+ * @param <NodeType> the data type stored at each node of the graph
+ */
+public class DistanceMatrix<NodeType> {
+
+  // Identifies files written by save()
+  private static final int FILE_MAGIC = 0x41504D31; // "APM1"
+  // The costs in a file start at a multiple of this many bytes
+  private static final int COST_ALIGNMENT = 8;
+  // The costs are held in blocks of 2^BLOCK_SHIFT doubles (1 GiB), since one
+  // buffer mapped from a file cannot span 2 GiB or more
+  private static final int BLOCK_SHIFT = 27;
+  private static final int BLOCK_MASK = (1 << BLOCK_SHIFT) - 1;
+
+  protected final CompactGraph<NodeType> graph;
+  protected final int nodeCount;
+  // the row-major costs in consecutive blocks, with infinity for pairs with no path
+  protected final DoubleBuffer[] costs;
+
+  /**
+   * Constructor that wraps the costs of every pair of a snapshot's nodes.
+   *
+   * @param graph the snapshot whose node ids index the matrix
+   * @param costs the row-major costs in blocks of 2^BLOCK_SHIFT doubles, all
+   *              but the last of them full, with infinity for pairs with no path
+   */
+  protected DistanceMatrix(CompactGraph<NodeType> graph, DoubleBuffer[] costs) {
+    this.graph = graph;
+    this.nodeCount = graph.getNodeCount();
+    this.costs = costs;
+  }
+
+  // the number of blocks that hold the costs of a matrix with this many nodes
+  private static int blockCount(int nodeCount) {
+    return (int) (((long) nodeCount * nodeCount + BLOCK_MASK) >>> BLOCK_SHIFT);
+  }
+
+  // the number of costs in one block of a matrix with this many nodes
+  private static int blockSize(int nodeCount, int block) {
+    return (int) Math.min(1 << BLOCK_SHIFT,
+        (long) nodeCount * nodeCount - ((long) block << BLOCK_SHIFT));
+  }
+
+  // the cost at an index of the row-major order
+  private double get(int index) {
+    return costs[index >>> BLOCK_SHIFT].get(index & BLOCK_MASK);
+  }
+
+  /**
+   * Computes the costs between every pair of nodes of a graph, using every
+   * thread of the common ForkJoinPool.
+   *
+   * @param graph the graph to compute the costs of
+   * @return the matrix of costs between the graph's current nodes
+   * @throws IllegalArgumentException if the graph has too many nodes for the
+   *                                  matrix to fit in one array
+   */
+  public static <NodeType> DistanceMatrix<NodeType> compute(BaseGraph<NodeType, ?> graph) {
+    return compute(graph.snapshot(), ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Computes the costs between every pair of nodes of a snapshot, with one
+   * search per node run on the threads of the provided pool. Each thread
+   * reuses one set of search arrays for every row it computes, and writes
+   * each row straight into its place in the matrix.
+   *
+   * @param graph the snapshot to compute the costs of
+   * @param pool  the pool whose threads run the searches
+   * @return the matrix of costs between the snapshot's nodes
+   * @throws IllegalArgumentException if the snapshot has too many nodes for
+   *                                  the matrix to fit in one array
+   */
+  public static <NodeType> DistanceMatrix<NodeType> compute(CompactGraph<NodeType> graph,
+      ForkJoinPool pool) {
+    int nodeCount = graph.getNodeCount();
+    if ((long) nodeCount * nodeCount > Integer.MAX_VALUE - 8)
+      throw new IllegalArgumentException("a graph with " + nodeCount
+          + " nodes has too many pairs for one matrix");
+    double[] costs = new double[nodeCount * nodeCount];
+    ThreadLocal<CompactSearch<NodeType>> searches = ThreadLocal.withInitial(
+        () -> new CompactSearch<>(graph, CompactSearch.QueueType.INDEXED_HEAP));
+    DistanceTable.run(pool, nodeCount, source -> {
+      CompactSearch<NodeType> search = searches.get();
+      search.search(source, -1);
+      int row = source * nodeCount;
+      for (int v = 0; v < nodeCount; v++)
+        costs[row + v] = search.getCost(v);
+    });
+    DoubleBuffer[] blocks = new DoubleBuffer[blockCount(nodeCount)];
+    for (int block = 0; block < blocks.length; block++)
+      blocks[block] = DoubleBuffer.wrap(costs, block << BLOCK_SHIFT,
+          blockSize(nodeCount, block)).slice();
+    return new DistanceMatrix<>(graph, blocks);
+  }
+
+  /**
+   * Return the snapshot whose node ids index this matrix.
+   *
+   * @return the snapshot this matrix was computed or loaded for
+   */
+  public CompactGraph<NodeType> getGraph() {
+    return graph;
+  }
+
+  /**
+   * Return the number of rows, and of columns, of this matrix.
+   *
+   * @return the number of nodes in this matrix's snapshot
+   */
+  public int getNodeCount() {
+    return nodeCount;
+  }
+
+  /**
+   * Return the cost of the shortest path between two nodes.
+   *
+   * @param source the id of the starting node
+   * @param target the id of the destination node
+   * @return the cost of that path, or infinity when there is no such path
+   */
+  public double getCost(int source, int target) {
+    return get(source * nodeCount + target);
+  }
+
+  /**
+   * Return the cost of the shortest path from the node containing the start
+   * data to the node containing the end data, or -1 when there is no such
+   * path, as DijkstraGraph.shortestPathCost would.
+   *
+   * @param start the data item in the starting node for the path
+   * @param end   the data item in the destination node for the path
+   * @return the cost of the shortest path between these nodes
+   */
+  public double getCost(NodeType start, NodeType end) {
+    int source = graph.getId(start);
+    int target = graph.getId(end);
+    if (source == -1 || target == -1)
+      return -1.0;
+    double cost = getCost(source, target);
+    return cost == Double.POSITIVE_INFINITY ? -1.0 : cost;
+  }
+
+  /**
+   * Writes this matrix to a file. The file holds a short header naming every
+   * node, followed by the costs as raw doubles in row-major order.
+   *
+   * @param file the file to write, for example campus.dot.matrix next to campus.dot
+   * @throws IOException if the file cannot be written
+   */
+  public void save(File file) throws IOException {
+    ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+    DataOutputStream header = new DataOutputStream(headerBytes);
+    header.writeInt(FILE_MAGIC);
+    header.writeInt(nodeCount);
+    header.writeInt(graph.getEdgeCount());
+    for (int id = 0; id < nodeCount; id++)
+      header.writeUTF(String.valueOf(graph.getData(id)));
+    // pad so that the costs can be mapped as aligned doubles
+    while (header.size() % COST_ALIGNMENT != 0)
+      header.writeByte(0);
+
+    try (RandomAccessFile out = new RandomAccessFile(file, "rw");
+        FileChannel channel = out.getChannel()) {
+      channel.truncate(0);
+      channel.write(ByteBuffer.wrap(headerBytes.toByteArray()));
+      ByteBuffer chunk = ByteBuffer.allocateDirect(1 << 16);
+      DoubleBuffer chunkCosts = chunk.asDoubleBuffer();
+      for (int i = 0; i < nodeCount * nodeCount; ) {
+        chunkCosts.clear();
+        while (chunkCosts.hasRemaining() && i < nodeCount * nodeCount)
+          chunkCosts.put(get(i++));
+        chunk.clear().limit(chunkCosts.position() * Double.BYTES);
+        while (chunk.hasRemaining())
+          channel.write(chunk);
+      }
+    }
+  }
+
+  /**
+   * Memory-maps a matrix written by save() for the provided graph. The costs
+   * are read from the file as they are needed, rather than copied into the
+   * heap, and are mapped in blocks of 1 GiB so that every matrix that compute()
+   * accepts can be loaded. The file must have been written for a graph with
+   * the same nodes, in the same order, and the same number of edges.
+   *
+   * @param graph the graph whose costs are stored in the file
+   * @param file  the file to map
+   * @return a matrix backed by the file
+   * @throws IOException if the file cannot be read or was written for a different graph
+   */
+  public static <NodeType> DistanceMatrix<NodeType> load(BaseGraph<NodeType, ?> graph,
+      File file) throws IOException {
+    CompactGraph<NodeType> snapshot = graph.snapshot();
+    try (RandomAccessFile in = new RandomAccessFile(file, "r");
+        FileChannel channel = in.getChannel()) {
+      if (in.length() < 12 || in.readInt() != FILE_MAGIC)
+        throw new IOException(file + " is not a distance matrix file");
+      int nodeCount = in.readInt();
+      int edgeCount = in.readInt();
+      if (nodeCount != snapshot.getNodeCount() || edgeCount != snapshot.getEdgeCount())
+        throw new IOException(file + " was written for a different graph");
+      if ((long) nodeCount * nodeCount > Integer.MAX_VALUE - 8)
+        throw new IOException(file + " holds too many pairs for one matrix");
+      for (int id = 0; id < nodeCount; id++)
+        if (!in.readUTF().equals(String.valueOf(snapshot.getData(id))))
+          throw new IOException(file + " was written for a different graph");
+      long start = (in.getFilePointer() + COST_ALIGNMENT - 1) / COST_ALIGNMENT
+          * COST_ALIGNMENT;
+      long size = (long) nodeCount * nodeCount * Double.BYTES;
+      if (start + size != channel.size())
+        throw new IOException(file + " is truncated");
+      // each block is mapped on its own, and stays valid after the channel is closed
+      DoubleBuffer[] costs = new DoubleBuffer[blockCount(nodeCount)];
+      for (int block = 0; block < costs.length; block++)
+        costs[block] = channel.map(FileChannel.MapMode.READ_ONLY,
+            start + ((long) block << BLOCK_SHIFT) * Double.BYTES,
+            (long) blockSize(nodeCount, block) * Double.BYTES).asDoubleBuffer();
+      return new DistanceMatrix<>(snapshot, costs);
+    }
+  }
+
+}
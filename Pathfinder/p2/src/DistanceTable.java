@@ -0,0 +1,137 @@
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Computes many-to-many tables of shortest path costs, such as the travel
+ * time from each of 50 dorms to each of 200 lecture halls, into a primitive
+ * double[sources][targets] array. Each row is found by one search from its
+ * source, which stops as soon as every target is settled, and the rows are
+ * computed in parallel on the threads of a ForkJoinPool, which only read the
+ * snapshot. ContractionHierarchy.distanceTable computes the same tables with
+ * far smaller searches once a hierarchy is built.
+ */
+public class DistanceTable {
+
+  /**
+   * Computes the cost of the shortest path from every source to every target
+   * of a snapshot, with one search per source.
+   *
+   * @param graph   the snapshot to search
+   * @param sources the ids of the row nodes, which may repeat
+   * @param targets the ids of the column nodes, which may repeat
+   * @param pool    the pool whose threads run the searches
+   * @return the cost from sources[i] to targets[j] at [i][j], or infinity
+   *         when there is no such path
+   * @throws IllegalArgumentException if a source or target is not a node id
+   */
+  public static <NodeType> double[][] compute(CompactGraph<NodeType> graph, int[] sources,
+      int[] targets, ForkJoinPool pool) {
+    checkIds(graph, sources);
+    checkIds(graph, targets);
+    // every target is marked once, so that a search knows when it has settled them all
+    boolean[] isTarget = new boolean[graph.getNodeCount()];
+    int distinctTargets = 0;
+    for (int target : targets) {
+      if (!isTarget[target]) {
+        isTarget[target] = true;
+        distinctTargets++;
+      }
+    }
+    int targetCount = distinctTargets;
+    double[][] table = new double[sources.length][];
+    ThreadLocal<CompactSearch<NodeType>> searches = ThreadLocal.withInitial(
+        () -> new CompactSearch<>(graph, CompactSearch.QueueType.INDEXED_HEAP));
+    run(pool, sources.length, i -> {
+      double[] row = new double[targets.length];
+      if (targetCount == 0) {
+        table[i] = row;
+        return;
+      }
+      CompactSearch<NodeType> search = searches.get();
+      int[] settled = {0};
+      search.searchWithin(sources[i], Double.POSITIVE_INFINITY,
+          (node, cost) -> !isTarget[node] || ++settled[0] < targetCount);
+      for (int j = 0; j < targets.length; j++)
+        row[j] = search.getCost(targets[j]);
+      table[i] = row;
+    });
+    return table;
+  }
+
+  /**
+   * Return the ids of nodes in a snapshot, with -1 for data that is not a node.
+   *
+   * @param graph the snapshot whose ids are looked up
+   * @param nodes the data items of the nodes
+   * @return the id of each node, in the same order
+   */
+  public static <NodeType> int[] getIds(CompactGraph<NodeType> graph, List<NodeType> nodes) {
+    int[] ids = new int[nodes.size()];
+    for (int i = 0; i < ids.length; i++)
+      ids[i] = graph.getId(nodes.get(i));
+    return ids;
+  }
+
+  /**
+   * Computes a table between node data the way DijkstraGraph.shortestPathCost
+   * answers single queries: with -1 for pairs with no path, and for rows and
+   * columns whose data is not a node.
+   *
+   * @param graph    the snapshot whose nodes are looked up
+   * @param starts   the data items of the row nodes
+   * @param ends     the data items of the column nodes
+   * @param computer computes the table between the ids of the nodes found
+   * @return the cost from starts[i] to ends[j] at [i][j], or -1
+   */
+  public static <NodeType> double[][] compute(CompactGraph<NodeType> graph, List<NodeType> starts,
+      List<NodeType> ends, TableComputer computer) {
+    int[] sources = getIds(graph, starts);
+    int[] targets = getIds(graph, ends);
+    int[] foundSources = IntStream.of(sources).filter(id -> id != -1).toArray();
+    int[] foundTargets = IntStream.of(targets).filter(id -> id != -1).toArray();
+    double[][] found = computer.compute(foundSources, foundTargets);
+    double[][] table = new double[sources.length][targets.length];
+    for (int i = 0, row = 0; i < sources.length; i++) {
+      for (int j = 0, column = 0; j < targets.length; j++) {
+        double cost = sources[i] == -1 || targets[j] == -1 ? -1.0 : found[row][column++];
+        table[i][j] = cost == Double.POSITIVE_INFINITY ? -1.0 : cost;
+      }
+      if (sources[i] != -1)
+        row++;
+    }
+    return table;
+  }
+
+  /**
+   * Computes a table of costs between node ids, such as DistanceTable.compute
+   * or ContractionHierarchy.distanceTable.
+   */
+  public interface TableComputer {
+    double[][] compute(int[] sources, int[] targets);
+  }
+
+  // runs task(0) through task(count - 1) in parallel on the threads of a pool;
+  // DistanceMatrix, KShortestPaths, TourPlanner and ContractionHierarchy share it
+  protected static void run(ForkJoinPool pool, int count, IntConsumer task) {
+    try {
+      // a parallel stream started from inside a pool runs on that pool's threads
+      pool.submit(() -> IntStream.range(0, count).parallel().forEach(task)).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted while running searches", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("a search failed", e.getCause());
+    }
+  }
+
+  // rejects ids that are not nodes of the snapshot
+  protected static void checkIds(CompactGraph<?> graph, int[] ids) {
+    for (int id : ids)
+      if (!graph.containsId(id))
+        throw new IllegalArgumentException(id + " is not the id of a node");
+  }
+
+}
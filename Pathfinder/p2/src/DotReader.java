@@ -0,0 +1,354 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * A streaming tokenizer for the subset of the DOT language that campus maps
+ * are written in, with one edge per line:
+ *
+ * <pre>
+ * graph campus {
+ *         "Memorial Union" -- "Science Hall" [seconds=105.8];
+ * }
+ * </pre>
+ *
+ * Lines are read in large chunks into one reusable char buffer and scanned
+ * in place, without regular expressions. Node names are looked up in a table
+ * of the names already seen, so each distinct name is turned into a String
+ * only once, and weights are parsed straight from the buffer.
+ *
+ * Each line is tokenized the way Backend's original regular expressions
+ * matched it: a line holding a brace is skipped, an edge is the first
+ * "name" -- "name" pair in the line, and the weight is the first run of
+ * digits, a dot, and more digits anywhere in the line. Lines without an edge
+ * or a weight simply report that they have none.
+ */
+public class DotReader implements Closeable {
+
+  // Size of the chunks read from the underlying reader
+  private static final int CHUNK_SIZE = 1 << 16;
+  // Largest power of ten, and mantissa, that a double holds exactly
+  private static final int MAX_EXACT_POWER = 22;
+  private static final long MAX_EXACT_MANTISSA = 1L << 53;
+  private static final double[] POWERS_OF_TEN = new double[MAX_EXACT_POWER + 1];
+
+  static {
+    POWERS_OF_TEN[0] = 1;
+    for (int i = 1; i <= MAX_EXACT_POWER; i++)
+      POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+  }
+
+  protected final Reader reader;
+  protected char[] buffer = new char[CHUNK_SIZE];
+  protected int bufferEnd = 0; // end of the characters read into the buffer
+  protected int position = 0; // start of the next line
+  protected boolean endOfInput = false;
+  protected int lineCount = 0;
+
+  // span of the current line within the buffer, with whitespace trimmed
+  protected int lineStart;
+  protected int lineEnd;
+
+  // tokens of the current line
+  protected boolean braceLine;
+  protected String predecessor;
+  protected String successor;
+  protected boolean weightFound;
+  protected double weight;
+
+  // every distinct name seen so far, in an open addressing table
+  protected String[] names = new String[256];
+  protected int nameCount = 0;
+
+  /**
+   * Constructor that tokenizes the characters read from the provided reader.
+   *
+   * @param reader the source of the DOT text, which this reader closes
+   */
+  public DotReader(Reader reader) {
+    this.reader = reader;
+  }
+
+  /**
+   * Advances to and tokenizes the next line.
+   *
+   * @return true if there was another line, or false at the end of the input
+   * @throws IOException if the underlying reader fails
+   */
+  public boolean nextLine() throws IOException {
+    int end = findLineEnd();
+    if (end == -1)
+      return false;
+    lineCount++;
+    lineStart = position;
+    lineEnd = end;
+    // skip the line terminator: \n, \r, or \r\n
+    position = end;
+    if (position < bufferEnd && buffer[position] == '\r')
+      position++;
+    if (position < bufferEnd && buffer[position] == '\n' && (position == end
+        || buffer[position - 1] == '\r'))
+      position++;
+    trim();
+    tokenize();
+    return true;
+  }
+
+  // the end of the line starting at position, reading more input as needed,
+  // or -1 when there are no more lines
+  protected int findLineEnd() throws IOException {
+    int scan = position;
+    while (true) {
+      for (; scan < bufferEnd; scan++) {
+        char c = buffer[scan];
+        if (c == '\n')
+          return scan;
+        // a \r ends the line, but a \n after it is part of its terminator
+        if (c == '\r' && (scan + 1 < bufferEnd || endOfInput))
+          return scan;
+      }
+      if (endOfInput)
+        return scan > position ? scan : -1;
+      scan -= position;
+      fill();
+      scan += position;
+    }
+  }
+
+  // moves the unread characters to the front of the buffer and reads more
+  protected void fill() throws IOException {
+    int remaining = bufferEnd - position;
+    if (position == 0 && remaining == buffer.length)
+      buffer = Arrays.copyOf(buffer, buffer.length * 2);
+    else
+      System.arraycopy(buffer, position, buffer, 0, remaining);
+    position = 0;
+    bufferEnd = remaining;
+    int read = reader.read(buffer, bufferEnd, buffer.length - bufferEnd);
+    if (read == -1)
+      endOfInput = true;
+    else
+      bufferEnd += read;
+  }
+
+  // narrows the line to exclude leading and trailing whitespace, as String.trim does
+  protected void trim() {
+    while (lineStart < lineEnd && buffer[lineStart] <= ' ')
+      lineStart++;
+    while (lineEnd > lineStart && buffer[lineEnd - 1] <= ' ')
+      lineEnd--;
+  }
+
+  protected void tokenize() {
+    braceLine = false;
+    predecessor = null;
+    successor = null;
+    weightFound = false;
+    for (int i = lineStart; i < lineEnd; i++) {
+      if (buffer[i] == '{' || buffer[i] == '}') {
+        braceLine = true;
+        return;
+      }
+    }
+    findEdge();
+    findWeight();
+  }
+
+  // finds the first "name" -- "name" pair in the line
+  protected void findEdge() {
+    for (int open = lineStart; open < lineEnd; open++) {
+      if (buffer[open] != '"')
+        continue;
+      int close = nameEnd(open + 1);
+      if (close == -1)
+        continue;
+      // the separator between the names, then the second name's opening quote
+      int second = close + 5;
+      if (second >= lineEnd || buffer[close + 1] != ' ' || buffer[close + 2] != '-'
+          || buffer[close + 3] != '-' || buffer[close + 4] != ' ' || buffer[second] != '"')
+        continue;
+      int secondClose = nameEnd(second + 1);
+      if (secondClose == -1)
+        continue;
+      predecessor = name(open + 1, close);
+      successor = name(second + 1, secondClose);
+      return;
+    }
+  }
+
+  // the closing quote of a name starting at start, or -1 if there is no
+  // valid name there: names are words separated by single spaces
+  protected int nameEnd(int start) {
+    if (start >= lineEnd || buffer[start] <= ' ' || buffer[start] == '"')
+      return -1;
+    for (int i = start + 1; i < lineEnd; i++) {
+      char c = buffer[i];
+      if (c == '"')
+        return i;
+      if (c <= ' ' && (buffer[i - 1] <= ' ' || i + 1 >= lineEnd || buffer[i + 1] <= ' '
+          || buffer[i + 1] == '"'))
+        return -1;
+    }
+    return -1;
+  }
+
+  // finds and parses the first digits.digits number in the line
+  protected void findWeight() {
+    for (int i = lineStart; i < lineEnd; i++) {
+      if (!isDigit(buffer[i]))
+        continue;
+      int start = i;
+      while (i < lineEnd && isDigit(buffer[i]))
+        i++;
+      if (i + 1 < lineEnd && buffer[i] == '.' && isDigit(buffer[i + 1])) {
+        int dot = i;
+        i++;
+        while (i < lineEnd && isDigit(buffer[i]))
+          i++;
+        weight = parseDecimal(start, dot, i);
+        weightFound = true;
+        return;
+      }
+      i--; // this run of digits has no fraction; keep looking after it
+    }
+  }
+
+  protected static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  // parses digits.digits from the buffer, exactly as Double.parseDouble would
+  protected double parseDecimal(int start, int dot, int end) {
+    long mantissa = 0;
+    int digits = 0;
+    for (int i = start; i < end; i++) {
+      if (i == dot)
+        continue;
+      if (digits > 0 || buffer[i] != '0')
+        digits++;
+      if (digits > 18)
+        break;
+      mantissa = mantissa * 10 + (buffer[i] - '0');
+    }
+    int fractionDigits = end - dot - 1;
+    // both parts are exact doubles here, so one correctly rounded division
+    // gives the same result as parseDouble
+    if (digits <= 18 && mantissa <= MAX_EXACT_MANTISSA && fractionDigits <= MAX_EXACT_POWER)
+      return mantissa / POWERS_OF_TEN[fractionDigits];
+    return Double.parseDouble(new String(buffer, start, end - start));
+  }
+
+  // the String for a name in the buffer, created only the first time it is seen
+  protected String name(int start, int end) {
+    int hash = 0;
+    for (int i = start; i < end; i++)
+      hash = 31 * hash + buffer[i];
+    int mask = names.length - 1;
+    int slot = (hash ^ (hash >>> 16)) & mask;
+    for (; names[slot] != null; slot = (slot + 1) & mask) {
+      String name = names[slot];
+      if (name.hashCode() == hash && matches(name, start, end))
+        return name;
+    }
+    String name = new String(buffer, start, end - start);
+    names[slot] = name;
+    if (++nameCount * 2 > names.length)
+      growNames();
+    return name;
+  }
+
+  protected boolean matches(String name, int start, int end) {
+    if (name.length() != end - start)
+      return false;
+    for (int i = 0; i < name.length(); i++)
+      if (name.charAt(i) != buffer[start + i])
+        return false;
+    return true;
+  }
+
+  protected void growNames() {
+    String[] old = names;
+    names = new String[old.length * 2];
+    int mask = names.length - 1;
+    for (String name : old) {
+      if (name == null)
+        continue;
+      int hash = name.hashCode();
+      int slot = (hash ^ (hash >>> 16)) & mask;
+      while (names[slot] != null)
+        slot = (slot + 1) & mask;
+      names[slot] = name;
+    }
+  }
+
+  /**
+   * Checks whether the current line holds a brace, such as the graph's
+   * opening or closing line.
+   *
+   * @return true if the line holds { or }
+   */
+  public boolean isBraceLine() {
+    return braceLine;
+  }
+
+  /**
+   * Checks whether the current line holds an edge.
+   *
+   * @return true if the line holds a "name" -- "name" pair
+   */
+  public boolean hasEdge() {
+    return predecessor != null;
+  }
+
+  /**
+   * Return the name of the node the current line's edge leaves.
+   *
+   * @return the first name in the line, or null if it holds no edge
+   */
+  public String getPredecessor() {
+    return predecessor;
+  }
+
+  /**
+   * Return the name of the node the current line's edge enters.
+   *
+   * @return the second name in the line, or null if it holds no edge
+   */
+  public String getSuccessor() {
+    return successor;
+  }
+
+  /**
+   * Checks whether the current line holds a weight.
+   *
+   * @return true if the line holds a number with a decimal point
+   */
+  public boolean hasWeight() {
+    return weightFound;
+  }
+
+  /**
+   * Return the weight in the current line.
+   *
+   * @return the first number with a decimal point in the line
+   */
+  public double getWeight() {
+    return weight;
+  }
+
+  /**
+   * Return the number of lines read so far.
+   *
+   * @return the number of the current line, counting from 1
+   */
+  public int getLineCount() {
+    return lineCount;
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+
+}
@@ -0,0 +1,282 @@
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * The shortest paths from one registered source node to every node of a
+ * DijkstraGraph, kept up to date as the graph changes instead of being
+ * recomputed by every query. The cost of the path to each node and the
+ * previous node along it are stored in arrays indexed by node id, so queries
+ * are O(1) lookups (plus the length of the path, when it is returned).
+ *
+ * Changes are repaired in the style of Ramalingam and Reps. When an edge is
+ * added or made cheaper, only the nodes whose paths improve through it are
+ * searched again, starting from its successor. When an edge on the tree of
+ * shortest paths is made more expensive or removed, only the subtree below it
+ * is affected: those nodes are reset, seeded with the best path into them from
+ * the rest of the tree, and settled again in cost order. Changes to edges
+ * that are not on the tree are ignored.
+ *
+ * Trees are created by DijkstraGraph.registerSource, and are told about every
+ * change by the graph.
+ *
+ * @param <NodeType> the data type stored at each node of the graph
+ * @param <EdgeType> the type of the edge weights of the graph
+ */
+public class DynamicShortestPaths<NodeType, EdgeType extends Number> {
+
+  protected final DijkstraGraph<NodeType, EdgeType> graph;
+  protected final BaseGraph<NodeType, EdgeType>.Node source;
+
+  // indexed by node id: infinity and -1 for unreached nodes and free ids
+  protected double[] dist = new double[0];
+  protected int[] parent = new int[0]; // -1 for the source as well
+
+  // work space for repairs; affected is all false between repairs
+  protected IndexedMinHeap queue = new IndexedMinHeap(0);
+  protected boolean[] affected = new boolean[0];
+  protected int[] affectedIds = new int[0];
+  protected int affectedCount = 0;
+  protected int settledCount = 0;
+
+  /**
+   * Constructor that computes the shortest paths from a node of a graph.
+   *
+   * @param graph  the graph whose paths are maintained
+   * @param source the node every path starts from
+   */
+  protected DynamicShortestPaths(DijkstraGraph<NodeType, EdgeType> graph,
+      BaseGraph<NodeType, EdgeType>.Node source) {
+    this.graph = graph;
+    this.source = source;
+    recompute();
+  }
+
+  /**
+   * Computes the shortest paths from the source from scratch.
+   */
+  public void recompute() {
+    ensureCapacity();
+    Arrays.fill(dist, Double.POSITIVE_INFINITY);
+    Arrays.fill(parent, -1);
+    settledCount = 0;
+    dist[source.id] = 0;
+    queue.insertOrDecrease(source.id, 0);
+    propagate();
+  }
+
+  // grows the arrays to cover every node id of the graph
+  protected void ensureCapacity() {
+    int idBound = graph.getIdBound();
+    if (dist.length >= idBound)
+      return;
+    int capacity = Math.max(idBound, dist.length * 2);
+    int oldCapacity = dist.length;
+    dist = Arrays.copyOf(dist, capacity);
+    parent = Arrays.copyOf(parent, capacity);
+    Arrays.fill(dist, oldCapacity, capacity, Double.POSITIVE_INFINITY);
+    Arrays.fill(parent, oldCapacity, capacity, -1);
+    affected = Arrays.copyOf(affected, capacity);
+    affectedIds = Arrays.copyOf(affectedIds, capacity);
+    queue = new IndexedMinHeap(capacity);
+  }
+
+  // settles the queued nodes in cost order, relaxing the edges leaving each
+  protected void propagate() {
+    while (!queue.isEmpty()) {
+      int u = queue.poll();
+      settledCount++;
+      for (BaseGraph<NodeType, EdgeType>.Edge edge : graph.nodesById.get(u).edgesLeaving) {
+        int v = edge.successor.id;
+        double cost = dist[u] + edge.data.doubleValue();
+        if (cost < dist[v]) {
+          dist[v] = cost;
+          parent[v] = u;
+          queue.insertOrDecrease(v, cost);
+        }
+      }
+    }
+  }
+
+  /**
+   * Repairs the paths after an edge was added or its weight was lowered.
+   *
+   * @param pred the id of the edge's predecessor node
+   * @param succ the id of the edge's successor node
+   * @param weight the new weight of the edge
+   */
+  protected void edgeShortened(int pred, int succ, double weight) {
+    ensureCapacity();
+    settledCount = 0;
+    double cost = dist[pred] + weight;
+    if (cost < dist[succ]) {
+      dist[succ] = cost;
+      parent[succ] = pred;
+      queue.insertOrDecrease(succ, cost);
+      propagate();
+    }
+  }
+
+  /**
+   * Repairs the paths after an edge was removed or its weight was raised.
+   *
+   * @param pred the id of the edge's predecessor node
+   * @param succ the id of the edge's successor node
+   */
+  protected void edgeLengthened(int pred, int succ) {
+    ensureCapacity();
+    settledCount = 0;
+    if (parent[succ] != pred)
+      return; // the edge is not on any shortest path in this tree
+    markSubtree(succ);
+    repair();
+  }
+
+  /**
+   * Marks the paths through a node as affected, just before the node and its
+   * edges are removed from the graph. repair() must be called once they are.
+   *
+   * @param id the id of the node being removed
+   */
+  protected void nodeRemoving(int id) {
+    ensureCapacity();
+    settledCount = 0;
+    markSubtree(id);
+  }
+
+  // marks a node and every node whose path runs through it as affected
+  protected void markSubtree(int root) {
+    affected[root] = true;
+    affectedIds[affectedCount++] = root;
+    // affectedIds doubles as the queue of nodes whose children are unvisited
+    for (int next = affectedCount - 1; next < affectedCount; next++) {
+      int u = affectedIds[next];
+      BaseGraph<NodeType, EdgeType>.Node node = graph.nodesById.get(u);
+      if (node == null)
+        continue;
+      for (BaseGraph<NodeType, EdgeType>.Edge edge : node.edgesLeaving) {
+        int v = edge.successor.id;
+        if (parent[v] == u && !affected[v]) {
+          affected[v] = true;
+          affectedIds[affectedCount++] = v;
+        }
+      }
+    }
+  }
+
+  /**
+   * Recomputes the paths to every affected node: each is first reached
+   * through its cheapest edge from an unaffected node, and then the affected
+   * nodes are settled in cost order.
+   */
+  protected void repair() {
+    for (int i = 0; i < affectedCount; i++) {
+      int v = affectedIds[i];
+      dist[v] = Double.POSITIVE_INFINITY;
+      parent[v] = -1;
+    }
+    for (int i = 0; i < affectedCount; i++) {
+      int v = affectedIds[i];
+      BaseGraph<NodeType, EdgeType>.Node node = graph.nodesById.get(v);
+      if (node == null)
+        continue; // a removed node, which nothing can reach
+      for (BaseGraph<NodeType, EdgeType>.Edge edge : node.edgesEntering) {
+        int u = edge.predecessor.id;
+        double cost = dist[u] + edge.data.doubleValue();
+        if (!affected[u] && cost < dist[v]) {
+          dist[v] = cost;
+          parent[v] = u;
+        }
+      }
+      if (dist[v] != Double.POSITIVE_INFINITY)
+        queue.insertOrDecrease(v, dist[v]);
+    }
+    for (int i = 0; i < affectedCount; i++)
+      affected[affectedIds[i]] = false;
+    affectedCount = 0;
+    propagate();
+  }
+
+  /**
+   * Return the data of the node that every path starts from.
+   *
+   * @return the data item in the source node
+   */
+  public NodeType getSource() {
+    return source.data;
+  }
+
+  /**
+   * Return the number of nodes settled while repairing the last change, or
+   * while computing the paths if there was no change since.
+   *
+   * @return the number of nodes settled by the last repair
+   */
+  public int getSettledCount() {
+    return settledCount;
+  }
+
+  /**
+   * Return the cost of the shortest path to the node with the provided id.
+   *
+   * @param id the id of the node
+   * @return the cost of that path, or infinity when the node cannot be
+   *         reached or the id is not a node's
+   */
+  public double getCost(int id) {
+    return id >= 0 && id < dist.length ? dist[id] : Double.POSITIVE_INFINITY;
+  }
+
+  /**
+   * Return the cost of the shortest path to the node containing the provided
+   * data, or -1 when there is no such path, as DijkstraGraph.shortestPathCost
+   * would.
+   *
+   * @param end the data item in the destination node for the path
+   * @return the cost of the shortest path to that node
+   */
+  public double getCost(NodeType end) {
+    double cost = getCost(graph.getId(end));
+    return cost == Double.POSITIVE_INFINITY ? -1.0 : cost;
+  }
+
+  /**
+   * Returns the shortest path from the source to the node with the provided
+   * data, along with the weight of each edge on that path and its total cost.
+   *
+   * @param end the data item in the destination node for the path
+   * @return the nodes, edge weights, and total cost of this shortest path
+   * @throws NoSuchElementException when end is not a node of the graph or
+   *                                cannot be reached from the source
+   */
+  public ShortestPathResult<NodeType> getPathResult(NodeType end) {
+    int id = graph.getId(end);
+    if (getCost(id) == Double.POSITIVE_INFINITY)
+      throw new NoSuchElementException("No path from start to end is found");
+    LinkedList<NodeType> path = new LinkedList<>();
+    LinkedList<Double> segmentCosts = new LinkedList<>();
+    for (int v = id; v != -1; v = parent[v]) {
+      BaseGraph<NodeType, EdgeType>.Node node = graph.nodesById.get(v);
+      path.addFirst(node.data);
+      if (parent[v] != -1)
+        segmentCosts.addFirst(
+            graph.nodesById.get(parent[v]).findEdgeTo(node).data.doubleValue());
+    }
+    return new ShortestPathResult<>(path, segmentCosts, dist[id]);
+  }
+
+  /**
+   * Returns the list of data values from nodes along the shortest path from
+   * the source through the node with the provided data.
+   *
+   * @param end the data item in the destination node for the path
+   * @return list of data item from node along this shortest path
+   * @throws NoSuchElementException when end is not a node of the graph or
+   *                                cannot be reached from the source
+   */
+  public List<NodeType> getPathData(NodeType end) {
+    return getPathResult(end).getNodes();
+  }
+
+}
@@ -80,7 +80,7 @@ public class Frontend implements FrontendInterface{
     double distance = 0.0;
     try {
 
-      Path<String, Integer> shortest = (Path<String, Integer>) backend.getShortestPath(start, end);
+      Path<String, Double> shortest = (Path<String, Double>) backend.getShortestPath(start, end);
       cat += "Start point: ";
 
       for (int i = 0; i < shortest.getPath().size(); i++) {
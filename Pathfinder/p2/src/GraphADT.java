@@ -124,4 +124,28 @@ public interface GraphADT<NodeType, EdgeType extends Number> {
    */
   public double shortestPathCost(NodeType start, NodeType end);
 
+  /**
+   * Returns the shortest path from the node containing the start data to the
+   * node containing the end data, as found by a single search: the data of
+   * the nodes along that path, the weight of each edge along it, and its
+   * total cost.
+   *
+   * @param start the data item in the starting node for the path
+   * @param end   the data item in the destination node for the path
+   * @return the nodes, edge weights, and total cost of this shortest path
+   * @throws NoSuchElementException when no path from start to end is found
+   *                                or when either start or end data do not
+   *                                correspond to a graph node
+   */
+  public ShortestPathResult<NodeType> shortestPath(NodeType start, NodeType end);
+
+  /**
+   * Returns the version of this graph, which changes with every insertion or
+   * removal of a node or edge, and with every change to an edge's weight.
+   * Results computed from the graph stay valid while its version is unchanged.
+   *
+   * @return the number of mutations made to this graph
+   */
+  public int getVersion();
+
 }
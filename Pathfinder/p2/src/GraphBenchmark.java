@@ -0,0 +1,477 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToDoubleBiFunction;
+
+/**
+ * Times shortest path queries on the campus map and on a larger synthetic
+ * grid graph, comparing the different ways that DijkstraGraph can search.
+ * Run with an optional DOT file name (defaults to campus.dot) and an optional
+ * grid width (defaults to 200, for a 200x200 grid).
+ */
+public class GraphBenchmark {
+
+  // Number of untimed queries run before each measurement
+  private static final int WARMUP_QUERIES = 2000;
+  // Number of timed queries in each measurement
+  private static final int TIMED_QUERIES = 2000;
+  // Widest grid whose all-pairs matrix (width^4 doubles) is computed
+  private static final int ALL_PAIRS_MAX_WIDTH = 40;
+
+  /**
+   * Builds a width by width grid in which each cell is connected to its four
+   * neighbours in both directions, with random weights.
+   *
+   * @param width the number of nodes along each side of the grid
+   * @param seed  the seed for the random edge weights
+   * @return the grid graph
+   */
+  public static DijkstraGraph<String, Double> buildGrid(int width, long seed) {
+    Random random = new Random(seed);
+    DijkstraGraph<String, Double> graph = new DijkstraGraph<>(new OpenAddressingMap<>());
+    for (int row = 0; row < width; row++)
+      for (int col = 0; col < width; col++)
+        graph.insertNode(row + "," + col);
+    for (int row = 0; row < width; row++) {
+      for (int col = 0; col < width; col++) {
+        String node = row + "," + col;
+        if (col + 1 < width) {
+          graph.insertEdge(node, row + "," + (col + 1), 10 + 90 * random.nextDouble());
+          graph.insertEdge(row + "," + (col + 1), node, 10 + 90 * random.nextDouble());
+        }
+        if (row + 1 < width) {
+          graph.insertEdge(node, (row + 1) + "," + col, 10 + 90 * random.nextDouble());
+          graph.insertEdge((row + 1) + "," + col, node, 10 + 90 * random.nextDouble());
+        }
+      }
+    }
+    return graph;
+  }
+
+  /**
+   * Returns a heuristic for grids built by buildGrid: the number of rows and columns between two
+   * cells times the lowest edge weight in the grid, which never overestimates the cost between
+   * them.
+   *
+   * @return an admissible and consistent heuristic for grid graphs
+   */
+  public static Heuristic<String> gridHeuristic() {
+    return (node, target) -> {
+      int nodeComma = node.indexOf(',');
+      int targetComma = target.indexOf(',');
+      int rows = Integer.parseInt(node.substring(0, nodeComma))
+          - Integer.parseInt(target.substring(0, targetComma));
+      int cols = Integer.parseInt(node.substring(nodeComma + 1))
+          - Integer.parseInt(target.substring(targetComma + 1));
+      return 10 * (Math.abs(rows) + Math.abs(cols));
+    };
+  }
+
+  /**
+   * Runs the same random queries against the graph once with each search
+   * configuration, and prints the average time per query.
+   *
+   * @param name  a label for the graph in the printed output
+   * @param graph the graph to query
+   */
+  public static void compareSearches(String name, DijkstraGraph<String, Double> graph) {
+    System.out.println(name + ": " + graph.getNodeCount() + " nodes, "
+        + graph.getEdgeCount() + " edges");
+    CompactGraph<String> snapshot = graph.snapshot();
+    graph.setFrozen(false);
+    graph.setQueueType(CompactSearch.QueueType.LAZY_DELETION);
+    report("  nodes, PriorityQueue", snapshot, graph::shortestPathCost);
+    graph.setFrozen(true);
+    report("  snapshot, PriorityQueue", snapshot, graph::shortestPathCost);
+    graph.setQueueType(CompactSearch.QueueType.INDEXED_HEAP);
+    report("  snapshot, IndexedMinHeap", snapshot, graph::shortestPathCost);
+    report("  bidirectional", snapshot, (start, end) -> {
+      try {
+        return graph.shortestPath(start, end, DijkstraGraph.SearchMode.BIDIRECTIONAL)
+            .getTotalCost();
+      } catch (NoSuchElementException e) {
+        return -1.0;
+      }
+    });
+    long before = System.nanoTime();
+    ContractionHierarchy<String> hierarchy = new ContractionHierarchy<>(graph);
+    System.out.printf("  (contraction took %.1f ms, %d shortcuts)%n",
+        (System.nanoTime() - before) / 1e6, hierarchy.getShortcutCount());
+    report("  contraction hierarchy", snapshot, hierarchy::shortestPathCost);
+    report("  5 alternatives (Yen)", snapshot, (start, end) -> {
+      try {
+        return graph.shortestPaths(start, end, 5).get(0).getTotalCost();
+      } catch (NoSuchElementException e) {
+        return -1.0;
+      }
+    });
+    graph.setFrozen(false);
+    graph.setQueueType(CompactSearch.QueueType.LAZY_DELETION);
+  }
+
+  /**
+   * Times random queries between nodes of a snapshot, and prints the average time per query
+   * along with the sum of the query results, so that configurations can be checked against
+   * each other.
+   *
+   * @param label    a label for the query in the printed output
+   * @param snapshot the snapshot whose nodes are queried
+   * @param query    runs one query between two nodes and returns its cost
+   */
+  public static void report(String label, CompactGraph<String> snapshot,
+      ToDoubleBiFunction<String, String> query) {
+    runQueries(snapshot, query, WARMUP_QUERIES, 1);
+    long before = System.nanoTime();
+    double checksum = runQueries(snapshot, query, TIMED_QUERIES, 2);
+    long elapsed = System.nanoTime() - before;
+    System.out.printf("%-30s %10.1f us/query (checksum %.1f)%n", label,
+        elapsed / 1000.0 / TIMED_QUERIES, checksum);
+  }
+
+  // runs random queries between pairs of nodes and sums their costs
+  private static double runQueries(CompactGraph<String> snapshot,
+      ToDoubleBiFunction<String, String> query, int count, long seed) {
+    Random random = new Random(seed);
+    int nodeCount = snapshot.getNodeCount();
+    double checksum = 0;
+    for (int i = 0; i < count; i++) {
+      String start = snapshot.getData(random.nextInt(nodeCount));
+      String end = snapshot.getData(random.nextInt(nodeCount));
+      checksum += query.applyAsDouble(start, end);
+    }
+    return checksum;
+  }
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args an optional DOT file name, then an optional grid width
+   * @throws IOException if the DOT file cannot be found, or a temporary file cannot be written
+   * @throws InterruptedException if interrupted while waiting for the benchmark's threads
+   */
+  public static void main(String[] args) throws IOException, InterruptedException {
+    String fileName = args.length > 0 ? args[0] : "campus.dot";
+    int width = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+    // keep Nagle's algorithm from delaying RouteServer's small responses; the
+    // JDK's HTTP server only reads this property when its first server starts
+    if (System.getProperty("sun.net.httpserver.nodelay") == null)
+      System.setProperty("sun.net.httpserver.nodelay", "true");
+
+    DijkstraGraph<String, Double> campus = new DijkstraGraph<>(new OpenAddressingMap<>());
+    new Backend<String, Double>(campus).readDataFromFile(fileName);
+    compareSearches(fileName, campus);
+    compareRouteServer(campus);
+    compareTours(campus);
+    DijkstraGraph<String, Double> grid = buildGrid(width, 42);
+    compareSearches(width + "x" + width + " grid", grid);
+    grid.setQueueType(CompactSearch.QueueType.INDEXED_HEAP);
+    Heuristic<String> heuristic = gridHeuristic();
+    report("  A*, grid heuristic", grid.snapshot(), (start, end) -> {
+      try {
+        return grid.shortestPath(start, end, heuristic).getTotalCost();
+      } catch (NoSuchElementException e) {
+        return -1.0;
+      }
+    });
+    LandmarkHeuristic<String> landmarks = new LandmarkHeuristic<>(grid, 8);
+    landmarks.ensureCurrent();
+    report("  A*, 8 landmarks", grid.snapshot(), (start, end) -> {
+      try {
+        return grid.shortestPath(start, end, landmarks).getTotalCost();
+      } catch (NoSuchElementException e) {
+        return -1.0;
+      }
+    });
+    // the matrix holds width^4 doubles, so it is computed for a smaller grid
+    compareAllPairs(width <= ALL_PAIRS_MAX_WIDTH ? grid
+        : buildGrid(ALL_PAIRS_MAX_WIDTH, 42));
+    compareDistanceTables(grid, 50, 200);
+    compareStartup(grid);
+    compareConcurrentQueries(grid);
+    System.out.println("removals:");
+    for (int degree : new int[] {1000, 10000, 100000})
+      compareRemovals(degree);
+  }
+
+  /**
+   * Plans round trips through random stops of a graph, first in nearest neighbour order alone
+   * and then with a second of local search, and prints the cost and time of each.
+   *
+   * @param graph the graph to plan tours on
+   */
+  public static void compareTours(DijkstraGraph<String, Double> graph) {
+    CompactGraph<String> snapshot = graph.snapshot();
+    ComponentIndex<String> index = graph.componentIndex();
+    // stops are drawn from one strongly connected component, so every tour exists
+    List<String> candidates = new ArrayList<>();
+    for (int id = 0; id < snapshot.getNodeCount(); id++)
+      if (snapshot.containsId(id) && index.getStrongComponent(id) == index.getStrongComponent(0))
+        candidates.add(snapshot.getData(id));
+    Collections.shuffle(candidates, new Random(5));
+    for (int count : new int[] {10, 20, 40}) {
+      if (count > candidates.size())
+        break;
+      List<String> stops = candidates.subList(0, count);
+      for (long budget : new long[] {0, 1000}) {
+        long before = System.nanoTime();
+        double cost = graph.shortestTour(stops, true, budget).getTotalCost();
+        System.out.printf("%-30s %10.1f ms (cost %.1f)%n",
+            "  tour of " + count + ", " + budget + " ms budget",
+            (System.nanoTime() - before) / 1e6, cost);
+      }
+    }
+  }
+
+  /**
+   * Times the removal and reinsertion of edges around a hub node, and then the removal of the
+   * hub itself, on a graph where the hub has an edge to and from every other node.
+   *
+   * @param degree the number of nodes joined to the hub
+   */
+  public static void compareRemovals(int degree) {
+    DijkstraGraph<Integer, Double> graph = new DijkstraGraph<>(new OpenAddressingMap<>());
+    int hub = degree;
+    for (int node = 0; node <= degree; node++)
+      graph.insertNode(node);
+    for (int node = 0; node < degree; node++) {
+      graph.insertEdge(hub, node, 1.0);
+      graph.insertEdge(node, hub, 1.0);
+    }
+    Random random = new Random(3);
+    long before = System.nanoTime();
+    for (int i = 0; i < 4 * degree; i++) {
+      // close a random path through the hub and open it again, as live closures do
+      int node = random.nextInt(degree);
+      graph.removeEdge(hub, node);
+      graph.removeEdge(node, hub);
+      graph.insertEdge(hub, node, 1.0);
+      graph.insertEdge(node, hub, 1.0);
+    }
+    long edgeTime = System.nanoTime() - before;
+    before = System.nanoTime();
+    graph.removeNode(hub);
+    long nodeTime = System.nanoTime() - before;
+    System.out.printf("%-30s %10.2f us/closure, %.2f ms to remove the hub%n",
+        "  hub of degree " + degree, edgeTime / 1000.0 / (4 * degree), nodeTime / 1e6);
+  }
+
+  /**
+   * Computes the all-pairs distance matrix of a graph on one thread and then
+   * on every thread of the common pool, and prints how long each took.
+   *
+   * @param graph the graph to compute the matrix of
+   */
+  public static void compareAllPairs(DijkstraGraph<String, Double> graph) {
+    CompactGraph<String> snapshot = graph.snapshot();
+    int cores = ForkJoinPool.commonPool().getParallelism();
+    for (int threads : new int[] {1, cores}) {
+      ForkJoinPool pool = new ForkJoinPool(threads);
+      long before = System.nanoTime();
+      DistanceMatrix<String> matrix = DistanceMatrix.compute(snapshot, pool);
+      long elapsed = System.nanoTime() - before;
+      pool.shutdown();
+      System.out.printf("%-30s %10.1f ms (cost 0 to last %.1f)%n",
+          "  all pairs, " + threads + " thread(s)", elapsed / 1e6,
+          matrix.getCost(0, snapshot.getNodeCount() - 1));
+    }
+  }
+
+  /**
+   * Computes a table of the costs from random start nodes to random end nodes with one query
+   * per pair, with one search per start node, and with a contraction hierarchy's buckets, and
+   * prints how long each took.
+   *
+   * @param graph  the graph to compute the table for
+   * @param starts the number of rows of the table
+   * @param ends   the number of columns of the table
+   */
+  public static void compareDistanceTables(DijkstraGraph<String, Double> graph, int starts,
+      int ends) {
+    CompactGraph<String> snapshot = graph.snapshot();
+    Random random = new Random(11);
+    List<String> sources = new ArrayList<>();
+    List<String> targets = new ArrayList<>();
+    for (int i = 0; i < starts; i++)
+      sources.add(snapshot.getData(random.nextInt(snapshot.getNodeCount())));
+    for (int j = 0; j < ends; j++)
+      targets.add(snapshot.getData(random.nextInt(snapshot.getNodeCount())));
+    String size = starts + "x" + ends + " table, ";
+
+    long before = System.nanoTime();
+    double checksum = 0;
+    for (String source : sources)
+      for (String target : targets)
+        checksum += graph.shortestPathCost(source, target);
+    System.out.printf("%-30s %10.1f ms (sum %.1f)%n", "  " + size + "pairs",
+        (System.nanoTime() - before) / 1e6, checksum);
+
+    before = System.nanoTime();
+    double[][] table = graph.shortestPathCosts(sources, targets);
+    System.out.printf("%-30s %10.1f ms (sum %.1f)%n", "  " + size + "rows",
+        (System.nanoTime() - before) / 1e6, sum(table));
+
+    ContractionHierarchy<String> hierarchy = new ContractionHierarchy<>(graph);
+    before = System.nanoTime();
+    table = hierarchy.shortestPathCosts(sources, targets);
+    System.out.printf("%-30s %10.1f ms (sum %.1f)%n", "  " + size + "CH buckets",
+        (System.nanoTime() - before) / 1e6, sum(table));
+  }
+
+  // the sum of every entry of a table, so that tables can be compared
+  private static double sum(double[][] table) {
+    double sum = 0;
+    for (double[] row : table)
+      for (double cost : row)
+        sum += cost;
+    return sum;
+  }
+
+  /**
+   * Writes a graph both as a DOT file and in the binary format of GraphFile, then times loading
+   * each one and answering a first query, and prints how much heap each loaded graph holds.
+   *
+   * @param graph the graph to write and load
+   * @throws IOException if the temporary files cannot be written
+   */
+  public static void compareStartup(DijkstraGraph<String, Double> graph) throws IOException {
+    CompactGraph<String> snapshot = graph.snapshot();
+    File dot = File.createTempFile("benchmark", ".dot");
+    File binary = File.createTempFile("benchmark", ".graph");
+    dot.deleteOnExit();
+    binary.deleteOnExit();
+    try (PrintWriter writer = new PrintWriter(dot)) {
+      writer.println("graph benchmark {");
+      for (int id = 0; id < snapshot.getNodeCount(); id++)
+        for (int e = snapshot.getEdgeStart(id); e < snapshot.getEdgeEnd(id); e++)
+          writer.println("        \"" + snapshot.getData(id) + "\" -- \""
+              + snapshot.getData(snapshot.getTarget(e)) + "\" [seconds="
+              + snapshot.getWeight(e) + "];");
+      writer.println("}");
+    }
+    GraphFile.save(graph, binary);
+    String start = snapshot.getData(0);
+    String end = snapshot.getData(snapshot.getNodeCount() - 1);
+
+    long heapBefore = usedHeap();
+    long before = System.nanoTime();
+    DijkstraGraph<String, Double> parsed = new DijkstraGraph<>(new OpenAddressingMap<>());
+    new Backend<String, Double>(parsed).readDataFromFile(dot.getPath());
+    double cost = parsed.shortestPathCost(start, end);
+    long elapsed = System.nanoTime() - before;
+    System.out.printf("%-30s %10.1f ms, %6.1f MB of heap (cost %.1f)%n", "  startup, DOT file",
+        elapsed / 1e6, (usedHeap() - heapBefore) / 1e6, cost);
+    parsed = null;
+
+    heapBefore = usedHeap();
+    before = System.nanoTime();
+    DijkstraGraph<String, Double> mapped = GraphFile.load(binary);
+    cost = mapped.shortestPathCost(start, end);
+    elapsed = System.nanoTime() - before;
+    System.out.printf("%-30s %10.1f ms, %6.1f MB of heap (cost %.1f)%n", "  startup, mapped file",
+        elapsed / 1e6, (usedHeap() - heapBefore) / 1e6, cost);
+  }
+
+  // the bytes of heap in use after a garbage collection
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    System.gc();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  /**
+   * Measures the query throughput of a ConcurrentGraph on one thread and then on every core,
+   * while another thread keeps applying batches that change edge weights. The graph is taken
+   * over by the ConcurrentGraph, so it must not be used afterwards.
+   *
+   * @param graph the graph to query and change
+   * @throws InterruptedException if interrupted while waiting for the threads
+   */
+  public static void compareConcurrentQueries(DijkstraGraph<String, Double> graph)
+      throws InterruptedException {
+    CompactGraph<String> snapshot = graph.snapshot();
+    ConcurrentGraph<String> concurrent = new ConcurrentGraph<>(graph);
+    int cores = Runtime.getRuntime().availableProcessors();
+    for (int threads : new int[] {1, cores}) {
+      AtomicBoolean running = new AtomicBoolean(true);
+      AtomicInteger batches = new AtomicInteger();
+      Thread writer = new Thread(() -> {
+        Random random = new Random(5);
+        while (running.get()) {
+          ConcurrentGraph.Batch<String> batch = new ConcurrentGraph.Batch<>();
+          for (int i = 0; i < 100; i++) {
+            int pred = random.nextInt(snapshot.getNodeCount());
+            int edge = snapshot.getEdgeStart(pred);
+            if (edge < snapshot.getEdgeEnd(pred))
+              batch.insertEdge(snapshot.getData(pred), snapshot.getData(snapshot.getTarget(edge)),
+                  10 + 90 * random.nextDouble());
+          }
+          concurrent.apply(batch);
+          batches.incrementAndGet();
+          try {
+            Thread.sleep(10);
+          } catch (InterruptedException e) {
+            return;
+          }
+        }
+      });
+      writer.start();
+      Thread[] readers = new Thread[threads];
+      long before = System.nanoTime();
+      for (int t = 0; t < threads; t++) {
+        long seed = t;
+        readers[t] = new Thread(() -> runQueries(snapshot, concurrent::shortestPathCost,
+            TIMED_QUERIES / threads, seed));
+        readers[t].start();
+      }
+      for (Thread reader : readers)
+        reader.join();
+      long elapsed = System.nanoTime() - before;
+      running.set(false);
+      writer.join();
+      System.out.printf("%-30s %10.0f queries/s (%d batches meanwhile)%n",
+          "  concurrent, " + threads + " reader(s)",
+          (TIMED_QUERIES / threads * threads) / (elapsed / 1e9), batches.get());
+    }
+  }
+
+  /**
+   * Serves a graph with a RouteServer on the loopback address, then sends it random path queries
+   * from one client and then from many at once, and prints the throughput and latencies of each
+   * run. The graph is frozen, since the server's requests share it.
+   *
+   * @param graph the graph to serve
+   * @throws IOException          if the server cannot be started
+   * @throws InterruptedException if interrupted while waiting for the clients
+   */
+  public static void compareRouteServer(DijkstraGraph<String, Double> graph)
+      throws IOException, InterruptedException {
+    graph.setFrozen(true);
+    CompactGraph<String> snapshot = graph.snapshot();
+    List<String> nodes = new ArrayList<>();
+    for (int id = 0; id < snapshot.getNodeCount(); id++)
+      if (snapshot.containsId(id))
+        nodes.add(snapshot.getData(id));
+    // Backend implements the raw BackendInterface, whose paths are always String and Double
+    @SuppressWarnings("unchecked")
+    BackendInterface<String, Double> backend = new Backend<String, Double>(graph);
+    try (RouteServer server = new RouteServer(backend, new InetSocketAddress("127.0.0.1", 0),
+        RouteServer.DEFAULT_MAX_IN_FLIGHT)) {
+      server.start();
+      RouteLoadGenerator.run(server.getPort(), nodes, 4, WARMUP_QUERIES, 0);
+      for (int clients : new int[] {1, 32}) {
+        System.out.printf("%-30s %s%n", "  server, " + clients + " client(s)",
+            RouteLoadGenerator.run(server.getPort(), nodes, clients, TIMED_QUERIES, clients));
+      }
+    }
+  }
+}
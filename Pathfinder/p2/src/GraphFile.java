@@ -0,0 +1,191 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes graphs in a compact binary format that is memory-mapped
+ * rather than parsed, so that even a large map is ready to search as soon as
+ * its node names are read. A file holds:
+ *
+ * <pre>
+ * "APG1", the node id count n, the edge count m, the byte length of the names
+ * a flag and a modified UTF-8 name for each node id (the flag is 0 for the
+ * ids of removed nodes, which have no name)
+ * padding to a multiple of 8 bytes
+ * n + 1 forward row offsets, m edge targets, n + 1 reverse row offsets, and
+ * m edge sources, as ints
+ * padding to a multiple of 8 bytes
+ * m forward edge weights, then m reverse edge weights, as doubles
+ * </pre>
+ *
+ * The rows are laid out as in CompactGraph, in little-endian byte order.
+ */
+public class GraphFile {
+
+  // Identifies files written by save()
+  private static final int FILE_MAGIC = 0x41504731; // "APG1"
+  // Length of the magic number and the three counts that follow it
+  private static final int HEADER_BYTES = 16;
+  // The rows in a file start at a multiple of this many bytes
+  private static final int ROW_ALIGNMENT = 8;
+  // Byte order of the rows in a file
+  private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+  /**
+   * Writes the current nodes and edges of a graph to a file.
+   *
+   * @param graph the graph to write, whose node names are written as strings
+   * @param file  the file to write, for example campus.graph next to campus.dot
+   * @throws IOException if the file cannot be written
+   */
+  public static void save(BaseGraph<String, ?> graph, File file) throws IOException {
+    save(graph.snapshot(), file);
+  }
+
+  /**
+   * Writes a snapshot's nodes and edges to a file.
+   *
+   * @param graph the snapshot to write
+   * @param file  the file to write
+   * @throws IOException if the file cannot be written
+   */
+  public static void save(CompactGraph<String> graph, File file) throws IOException {
+    int nodeCount = graph.getNodeCount();
+    int edgeCount = graph.getEdgeCount();
+    ByteArrayOutputStream nameBytes = new ByteArrayOutputStream();
+    DataOutputStream names = new DataOutputStream(nameBytes);
+    for (int id = 0; id < nodeCount; id++) {
+      names.writeBoolean(graph.containsId(id));
+      if (graph.containsId(id))
+        names.writeUTF(graph.getData(id));
+    }
+    long rowStart = align(HEADER_BYTES + names.size());
+    long weightStart = align(rowStart + (2L * (nodeCount + 1) + 2L * edgeCount) * Integer.BYTES);
+    long size = weightStart + 2L * edgeCount * Double.BYTES;
+    if (size > Integer.MAX_VALUE)
+      throw new IOException("graph is too large for one mapped file");
+
+    try (RandomAccessFile out = new RandomAccessFile(file, "rw");
+        FileChannel channel = out.getChannel()) {
+      channel.truncate(0);
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+      buffer.putInt(FILE_MAGIC).putInt(nodeCount).putInt(edgeCount).putInt(names.size());
+      buffer.put(nameBytes.toByteArray());
+      buffer.order(ORDER);
+
+      IntBuffer ints = slice(buffer, rowStart, weightStart - rowStart).asIntBuffer();
+      for (int id = 0; id <= nodeCount; id++)
+        ints.put(id < nodeCount ? graph.getEdgeStart(id) : edgeCount);
+      for (int edge = 0; edge < edgeCount; edge++)
+        ints.put(graph.getTarget(edge));
+      for (int id = 0; id <= nodeCount; id++)
+        ints.put(id < nodeCount ? graph.getReverseEdgeStart(id) : edgeCount);
+      for (int edge = 0; edge < edgeCount; edge++)
+        ints.put(graph.getSource(edge));
+
+      DoubleBuffer doubles = slice(buffer, weightStart, size - weightStart).asDoubleBuffer();
+      for (int edge = 0; edge < edgeCount; edge++)
+        doubles.put(graph.getWeight(edge));
+      for (int edge = 0; edge < edgeCount; edge++)
+        doubles.put(graph.getReverseWeight(edge));
+      buffer.force();
+    }
+  }
+
+  /**
+   * Memory-maps a file written by save() as a snapshot. Only the node names
+   * are read into the heap; every edge is read from the file as searches
+   * reach it, and the file's pages are shared by every process that maps it.
+   *
+   * @param file the file to map
+   * @return a snapshot backed by the file, with version 0
+   * @throws IOException if the file cannot be read or is not a graph file
+   */
+  public static CompactGraph<String> map(File file) throws IOException {
+    try (RandomAccessFile in = new RandomAccessFile(file, "r");
+        FileChannel channel = in.getChannel()) {
+      long size = channel.size();
+      if (size < HEADER_BYTES || in.readInt() != FILE_MAGIC)
+        throw new IOException(file + " is not a graph file");
+      int nodeCount = in.readInt();
+      int edgeCount = in.readInt();
+      int nameLength = in.readInt();
+      long rowStart = align(HEADER_BYTES + (long) nameLength);
+      long weightStart = align(rowStart
+          + (2L * (nodeCount + 1) + 2L * edgeCount) * Integer.BYTES);
+      if (nodeCount < 0 || edgeCount < 0 || nameLength < 0
+          || weightStart + 2L * edgeCount * Double.BYTES != size)
+        throw new IOException(file + " is truncated or corrupt");
+      if (size > Integer.MAX_VALUE)
+        throw new IOException(file + " is too large to map");
+
+      // the mapping stays valid after the channel is closed
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      byte[] nameBytes = new byte[nameLength];
+      buffer.position(HEADER_BYTES);
+      buffer.get(nameBytes);
+      DataInputStream names = new DataInputStream(new ByteArrayInputStream(nameBytes));
+      List<String> data = new ArrayList<>(nodeCount);
+      for (int id = 0; id < nodeCount; id++)
+        data.add(names.readBoolean() ? names.readUTF() : null);
+
+      buffer.order(ORDER);
+      long offsetBytes = (long) (nodeCount + 1) * Integer.BYTES;
+      long edgeIntBytes = (long) edgeCount * Integer.BYTES;
+      long edgeDoubleBytes = (long) edgeCount * Double.BYTES;
+      long position = rowStart;
+      IntBuffer offsets = slice(buffer, position, offsetBytes).asIntBuffer();
+      IntBuffer targets = slice(buffer, position += offsetBytes, edgeIntBytes).asIntBuffer();
+      IntBuffer reverseOffsets =
+          slice(buffer, position += edgeIntBytes, offsetBytes).asIntBuffer();
+      IntBuffer sources = slice(buffer, position += offsetBytes, edgeIntBytes).asIntBuffer();
+      DoubleBuffer weights = slice(buffer, weightStart, edgeDoubleBytes).asDoubleBuffer();
+      DoubleBuffer reverseWeights =
+          slice(buffer, weightStart + edgeDoubleBytes, edgeDoubleBytes).asDoubleBuffer();
+      return new CompactGraph<>(data, offsets, targets, weights, reverseOffsets, sources,
+          reverseWeights, 0);
+    }
+  }
+
+  /**
+   * Memory-maps a file written by save() as a graph. The graph answers
+   * queries from the mapped file, without creating an object for any of its
+   * nodes or edges, until it is first changed; it is frozen, so that queries
+   * run on the mapped rows rather than on those objects.
+   *
+   * @param file the file to map
+   * @return a frozen graph backed by the file
+   * @throws IOException if the file cannot be read or is not a graph file
+   */
+  public static DijkstraGraph<String, Double> load(File file) throws IOException {
+    DijkstraGraph<String, Double> graph = new DijkstraGraph<>(new OpenAddressingMap<>());
+    graph.serveFrom(map(file));
+    graph.setFrozen(true);
+    return graph;
+  }
+
+  // rounds a file position up to the alignment of the rows
+  private static long align(long position) {
+    return (position + ROW_ALIGNMENT - 1) / ROW_ALIGNMENT * ROW_ALIGNMENT;
+  }
+
+  // the bytes of a buffer from start to start + length, in the buffer's byte order
+  private static ByteBuffer slice(ByteBuffer buffer, long start, long length) {
+    ByteBuffer slice = buffer.duplicate();
+    slice.limit(Math.toIntExact(start + length)).position(Math.toIntExact(start));
+    return slice.slice().order(buffer.order());
+  }
+
+}
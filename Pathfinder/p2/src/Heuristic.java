@@ -0,0 +1,38 @@
+/**
+ * A heuristic estimates the cost of the shortest path from a node to a
+ * target node, so that A* searches can settle nodes that look closer to the
+ * target first. To keep A* searches exact, estimates must never exceed the
+ * true cost (admissible), and the estimate for a node must never exceed the
+ * weight of an edge leaving it plus the estimate for that edge's successor
+ * (consistent). Straight-line distance divided by the fastest travel speed is
+ * one such heuristic.
+ *
+ * @param <NodeType> the data type stored at each node of the graph
+ */
+public interface Heuristic<NodeType> {
+
+  /**
+   * Estimates the cost of the shortest path from one node to another.
+   *
+   * @param node   the data item in the node the path starts from
+   * @param target the data item in the destination node of the path
+   * @return a lower bound on the cost of that path
+   */
+  public double estimate(NodeType node, NodeType target);
+
+  /**
+   * Estimates the cost of the shortest path between two nodes of a compact
+   * snapshot, identified by their ids. By default this looks up each node's
+   * data and calls estimate(NodeType, NodeType); heuristics that keep their
+   * own tables by node id can override it to skip those lookups.
+   *
+   * @param graph  the snapshot being searched
+   * @param node   the id of the node the path starts from
+   * @param target the id of the destination node of the path
+   * @return a lower bound on the cost of that path
+   */
+  public default double estimate(CompactGraph<NodeType> graph, int node, int target) {
+    return estimate(graph.getData(node), graph.getData(target));
+  }
+
+}
@@ -0,0 +1,196 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A d-ary min heap of int keys from 0 to capacity - 1, each with a double
+ * priority. The heap position of every key is tracked, so that a queued key
+ * can have its priority lowered in place (decrease-key) instead of being
+ * queued a second time. Each key is stored at most once, so the heap never
+ * holds more than capacity entries.
+ */
+public class IndexedMinHeap {
+
+  protected final int arity;
+  protected final int[] heap; // keys in heap order
+  protected final int[] position; // heap position of each key, or -1
+  protected final double[] priority; // priority of each queued key
+  protected int size = 0;
+
+  /**
+   * Constructor for a 4-ary heap.
+   *
+   * @param capacity one more than the largest key this heap can hold
+   */
+  public IndexedMinHeap(int capacity) {
+    this(capacity, 4);
+  }
+
+  /**
+   * Constructor for a heap with the provided number of children per entry.
+   *
+   * @param capacity one more than the largest key this heap can hold
+   * @param arity    the number of children of each heap entry, at least 2
+   * @throws IllegalArgumentException if arity is less than 2
+   */
+  public IndexedMinHeap(int capacity, int arity) {
+    if (arity < 2)
+      throw new IllegalArgumentException("heap arity must be at least 2");
+    this.arity = arity;
+    this.heap = new int[capacity];
+    this.position = new int[capacity];
+    this.priority = new double[capacity];
+    Arrays.fill(position, -1);
+  }
+
+  /**
+   * Checks whether this heap holds no keys.
+   *
+   * @return true if this heap is empty, false otherwise
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Return the number of keys in this heap.
+   *
+   * @return the number of keys in this heap
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Checks whether a key is currently queued in this heap.
+   *
+   * @param key the key to check for
+   * @return true if the key is queued, false otherwise
+   */
+  public boolean contains(int key) {
+    return position[key] != -1;
+  }
+
+  /**
+   * Return the priority of a queued key.
+   *
+   * @param key a key that is queued in this heap
+   * @return the priority of that key
+   */
+  public double getPriority(int key) {
+    return priority[key];
+  }
+
+  /**
+   * Queue a key with the provided priority, or lower the priority of a key
+   * that is already queued. Nothing changes when the key is queued with a
+   * priority that is not higher than the provided one.
+   *
+   * @param key      the key to queue
+   * @param newValue the priority for that key
+   * @return true if the key was queued or its priority lowered, false
+   *         otherwise
+   */
+  public boolean insertOrDecrease(int key, double newValue) {
+    int index = position[key];
+    if (index == -1) {
+      index = size++;
+      heap[index] = key;
+      position[key] = index;
+    } else if (newValue >= priority[key]) {
+      return false;
+    }
+    priority[key] = newValue;
+    siftUp(index);
+    return true;
+  }
+
+  /**
+   * Return the key with the lowest priority without removing it.
+   *
+   * @return the key with the lowest priority
+   * @throws NoSuchElementException if this heap is empty
+   */
+  public int peek() {
+    if (size == 0)
+      throw new NoSuchElementException("heap is empty");
+    return heap[0];
+  }
+
+  /**
+   * Remove and return the key with the lowest priority.
+   *
+   * @return the key with the lowest priority
+   * @throws NoSuchElementException if this heap is empty
+   */
+  public int poll() {
+    if (size == 0)
+      throw new NoSuchElementException("heap is empty");
+    int min = heap[0];
+    position[min] = -1;
+    size--;
+    if (size > 0) {
+      int last = heap[size];
+      heap[0] = last;
+      position[last] = 0;
+      siftDown(0);
+    }
+    return min;
+  }
+
+  /**
+   * Remove every key from this heap. This takes time proportional to the
+   * number of keys still queued, not to the capacity of the heap.
+   */
+  public void clear() {
+    for (int i = 0; i < size; i++)
+      position[heap[i]] = -1;
+    size = 0;
+  }
+
+  // moves the entry at index toward the root until its parent is not larger
+  protected void siftUp(int index) {
+    int key = heap[index];
+    double value = priority[key];
+    while (index > 0) {
+      int parent = (index - 1) / arity;
+      int parentKey = heap[parent];
+      if (priority[parentKey] <= value)
+        break;
+      heap[index] = parentKey;
+      position[parentKey] = index;
+      index = parent;
+    }
+    heap[index] = key;
+    position[key] = index;
+  }
+
+  // moves the entry at index toward the leaves until no child is smaller
+  protected void siftDown(int index) {
+    int key = heap[index];
+    double value = priority[key];
+    while (true) {
+      int firstChild = index * arity + 1;
+      if (firstChild >= size)
+        break;
+      int lastChild = Math.min(firstChild + arity, size);
+      int best = firstChild;
+      double bestValue = priority[heap[firstChild]];
+      for (int child = firstChild + 1; child < lastChild; child++) {
+        double childValue = priority[heap[child]];
+        if (childValue < bestValue) {
+          best = child;
+          bestValue = childValue;
+        }
+      }
+      if (bestValue >= value)
+        break;
+      int bestKey = heap[best];
+      heap[index] = bestKey;
+      position[bestKey] = index;
+      index = best;
+    }
+    heap[index] = key;
+    position[key] = index;
+  }
+
+}
@@ -0,0 +1,335 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Finds the k shortest loopless paths between two nodes of a snapshot, in
+ * increasing order of cost, with Yen's algorithm. Each path after the first
+ * is the cheapest of the candidates found by spur searches: for every node
+ * along the previous path, a search from that node (the spur node) to the
+ * target that may not revisit the nodes before it and may not leave it along
+ * any edge that an earlier path with the same prefix took. The spur searches
+ * for one path are independent of each other, so they run in parallel on the
+ * threads of a ForkJoinPool, each thread reusing one set of search arrays.
+ *
+ * Two refinements keep the spur searches small. Every spur search is an A*
+ * search guided by the cost from each node to the target, as found by one
+ * search of the reversed snapshot from the target, which stops once it
+ * settles the source. Nodes it settled have their exact cost; every other
+ * node is at least as far from the target as the source is, which is still
+ * a consistent estimate. Spur searches near the shortest path therefore
+ * settle little more than the nodes along their own paths. And, as Lawler
+ * observed, a path only needs spur searches from the node where it left the
+ * path it was found from onward, since the spur nodes before that were
+ * already searched.
+ *
+ * @param <NodeType> the data type stored at each node of the graph
+ */
+public class KShortestPaths<NodeType> {
+
+  /**
+   * A path through the snapshot, by node ids and edge indexes.
+   */
+  protected static class Route implements Comparable<Route> {
+    public final int[] nodes;
+    public final int[] edges; // edges[i] leads from nodes[i] to nodes[i + 1]
+    public final double cost;
+    public final int deviation; // index of the spur node this route was found from
+    public long order; // breaks ties between routes of equal cost, in order found
+
+    public Route(int[] nodes, int[] edges, double cost, int deviation) {
+      this.nodes = nodes;
+      this.edges = edges;
+      this.cost = cost;
+      this.deviation = deviation;
+    }
+
+    public int compareTo(Route other) {
+      if (cost != other.cost)
+        return cost < other.cost ? -1 : +1;
+      return Long.compare(order, other.order);
+    }
+
+    // whether this route starts with the first count nodes of another
+    public boolean sharesPrefix(Route other, int count) {
+      if (nodes.length < count)
+        return false;
+      for (int i = 0; i < count; i++)
+        if (nodes[i] != other.nodes[i])
+          return false;
+      return true;
+    }
+  }
+
+  /**
+   * The work arrays of one thread's spur searches. Nodes and edges are
+   * blocked by stamping them with the current generation, so that no array
+   * needs clearing between searches.
+   */
+  protected static class SpurSearch {
+    protected final CompactGraph<?> graph;
+    protected final double[] dist;
+    protected final int[] pred;
+    protected final int[] predEdge;
+    protected final int[] reached;
+    protected final int[] settled;
+    protected final int[] blockedNodes;
+    protected final int[] blockedEdges;
+    protected final IndexedMinHeap heap;
+    protected int generation = 0;
+
+    public SpurSearch(CompactGraph<?> graph) {
+      int nodeCount = graph.getNodeCount();
+      this.graph = graph;
+      this.dist = new double[nodeCount];
+      this.pred = new int[nodeCount];
+      this.predEdge = new int[nodeCount];
+      this.reached = new int[nodeCount];
+      this.settled = new int[nodeCount];
+      this.blockedNodes = new int[nodeCount];
+      this.blockedEdges = new int[graph.getEdgeCount()];
+      this.heap = new IndexedMinHeap(nodeCount);
+    }
+
+    // unblocks every node and edge, for the next search
+    public void reset() {
+      if (generation == Integer.MAX_VALUE) {
+        Arrays.fill(reached, 0);
+        Arrays.fill(settled, 0);
+        Arrays.fill(blockedNodes, 0);
+        Arrays.fill(blockedEdges, 0);
+        generation = 0;
+      }
+      generation++;
+    }
+
+    public void blockNode(int node) {
+      blockedNodes[node] = generation;
+    }
+
+    public void blockEdge(int edge) {
+      blockedEdges[edge] = generation;
+    }
+
+    // A* from source to target around the blocked nodes and edges, guided by
+    // a search of the reversed graph from the target that settled every node
+    // closer to the target than radius
+    public boolean search(int source, int target, CompactSearch<?> toTarget, double radius) {
+      heap.clear();
+      reached[source] = generation;
+      dist[source] = 0;
+      pred[source] = -1;
+      predEdge[source] = -1;
+      heap.insertOrDecrease(source, remaining(source, toTarget, radius));
+      while (!heap.isEmpty()) {
+        int u = heap.poll();
+        settled[u] = generation;
+        if (u == target)
+          return true;
+        for (int e = graph.getEdgeStart(u); e < graph.getEdgeEnd(u); e++) {
+          int v = graph.getTarget(e);
+          if (blockedEdges[e] == generation || blockedNodes[v] == generation
+              || settled[v] == generation)
+            continue;
+          double cost = dist[u] + graph.getWeight(e);
+          if (reached[v] != generation || cost < dist[v]) {
+            reached[v] = generation;
+            dist[v] = cost;
+            pred[v] = u;
+            predEdge[v] = e;
+            heap.insertOrDecrease(v, cost + remaining(v, toTarget, radius));
+          }
+        }
+      }
+      return false;
+    }
+
+    // a lower bound on the cost from a node to the target
+    private static double remaining(int node, CompactSearch<?> toTarget, double radius) {
+      return toTarget.isSettled(node) ? toTarget.getCost(node) : radius;
+    }
+  }
+
+  protected final CompactGraph<NodeType> graph;
+  protected final CompactGraph<NodeType> reversed;
+  protected final ForkJoinPool pool;
+  // Searches of the reversed snapshot that no call to find is using; a pool
+  // thread may run another call while it waits for its own spur searches, so
+  // these are borrowed rather than kept per thread
+  protected final ConcurrentLinkedQueue<CompactSearch<NodeType>> reverseSearches =
+      new ConcurrentLinkedQueue<>();
+  // Each thread's spur search arrays, reused for every spur search it runs
+  protected final ThreadLocal<SpurSearch> spurSearches;
+
+  /**
+   * Constructor for finding paths in a snapshot on the threads of a pool.
+   *
+   * @param graph the snapshot to search
+   * @param pool  the pool whose threads run the spur searches
+   */
+  public KShortestPaths(CompactGraph<NodeType> graph, ForkJoinPool pool) {
+    this.graph = graph;
+    this.reversed = graph.reverse();
+    this.pool = pool;
+    this.spurSearches = ThreadLocal.withInitial(() -> new SpurSearch(graph));
+  }
+
+  /**
+   * Return the snapshot that paths are found in.
+   *
+   * @return the snapshot this object searches
+   */
+  public CompactGraph<NodeType> getGraph() {
+    return graph;
+  }
+
+  /**
+   * Finds up to count loopless paths from one node to another, cheapest
+   * first. Fewer paths are returned when there are fewer loopless paths, and
+   * paths of equal cost are returned in the order they were found.
+   *
+   * @param source the id of the starting node for the paths
+   * @param target the id of the destination node for the paths
+   * @param count  the largest number of paths to return
+   * @return the nodes, edge weights, and total cost of each path, cheapest first
+   * @throws NoSuchElementException   when there is no path from source to
+   *                                  target, or either is not a node id
+   * @throws IllegalArgumentException if count is not positive
+   */
+  public List<ShortestPathResult<NodeType>> find(int source, int target, int count) {
+    if (count <= 0)
+      throw new IllegalArgumentException("count must be positive");
+    if (!graph.containsId(source) || !graph.containsId(target))
+      throw new NoSuchElementException("Start or end node not found in the graph.");
+
+    // the cost to the target from every node closer to it than the source,
+    // and the shortest path along the way
+    CompactSearch<NodeType> toTarget = reverseSearches.poll();
+    if (toTarget == null)
+      toTarget = new CompactSearch<>(reversed, CompactSearch.QueueType.INDEXED_HEAP);
+    try {
+      return find(source, target, count, toTarget);
+    } finally {
+      reverseSearches.offer(toTarget);
+    }
+  }
+
+  // the body of find once a search of the reversed snapshot is borrowed
+  protected List<ShortestPathResult<NodeType>> find(int source, int target, int count,
+      CompactSearch<NodeType> toTarget) {
+    if (!toTarget.search(target, source))
+      throw new NoSuchElementException("No path from start to end is found");
+    double radius = toTarget.getCost(source);
+    // the reverse search's path from the target back to the source, turned around
+    int[] backward = toTarget.getPath(source);
+    int[] nodes = new int[backward.length];
+    int[] edges = new int[backward.length - 1];
+    for (int i = 0; i < nodes.length; i++)
+      nodes[i] = backward[backward.length - 1 - i];
+    for (int i = 0; i < edges.length; i++)
+      edges[i] = graph.findEdge(nodes[i], nodes[i + 1]);
+    List<Route> accepted = new ArrayList<>();
+    accepted.add(route(nodes, edges, 0));
+
+    PriorityQueue<Route> candidates = new PriorityQueue<>();
+    Set<List<Integer>> found = new HashSet<>();
+    found.add(key(accepted.get(0)));
+    long order = 0;
+    while (accepted.size() < count) {
+      Route last = accepted.get(accepted.size() - 1);
+      List<Route> prefixes = new ArrayList<>(accepted);
+      for (Route spur : spurRoutes(last, prefixes, target, toTarget, radius)) {
+        if (spur != null && found.add(key(spur))) {
+          spur.order = order++;
+          candidates.add(spur);
+        }
+      }
+      if (candidates.isEmpty())
+        break;
+      accepted.add(candidates.poll());
+    }
+
+    List<ShortestPathResult<NodeType>> results = new ArrayList<>(accepted.size());
+    for (Route route : accepted)
+      results.add(result(route));
+    return results;
+  }
+
+  // the candidates from every spur node of a route, in order of their spur
+  // nodes, with null for spur nodes that have no path to the target
+  protected List<Route> spurRoutes(Route last, List<Route> accepted, int target,
+      CompactSearch<NodeType> toTarget, double radius) {
+    int count = last.nodes.length - 1 - last.deviation;
+    Route[] routes = new Route[count];
+    // a single spur search is not worth handing to the pool
+    if (count <= 1) {
+      for (int i = 0; i < count; i++)
+        routes[i] = spurRoute(last, last.deviation + i, accepted, target, toTarget, radius);
+    } else {
+      DistanceTable.run(pool, count, i -> routes[i] = spurRoute(last, last.deviation + i,
+          accepted, target, toTarget, radius));
+    }
+    return Arrays.asList(routes);
+  }
+
+  // the cheapest route that follows a route up to its spur node and then
+  // leaves it, or null if there is none
+  protected Route spurRoute(Route last, int spur, List<Route> accepted, int target,
+      CompactSearch<NodeType> toTarget, double radius) {
+    SpurSearch search = spurSearches.get();
+    search.reset();
+    for (int i = 0; i < spur; i++)
+      search.blockNode(last.nodes[i]);
+    for (Route route : accepted)
+      if (route.nodes.length > spur + 1 && route.sharesPrefix(last, spur + 1))
+        search.blockEdge(route.edges[spur]);
+    if (!search.search(last.nodes[spur], target, toTarget, radius))
+      return null;
+
+    // the route's nodes and edges up to the spur node, then the spur path's
+    int spurLength = 0;
+    for (int v = target; v != last.nodes[spur]; v = search.pred[v])
+      spurLength++;
+    int[] nodes = Arrays.copyOf(last.nodes, spur + 1 + spurLength);
+    int[] edges = Arrays.copyOf(last.edges, spur + spurLength);
+    for (int v = target, i = nodes.length - 1; v != last.nodes[spur]; v = search.pred[v], i--) {
+      nodes[i] = v;
+      edges[i - 1] = search.predEdge[v];
+    }
+    return route(nodes, edges, spur);
+  }
+
+  // a route along the provided nodes and edges, with their total cost
+  protected Route route(int[] nodes, int[] edges, int deviation) {
+    double cost = 0;
+    for (int edge : edges)
+      cost += graph.getWeight(edge);
+    return new Route(nodes, edges, cost, deviation);
+  }
+
+  // identifies a route by its nodes, so that no route is found twice
+  private static List<Integer> key(Route route) {
+    List<Integer> key = new ArrayList<>(route.nodes.length);
+    for (int node : route.nodes)
+      key.add(node);
+    return key;
+  }
+
+  // the node data, edge weights, and cost of a route
+  protected ShortestPathResult<NodeType> result(Route route) {
+    List<NodeType> path = new ArrayList<>(route.nodes.length);
+    List<Double> segmentCosts = new ArrayList<>(route.edges.length);
+    for (int node : route.nodes)
+      path.add(graph.getData(node));
+    for (int edge : route.edges)
+      segmentCosts.add(graph.getWeight(edge));
+    return new ShortestPathResult<>(path, segmentCosts, route.cost);
+  }
+
+}
@@ -0,0 +1,304 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An ALT (A*, Landmarks, Triangle inequality) heuristic. A small set of
+ * landmark nodes is picked, and the cost of the shortest path from every
+ * landmark to every node and from every node to every landmark is computed
+ * ahead of time. By the triangle inequality, d(v, t) is at least
+ * d(v, L) - d(t, L) and at least d(L, t) - d(L, v) for any landmark L, so the
+ * largest of these differences is an admissible and consistent estimate that
+ * needs no coordinates.
+ *
+ * The tables are computed on first use, and stay in use while the graph only
+ * has edges removed or their weights raised, since distances can then only
+ * grow and old lower bounds remain lower bounds. They are recomputed by the
+ * first estimate after a mutation that could shorten a path (a new edge or a
+ * lowered weight) or free a node id for reuse (a removed node). Nodes inserted after
+ * the tables were computed are estimated as 0 until then. Threads may share
+ * one heuristic: the tables are replaced whole, and only one thread
+ * recomputes them at a time.
+ *
+ * @param <NodeType> the data type stored at each node of the graph
+ */
+public class LandmarkHeuristic<NodeType> implements Heuristic<NodeType> {
+
+  // Identifies files written by save()
+  private static final int FILE_MAGIC = 0x414C5432; // "ALT2"
+
+  protected final BaseGraph<NodeType, ?> graph;
+  protected final int requestedLandmarks;
+
+  /**
+   * The landmarks and their distance tables, computed from one snapshot and
+   * never changed afterwards, so that threads estimating at the same time
+   * always see complete tables.
+   */
+  protected static class Tables<NodeType> {
+    // the snapshot the tables were computed from, whose ids index them
+    public final CompactGraph<NodeType> snapshot;
+    // shortening version of the graph when the tables were computed
+    public final int version;
+    // ids of the landmarks, and the distance tables indexed [node * K + landmark]
+    public final int[] landmarks;
+    public final double[] fromLandmark; // d(landmark, node)
+    public final double[] toLandmark; // d(node, landmark)
+    public final int nodeCount;
+
+    public Tables(CompactGraph<NodeType> snapshot, int version, int[] landmarks,
+        double[] fromLandmark, double[] toLandmark) {
+      this.snapshot = snapshot;
+      this.version = version;
+      this.landmarks = landmarks;
+      this.fromLandmark = fromLandmark;
+      this.toLandmark = toLandmark;
+      this.nodeCount = snapshot.getNodeCount();
+    }
+  }
+
+  // the current tables, or null before they are first computed; replaced
+  // whole by rebuild() so that estimates never see half-computed tables
+  protected volatile Tables<NodeType> tables = null;
+  protected int rebuildCount = 0;
+
+  /**
+   * Constructor for a heuristic with the provided number of landmarks.
+   *
+   * @param graph          the graph whose paths are estimated
+   * @param landmarkCount  the number of landmarks to pick
+   * @throws IllegalArgumentException if landmarkCount is less than 1
+   */
+  public LandmarkHeuristic(BaseGraph<NodeType, ?> graph, int landmarkCount) {
+    if (landmarkCount < 1)
+      throw new IllegalArgumentException("at least one landmark is needed");
+    this.graph = graph;
+    this.requestedLandmarks = landmarkCount;
+  }
+
+  @Override
+  public double estimate(NodeType node, NodeType target) {
+    Tables<NodeType> current = currentTables();
+    return estimate(current, current.snapshot.getId(node), current.snapshot.getId(target));
+  }
+
+  @Override
+  public double estimate(CompactGraph<NodeType> snapshot, int node, int target) {
+    return estimate(currentTables(), node, target);
+  }
+
+  // the largest lower bound that any landmark gives on d(node, target)
+  private static double estimate(Tables<?> tables, int node, int target) {
+    if (node < 0 || target < 0 || node >= tables.nodeCount || target >= tables.nodeCount)
+      return 0;
+    int k = tables.landmarks.length;
+    int nodeRow = node * k;
+    int targetRow = target * k;
+    double[] toLandmark = tables.toLandmark;
+    double[] fromLandmark = tables.fromLandmark;
+    double best = 0;
+    for (int i = 0; i < k; i++) {
+      // d(v, t) >= d(v, L) - d(t, L)
+      double bound = toLandmark[nodeRow + i] - toLandmark[targetRow + i];
+      if (bound > best && bound != Double.POSITIVE_INFINITY)
+        best = bound;
+      // d(v, t) >= d(L, t) - d(L, v)
+      bound = fromLandmark[targetRow + i] - fromLandmark[nodeRow + i];
+      if (bound > best && bound != Double.POSITIVE_INFINITY)
+        best = bound;
+    }
+    return best;
+  }
+
+  /**
+   * Recomputes the landmark tables if the graph has changed in a way that
+   * could make them overestimate.
+   */
+  public void ensureCurrent() {
+    currentTables();
+  }
+
+  // the tables, recomputed first if they could overestimate; only one thread
+  // recomputes them, while the others wait for its tables
+  protected Tables<NodeType> currentTables() {
+    Tables<NodeType> current = tables;
+    if (current != null && current.version == graph.getShorteningVersion())
+      return current;
+    synchronized (this) {
+      current = tables;
+      if (current == null || current.version != graph.getShorteningVersion())
+        current = rebuild();
+      return current;
+    }
+  }
+
+  /**
+   * Picks the landmarks and computes their distance tables. Each landmark
+   * after the first is the node farthest from every landmark picked so far,
+   * so that the landmarks spread out to the edges of the graph; nodes that no
+   * landmark reaches are picked first, so each part of a disconnected graph
+   * gets a landmark.
+   *
+   * @return the new tables, which estimates use from now on
+   */
+  public synchronized Tables<NodeType> rebuild() {
+    int version = graph.getShorteningVersion();
+    CompactGraph<NodeType> forward = graph.snapshot();
+    CompactGraph<NodeType> backward = forward.reverse();
+    int nodeCount = forward.getNodeCount();
+    int k = Math.min(requestedLandmarks, graph.getNodeCount());
+    CompactSearch<NodeType> forwardSearch = new CompactSearch<>(forward,
+        CompactSearch.QueueType.INDEXED_HEAP);
+    CompactSearch<NodeType> backwardSearch = new CompactSearch<>(backward,
+        CompactSearch.QueueType.INDEXED_HEAP);
+
+    int[] landmarks = new int[k];
+    double[] fromLandmark = new double[nodeCount * k];
+    double[] toLandmark = new double[nodeCount * k];
+    // closeness of each node to the landmarks picked so far
+    double[] nearest = new double[nodeCount];
+    Arrays.fill(nearest, Double.POSITIVE_INFINITY);
+    int first = 0;
+    while (first < nodeCount && !forward.containsId(first))
+      first++;
+    int next = first < nodeCount ? farthestFrom(forwardSearch, first) : -1;
+    for (int i = 0; i < k; i++) {
+      landmarks[i] = next;
+      forwardSearch.search(next, -1);
+      backwardSearch.search(next, -1);
+      next = -1;
+      for (int v = 0; v < nodeCount; v++) {
+        double from = forwardSearch.getCost(v);
+        double to = backwardSearch.getCost(v);
+        fromLandmark[v * k + i] = from;
+        toLandmark[v * k + i] = to;
+        nearest[v] = Math.min(nearest[v], from + to);
+        // the ids of removed nodes are never landmarks
+        if (forward.containsId(v) && (next == -1 || nearest[v] > nearest[next]))
+          next = v;
+      }
+    }
+    Tables<NodeType> built = new Tables<>(forward, version, landmarks, fromLandmark, toLandmark);
+    tables = built;
+    rebuildCount++;
+    return built;
+  }
+
+  // the node with the most expensive shortest path from the provided node
+  private int farthestFrom(CompactSearch<NodeType> search, int source) {
+    search.search(source, -1);
+    int farthest = source;
+    for (int v = 0; v < search.getGraph().getNodeCount(); v++) {
+      double cost = search.getCost(v);
+      if (cost != Double.POSITIVE_INFINITY && cost > search.getCost(farthest))
+        farthest = v;
+    }
+    return farthest;
+  }
+
+  /**
+   * Returns the data of the current landmark nodes.
+   *
+   * @return the landmark nodes, in the order they were picked
+   */
+  public List<NodeType> getLandmarks() {
+    Tables<NodeType> current = currentTables();
+    List<NodeType> result = new ArrayList<>(current.landmarks.length);
+    for (int landmark : current.landmarks)
+      result.add(current.snapshot.getData(landmark));
+    return result;
+  }
+
+  /**
+   * Returns the number of times the landmark tables have been computed.
+   *
+   * @return the number of times the tables were computed
+   */
+  public synchronized int getRebuildCount() {
+    return rebuildCount;
+  }
+
+  /**
+   * Writes the landmark tables to a file, so that they can be loaded along with the graph
+   * later instead of being computed again.
+   *
+   * @param file the file to write, for example campus.dot.landmarks next to campus.dot
+   * @throws IOException if the file cannot be written
+   */
+  public void save(File file) throws IOException {
+    Tables<NodeType> current = currentTables();
+    // everything written comes from the snapshot the tables were computed from
+    CompactGraph<NodeType> snapshot = current.snapshot;
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(new FileOutputStream(file)))) {
+      out.writeInt(FILE_MAGIC);
+      out.writeInt(current.nodeCount);
+      out.writeInt(snapshot.getEdgeCount());
+      out.writeLong(snapshot.getFingerprint());
+      out.writeInt(current.landmarks.length);
+      for (int landmark : current.landmarks) {
+        out.writeInt(landmark);
+        out.writeUTF(String.valueOf(snapshot.getData(landmark)));
+      }
+      for (int i = 0; i < current.fromLandmark.length; i++) {
+        out.writeDouble(current.fromLandmark[i]);
+        out.writeDouble(current.toLandmark[i]);
+      }
+    }
+  }
+
+  /**
+   * Reads landmark tables written by save() for the provided graph. The file must have been
+   * written for a graph with the same nodes, in the same order, and the same edges and weights,
+   * since tables computed before a weight was lowered could overestimate.
+   *
+   * @param graph the graph whose paths are estimated
+   * @param file  the file to read
+   * @return a heuristic using the tables read from the file
+   * @throws IOException if the file cannot be read or was written for a different graph
+   */
+  public static <NodeType> LandmarkHeuristic<NodeType> load(BaseGraph<NodeType, ?> graph,
+      File file) throws IOException {
+    CompactGraph<NodeType> snapshot = graph.snapshot();
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(new FileInputStream(file)))) {
+      if (in.readInt() != FILE_MAGIC)
+        throw new IOException(file + " is not a landmark file");
+      int nodeCount = in.readInt();
+      int edgeCount = in.readInt();
+      long fingerprint = in.readLong();
+      int k = in.readInt();
+      if (nodeCount != snapshot.getNodeCount() || edgeCount != snapshot.getEdgeCount()
+          || fingerprint != snapshot.getFingerprint() || k < 1)
+        throw new IOException(file + " was written for a different graph");
+      int[] landmarks = new int[k];
+      for (int i = 0; i < k; i++) {
+        int landmark = in.readInt();
+        String name = in.readUTF();
+        if (landmark < 0 || landmark >= nodeCount
+            || !name.equals(String.valueOf(snapshot.getData(landmark))))
+          throw new IOException(file + " was written for a different graph");
+        landmarks[i] = landmark;
+      }
+      double[] fromLandmark = new double[nodeCount * k];
+      double[] toLandmark = new double[nodeCount * k];
+      for (int i = 0; i < nodeCount * k; i++) {
+        fromLandmark[i] = in.readDouble();
+        toLandmark[i] = in.readDouble();
+      }
+      LandmarkHeuristic<NodeType> heuristic = new LandmarkHeuristic<>(graph, k);
+      heuristic.tables = new Tables<>(snapshot, graph.getShorteningVersion(), landmarks,
+          fromLandmark, toLandmark);
+      return heuristic;
+    }
+  }
+
+}
@@ -0,0 +1,151 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A size-bounded, thread-safe cache that evicts its least recently used
+ * entry when it is full. Every entry belongs to one version of the data it
+ * was computed from, such as a graph's version counter: a lookup or insert
+ * with a different version than the cache holds discards every entry first,
+ * so that no stale entry is ever returned. The cache counts its hits, misses,
+ * evictions, and invalidations.
+ *
+ * @param <KeyType>   the type of the keys entries are looked up by
+ * @param <ValueType> the type of the cached values
+ */
+public class LruCache<KeyType, ValueType> {
+
+  protected final int capacity;
+  // iterates from the least to the most recently used entry
+  protected final LinkedHashMap<KeyType, ValueType> entries;
+  protected int version = 0;
+
+  protected long hits = 0;
+  protected long misses = 0;
+  protected long evictions = 0;
+  protected long invalidations = 0;
+
+  /**
+   * Constructor for a cache holding at most the provided number of entries.
+   *
+   * @param capacity the largest number of entries to keep, or 0 to keep none
+   * @throws IllegalArgumentException if capacity is negative
+   */
+  public LruCache(int capacity) {
+    if (capacity < 0)
+      throw new IllegalArgumentException("capacity must not be negative");
+    this.capacity = capacity;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<KeyType, ValueType> eldest) {
+        if (size() <= LruCache.this.capacity)
+          return false;
+        evictions++;
+        return true;
+      }
+    };
+  }
+
+  /**
+   * Returns the value cached for a key, and marks it as the most recently used.
+   *
+   * @param key     the key to look up
+   * @param version the current version of the data values are computed from
+   * @return the cached value, or null if there is none for this key and version
+   */
+  public synchronized ValueType get(KeyType key, int version) {
+    validate(version);
+    ValueType value = entries.get(key);
+    if (value == null)
+      misses++;
+    else
+      hits++;
+    return value;
+  }
+
+  /**
+   * Caches a value for a key, evicting the least recently used entry if the
+   * cache is full.
+   *
+   * @param key     the key to cache the value under
+   * @param value   the value, computed from the provided version of its data
+   * @param version the version of the data the value was computed from
+   */
+  public synchronized void put(KeyType key, ValueType value, int version) {
+    validate(version);
+    if (capacity > 0)
+      entries.put(key, value);
+  }
+
+  // discards every entry when the data they were computed from has changed
+  protected void validate(int version) {
+    if (version == this.version)
+      return;
+    if (!entries.isEmpty())
+      invalidations++;
+    entries.clear();
+    this.version = version;
+  }
+
+  /**
+   * Discards every entry.
+   */
+  public synchronized void clear() {
+    entries.clear();
+  }
+
+  /**
+   * Returns the number of entries currently cached.
+   *
+   * @return the number of cached entries
+   */
+  public synchronized int getSize() {
+    return entries.size();
+  }
+
+  /**
+   * Returns the largest number of entries this cache keeps.
+   *
+   * @return the capacity of this cache
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Returns the number of lookups that found a cached value.
+   *
+   * @return the number of cache hits
+   */
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  /**
+   * Returns the number of lookups that found no cached value.
+   *
+   * @return the number of cache misses
+   */
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  /**
+   * Returns the number of entries discarded to make room for newer ones.
+   *
+   * @return the number of evictions
+   */
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * Returns the number of times every entry was discarded because the data
+   * they were computed from changed.
+   *
+   * @return the number of invalidations
+   */
+  public synchronized long getInvalidations() {
+    return invalidations;
+  }
+
+}
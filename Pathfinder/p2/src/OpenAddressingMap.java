@@ -0,0 +1,225 @@
+import java.util.NoSuchElementException;
+
+/**
+ * Implements MapADT with an open addressing hash table that uses linear
+ * probing. Keys, their hash codes, and their values are kept in three
+ * parallel arrays, so a lookup compares cached hash codes before calling
+ * equals and never follows a chain of entry objects. Every put, get, and
+ * remove walks a single probe sequence. Removal shifts later entries of the
+ * same cluster back into the gap instead of leaving a tombstone, so lookups
+ * never slow down as entries are added and removed.
+ */
+public class OpenAddressingMap<KeyType, ValueType> implements MapADT<KeyType, ValueType> {
+
+  public static final int DEFAULT_CAPACITY = 16;
+  public static final double DEFAULT_LOAD_FACTOR = 0.5;
+
+  protected final double loadFactor;
+  protected Object[] keys; // null marks an empty slot
+  protected Object[] values;
+  protected int[] hashes;
+  protected int size = 0;
+  protected int mask; // capacity - 1, since the capacity is a power of two
+  protected int threshold; // size at which the table doubles
+
+  /**
+   * Constructor for a map with the default capacity and load factor.
+   */
+  public OpenAddressingMap() {
+    this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR);
+  }
+
+  /**
+   * Constructor for a map that holds the provided number of keys without
+   * growing, at the default load factor.
+   *
+   * @param expectedSize the number of keys to make room for
+   */
+  public OpenAddressingMap(int expectedSize) {
+    this(expectedSize, DEFAULT_LOAD_FACTOR);
+  }
+
+  /**
+   * Constructor for a map that holds the provided number of keys without
+   * growing, and doubles its capacity whenever its size would exceed the
+   * provided fraction of its capacity.
+   *
+   * @param expectedSize the number of keys to make room for
+   * @param loadFactor   the largest fraction of slots to fill, above 0 and
+   *                     below 1
+   * @throws IllegalArgumentException if expectedSize is negative or
+   *                                  loadFactor is out of range
+   */
+  public OpenAddressingMap(int expectedSize, double loadFactor) {
+    if (expectedSize < 0)
+      throw new IllegalArgumentException("expected size must not be negative");
+    if (!(loadFactor > 0 && loadFactor < 1))
+      throw new IllegalArgumentException("load factor must be between 0 and 1");
+    this.loadFactor = loadFactor;
+    int capacity = 2;
+    while (capacity * loadFactor < expectedSize)
+      capacity *= 2;
+    allocate(capacity);
+  }
+
+  // replaces the table with an empty one of the provided power of two capacity
+  protected void allocate(int capacity) {
+    keys = new Object[capacity];
+    values = new Object[capacity];
+    hashes = new int[capacity];
+    mask = capacity - 1;
+    threshold = Math.max(1, Math.min(capacity - 1, (int) (capacity * loadFactor)));
+  }
+
+  // spreads the bits of a key's hash code, so that keys whose hash codes only
+  // differ in their high bits do not collide
+  protected static int hash(Object key) {
+    int h = key.hashCode() * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  // the slot holding the key, or the empty slot ending its probe sequence
+  protected int find(Object key, int hash) {
+    int slot = hash & mask;
+    while (keys[slot] != null) {
+      if (hashes[slot] == hash && keys[slot].equals(key))
+        return slot;
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  @Override
+  public void put(KeyType key, ValueType value) throws IllegalArgumentException {
+    if (!putIfAbsent(key, value))
+      throw new IllegalArgumentException("key " + key.toString() + " already present in map");
+  }
+
+  /**
+   * Adds a new key,value pair to this collection unless the key already maps
+   * to a value, with a single probe sequence.
+   *
+   * @param key   the key of the key,value pair
+   * @param value the value that key maps to
+   * @return true if the pair was added, or false if key already maps to a
+   *         value, which is left unchanged
+   * @throws NullPointerException if key is null
+   */
+  public boolean putIfAbsent(KeyType key, ValueType value) {
+    if (key == null)
+      throw new NullPointerException("null keys not allowed");
+    int hash = hash(key);
+    int slot = find(key, hash);
+    if (keys[slot] != null)
+      return false;
+    keys[slot] = key;
+    values[slot] = value;
+    hashes[slot] = hash;
+    if (++size > threshold)
+      resize(keys.length * 2);
+    return true;
+  }
+
+  // moves every entry into a table of the provided capacity
+  protected void resize(int capacity) {
+    Object[] oldKeys = keys;
+    Object[] oldValues = values;
+    int[] oldHashes = hashes;
+    allocate(capacity);
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] == null)
+        continue;
+      int slot = oldHashes[i] & mask;
+      while (keys[slot] != null)
+        slot = (slot + 1) & mask;
+      keys[slot] = oldKeys[i];
+      values[slot] = oldValues[i];
+      hashes[slot] = oldHashes[i];
+    }
+  }
+
+  @Override
+  public boolean containsKey(KeyType key) {
+    if (key == null)
+      throw new NullPointerException("null keys not allowed");
+    return keys[find(key, hash(key))] != null;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public ValueType get(KeyType key) throws NoSuchElementException {
+    if (key == null)
+      throw new NullPointerException("null keys not allowed");
+    int slot = find(key, hash(key));
+    if (keys[slot] == null)
+      throw new NoSuchElementException("key " + key.toString() + " not in map");
+    return (ValueType) values[slot];
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public ValueType getOrDefault(KeyType key, ValueType defaultValue) {
+    if (key == null)
+      throw new NullPointerException("null keys not allowed");
+    int slot = find(key, hash(key));
+    return keys[slot] == null ? defaultValue : (ValueType) values[slot];
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public ValueType remove(KeyType key) throws NoSuchElementException {
+    if (key == null)
+      throw new NullPointerException("null keys not allowed");
+    int slot = find(key, hash(key));
+    if (keys[slot] == null)
+      throw new NoSuchElementException("key " + key.toString() + " not in map");
+    ValueType value = (ValueType) values[slot];
+    // shift back each later entry of the cluster that may move into the gap
+    int gap = slot;
+    for (int next = (gap + 1) & mask; keys[next] != null; next = (next + 1) & mask) {
+      int home = hashes[next] & mask;
+      // an entry can only move back if the gap lies between its home slot and
+      // its current slot, going around the end of the table if needed
+      if (((next - home) & mask) >= ((next - gap) & mask)) {
+        keys[gap] = keys[next];
+        values[gap] = values[next];
+        hashes[gap] = hashes[next];
+        gap = next;
+      }
+    }
+    keys[gap] = null;
+    values[gap] = null;
+    size--;
+    return value;
+  }
+
+  @Override
+  public void clear() {
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = null;
+      values[i] = null;
+    }
+    size = 0;
+  }
+
+  @Override
+  public int getSize() {
+    return size;
+  }
+
+  @Override
+  public int getCapacity() {
+    return keys.length;
+  }
+
+  /**
+   * Retrieves the largest fraction of this collection's slots that are
+   * filled before its capacity doubles.
+   *
+   * @return the load factor of this collection
+   */
+  public double getLoadFactor() {
+    return loadFactor;
+  }
+
+}
@@ -0,0 +1,295 @@
+import java.io.CharArrayReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Loads a DOT file into an empty graph with every thread of a ForkJoinPool.
+ * The file is split into chunks that end at line breaks, and each chunk is
+ * tokenized by its own DotReader in parallel, with node names interned in one
+ * concurrent table so that every name is held by a single object. A short
+ * sequential pass then walks the tokens in file order, giving node ids in
+ * order of first appearance and dropping repeated edges, and the graph is
+ * built with one bulk insert of its nodes and one of its edges.
+ *
+ * The result is the same graph, with the same node ids, and the same total
+ * time as Backend.readDataFromFile produces: lines without an edge or weight
+ * reuse the last ones seen, as they do there, even across chunks.
+ */
+public class ParallelDotLoader {
+
+  // Chunks are no larger than this many bytes, so that threads share the work
+  // evenly and only a few chunks are decoded in memory at once
+  private static final int MAX_CHUNK_BYTES = 1 << 23;
+  // Files smaller than this are read as one chunk
+  private static final int MIN_CHUNK_BYTES = 1 << 16;
+
+  /**
+   * A node name, interned so that the sequential pass can give it an id
+   * without looking it up again.
+   */
+  protected static class Name {
+    public final String data;
+    public int id = -1; // position in order of first appearance, once known
+
+    public Name(String data) {
+      this.data = data;
+    }
+  }
+
+  /**
+   * The tokens of the lines in one chunk of the file, other than brace lines.
+   */
+  protected static class Chunk {
+    public Name[] preds = new Name[64]; // null for lines without an edge
+    public Name[] succs = new Name[64];
+    public double[] weights = new double[64]; // NaN for lines without a weight
+    public int lineCount = 0;
+
+    public void add(Name pred, Name succ, double weight) {
+      if (lineCount == preds.length) {
+        preds = Arrays.copyOf(preds, lineCount * 2);
+        succs = Arrays.copyOf(succs, lineCount * 2);
+        weights = Arrays.copyOf(weights, lineCount * 2);
+      }
+      preds[lineCount] = pred;
+      succs[lineCount] = succ;
+      weights[lineCount] = weight;
+      lineCount++;
+    }
+  }
+
+  /**
+   * Loads a DOT file into an empty graph, as Backend.readDataFromFile would.
+   *
+   * @param graph     the graph to load into, which must have no nodes
+   * @param file      the DOT file to read, in the platform's default charset
+   * @param pool      the pool whose threads tokenize the file
+   * @param totalTime the total time before this file, which each line's weight is added to
+   * @return the total time after this file
+   * @throws IOException           if the file cannot be read
+   * @throws IllegalStateException if the graph already has nodes
+   */
+  public static double load(BaseGraph<String, Double> graph, File file, ForkJoinPool pool,
+      double totalTime) throws IOException {
+    if (graph.getIdBound() != 0)
+      throw new IllegalStateException("only an empty graph can be loaded in parallel");
+    List<Chunk> chunks = tokenize(file, pool);
+
+    // give ids in order of first appearance, and keep the first of each repeated edge
+    List<String> data = new ArrayList<>();
+    int[] preds = new int[16];
+    int[] succs = new int[16];
+    List<Double> weights = new ArrayList<>();
+    int edgeCount = 0;
+    LongSet edges = new LongSet();
+    Name start = null;
+    Name end = null;
+    double weight = 0;
+    for (Chunk chunk : chunks) {
+      for (int line = 0; line < chunk.lineCount; line++) {
+        if (chunk.preds[line] != null) {
+          start = chunk.preds[line];
+          end = chunk.succs[line];
+          if (start.id == -1) {
+            start.id = data.size();
+            data.add(start.data);
+          }
+          if (end.id == -1) {
+            end.id = data.size();
+            data.add(end.data);
+          }
+        }
+        if (!Double.isNaN(chunk.weights[line]))
+          weight = chunk.weights[line];
+        // lines before the first edge name no nodes, so they insert nothing
+        if (start != null && edges.add((long) start.id << 32 | end.id)) {
+          if (edgeCount == preds.length) {
+            preds = Arrays.copyOf(preds, edgeCount * 2);
+            succs = Arrays.copyOf(succs, edgeCount * 2);
+          }
+          preds[edgeCount] = start.id;
+          succs[edgeCount] = end.id;
+          weights.add(weight);
+          edgeCount++;
+        }
+        totalTime += weight;
+      }
+    }
+
+    int[] ids = graph.insertNodes(data);
+    for (int i = 0; i < edgeCount; i++) {
+      preds[i] = ids[preds[i]];
+      succs[i] = ids[succs[i]];
+    }
+    graph.insertEdgesById(Arrays.copyOf(preds, edgeCount), Arrays.copyOf(succs, edgeCount),
+        weights);
+    return totalTime;
+  }
+
+  // tokenizes the chunks of a file in parallel, returning them in file order
+  protected static List<Chunk> tokenize(File file, ForkJoinPool pool) throws IOException {
+    Charset charset = Charset.defaultCharset();
+    try (RandomAccessFile in = new RandomAccessFile(file, "r");
+        FileChannel channel = in.getChannel()) {
+      long[] bounds = chunkBounds(channel, charset, pool.getParallelism());
+      Map<String, Name> names = new ConcurrentHashMap<>();
+      try {
+        return pool.submit(() -> IntStream.range(0, bounds.length - 1).parallel()
+            .mapToObj(i -> tokenize(channel, charset, bounds[i], bounds[i + 1], names))
+            .collect(Collectors.toList())).get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("interrupted while reading " + file, e);
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof UncheckedIOException)
+          throw ((UncheckedIOException) e.getCause()).getCause();
+        throw new IllegalStateException(e.getCause());
+      }
+    }
+  }
+
+  // the byte offsets where chunks start, followed by the file size; every
+  // chunk but the last ends just after a line feed
+  protected static long[] chunkBounds(FileChannel channel, Charset charset, int threads)
+      throws IOException {
+    long size = channel.size();
+    // only split where a line feed byte cannot be part of another character
+    boolean splittable = charset.equals(StandardCharsets.UTF_8)
+        || charset.equals(StandardCharsets.ISO_8859_1)
+        || charset.equals(StandardCharsets.US_ASCII);
+    long chunkBytes = Math.max(MIN_CHUNK_BYTES, Math.min(MAX_CHUNK_BYTES, size / (4L * threads)));
+    long[] bounds = new long[16];
+    int count = 0;
+    bounds[count++] = 0;
+    ByteBuffer scan = ByteBuffer.allocate(4096);
+    long start = 0;
+    while (splittable && start + chunkBytes < size) {
+      // end the chunk just after the first line feed at or past its full size
+      long position = start + chunkBytes - 1;
+      long boundary = -1;
+      while (boundary == -1 && position < size) {
+        scan.clear();
+        int read = channel.read(scan, position);
+        for (int i = 0; i < read && boundary == -1; i++)
+          if (scan.get(i) == '\n')
+            boundary = position + i + 1;
+        position += read;
+      }
+      if (boundary == -1 || boundary >= size)
+        break;
+      if (count == bounds.length)
+        bounds = Arrays.copyOf(bounds, count * 2);
+      bounds[count++] = boundary;
+      start = boundary;
+    }
+    if (count == bounds.length)
+      bounds = Arrays.copyOf(bounds, count + 1);
+    bounds[count++] = size;
+    return Arrays.copyOf(bounds, count);
+  }
+
+  // decodes and tokenizes the bytes of a file from start to end
+  protected static Chunk tokenize(FileChannel channel, Charset charset, long start, long end,
+      Map<String, Name> names) {
+    try {
+      ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+      // malformed bytes become replacement characters, as they do for a Scanner
+      CharsetDecoder decoder = charset.newDecoder()
+          .onMalformedInput(CodingErrorAction.REPLACE)
+          .onUnmappableCharacter(CodingErrorAction.REPLACE);
+      CharBuffer chars = decoder.decode(bytes);
+      Chunk chunk = new Chunk();
+      // the reader gives one String per distinct name in this chunk, which is
+      // interned across chunks the first time this chunk sees it
+      Map<String, Name> local = new IdentityHashMap<>();
+      try (DotReader reader = new DotReader(new CharArrayReader(chars.array(),
+          chars.arrayOffset() + chars.position(), chars.remaining()))) {
+        while (reader.nextLine()) {
+          if (reader.isBraceLine())
+            continue;
+          Name pred = null;
+          Name succ = null;
+          if (reader.hasEdge()) {
+            pred = intern(reader.getPredecessor(), local, names);
+            succ = intern(reader.getSuccessor(), local, names);
+          }
+          chunk.add(pred, succ, reader.hasWeight() ? reader.getWeight() : Double.NaN);
+        }
+      }
+      return chunk;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  // the Name shared by every chunk for a name String from this chunk's reader
+  private static Name intern(String data, Map<String, Name> local, Map<String, Name> names) {
+    Name name = local.get(data);
+    if (name == null) {
+      name = names.computeIfAbsent(data, Name::new);
+      local.put(data, name);
+    }
+    return name;
+  }
+
+  /**
+   * A set of longs in an open addressing table, holding each pair of node ids
+   * joined by an edge so far without boxing them.
+   */
+  protected static class LongSet {
+    private static final long EMPTY = -1L; // no pair of non-negative ids packs to -1
+
+    private long[] slots = new long[64];
+    private int size = 0;
+
+    public LongSet() {
+      Arrays.fill(slots, EMPTY);
+    }
+
+    // adds a value, returning false if it was already present
+    public boolean add(long value) {
+      int mask = slots.length - 1;
+      long h = value * 0x9E3779B97F4A7C15L;
+      int slot = (int) (h ^ (h >>> 32)) & mask;
+      while (slots[slot] != EMPTY) {
+        if (slots[slot] == value)
+          return false;
+        slot = (slot + 1) & mask;
+      }
+      slots[slot] = value;
+      if (++size * 2 > slots.length)
+        grow();
+      return true;
+    }
+
+    private void grow() {
+      long[] old = slots;
+      slots = new long[old.length * 2];
+      Arrays.fill(slots, EMPTY);
+      size = 0;
+      for (long value : old)
+        if (value != EMPTY)
+          add(value);
+    }
+  }
+
+}
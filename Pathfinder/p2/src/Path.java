@@ -8,7 +8,7 @@ import java.util.List;
  * @param <NodeType> The type of the nodes in the path.
  * @param <EdgeType> The type of the weights of the path segments, must extend Number.
  */
-public class Path<NodeType, EdgeType extends Number> implements PathInterface {
+public class Path<NodeType, EdgeType extends Number> implements PathInterface<NodeType, EdgeType> {
 
   // List of nodes representing the path
   List<String> path;
@@ -30,6 +30,15 @@ public class Path<NodeType, EdgeType extends Number> implements PathInterface {
     this.totalTime = totalTime;
   }
 
+  /**
+   * Constructor for Path. Initializes a new Path from the result of a shortest path search.
+   *
+   * @param result The nodes, segment weights, and total weight found by the search.
+   */
+  public Path(ShortestPathResult<String> result) {
+    this(result.getNodes(), result.getSegmentCosts(), result.getTotalCost());
+  }
+
   /**
    * Retrieves the sequence of nodes in the path.
    *
@@ -37,6 +37,13 @@ public class PlaceholderMap<KeyType, ValueType> implements MapADT<KeyType, Value
     throw new NoSuchElementException("key " + key.toString() + " not in map");
   }
 
+  @Override
+  public ValueType getOrDefault(KeyType key, ValueType defaultValue) {
+    if (key == null)
+      throw new NullPointerException("null keys not allowed");
+    return baseMap.getOrDefault(key, defaultValue);
+  }
+
   @Override
   public ValueType remove(KeyType key) throws NoSuchElementException {
     if (key == null)
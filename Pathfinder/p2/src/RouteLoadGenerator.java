@@ -0,0 +1,155 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends shortest path queries to a RouteServer from several client threads at
+ * once, each sending its next request as soon as the last one is answered,
+ * and reports the throughput and latency percentiles of the answers.
+ */
+public class RouteLoadGenerator {
+
+  /**
+   * The outcome of one run of the load generator.
+   */
+  public static class Report {
+    protected final int requests;
+    protected final int rejected;
+    protected final int failed;
+    protected final double seconds;
+    // latencies of the answered requests in nanoseconds, in increasing order
+    protected final long[] latencies;
+
+    public Report(int requests, int rejected, int failed, double seconds, long[] latencies) {
+      this.requests = requests;
+      this.rejected = rejected;
+      this.failed = failed;
+      this.seconds = seconds;
+      this.latencies = latencies;
+    }
+
+    /**
+     * Return the number of requests that were answered with 200 OK or 404 Not Found.
+     *
+     * @return the number of answered requests
+     */
+    public int getAnswered() {
+      return latencies.length;
+    }
+
+    /**
+     * Return the number of requests turned away with 503 Service Unavailable.
+     *
+     * @return the number of rejected requests
+     */
+    public int getRejected() {
+      return rejected;
+    }
+
+    /**
+     * Return the number of requests that got any other status or no response.
+     *
+     * @return the number of failed requests
+     */
+    public int getFailed() {
+      return failed;
+    }
+
+    /**
+     * Return the number of requests answered per second over the whole run.
+     *
+     * @return the throughput of the server
+     */
+    public double getThroughput() {
+      return latencies.length / seconds;
+    }
+
+    /**
+     * Return the latency that the provided fraction of answered requests did not exceed.
+     *
+     * @param fraction the fraction of requests, such as 0.99 for the 99th percentile
+     * @return the latency in milliseconds, or 0 if no request was answered
+     */
+    public double getPercentile(double fraction) {
+      if (latencies.length == 0)
+        return 0;
+      int index = (int) Math.ceil(fraction * latencies.length) - 1;
+      return latencies[Math.max(0, Math.min(index, latencies.length - 1))] / 1e6;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d of %d answered (%d rejected, %d failed) in %.2f s: %.0f req/s,"
+          + " p50 %.2f ms, p90 %.2f ms, p99 %.2f ms", getAnswered(), requests, rejected,
+          failed, seconds, getThroughput(), getPercentile(0.5), getPercentile(0.9),
+          getPercentile(0.99));
+    }
+  }
+
+  /**
+   * Sends GET /path requests between random pairs of nodes to a server.
+   *
+   * @param port     the port of the server on the loopback address
+   * @param nodes    the names of the nodes to pick the start and end of each path from
+   * @param clients  the number of client threads sending requests at once
+   * @param requests the total number of requests to send
+   * @param seed     the seed for picking nodes
+   * @return the throughput and latencies of the run
+   * @throws InterruptedException if interrupted while waiting for the clients
+   */
+  public static Report run(int port, List<String> nodes, int clients, int requests, long seed)
+      throws InterruptedException {
+    HttpClient client = HttpClient.newHttpClient();
+    long[] latencies = new long[requests];
+    AtomicInteger next = new AtomicInteger();
+    AtomicInteger answered = new AtomicInteger();
+    AtomicInteger rejected = new AtomicInteger();
+    AtomicInteger failed = new AtomicInteger();
+    Thread[] threads = new Thread[clients];
+    long before = System.nanoTime();
+    for (int t = 0; t < clients; t++) {
+      Random random = new Random(seed + t);
+      threads[t] = new Thread(() -> {
+        while (next.getAndIncrement() < requests) {
+          String start = nodes.get(random.nextInt(nodes.size()));
+          String end = nodes.get(random.nextInt(nodes.size()));
+          HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port
+              + "/path?start=" + URLEncoder.encode(start, StandardCharsets.UTF_8)
+              + "&end=" + URLEncoder.encode(end, StandardCharsets.UTF_8))).build();
+          long sent = System.nanoTime();
+          int status;
+          try {
+            status = client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode();
+          } catch (IOException e) {
+            status = -1;
+          } catch (InterruptedException e) {
+            return;
+          }
+          long latency = System.nanoTime() - sent;
+          if (status == 200 || status == 404)
+            latencies[answered.getAndIncrement()] = latency;
+          else if (status == 503)
+            rejected.incrementAndGet();
+          else
+            failed.incrementAndGet();
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads)
+      thread.join();
+    double seconds = (System.nanoTime() - before) / 1e9;
+    long[] sorted = Arrays.copyOf(latencies, answered.get());
+    Arrays.sort(sorted);
+    return new Report(requests, rejected.get(), failed.get(), seconds, sorted);
+  }
+
+}
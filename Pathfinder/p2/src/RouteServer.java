@@ -0,0 +1,248 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A small HTTP server that answers shortest path and statistics queries from
+ * a Backend, so that it can be queried by other programs instead of only
+ * through the Frontend. Every request runs on a thread of its own: a virtual
+ * thread when the JDK has them, or else a thread of a cached pool. The graph
+ * behind the backend is shared by every request, so it must not change while
+ * the server runs.
+ *
+ * The server answers:
+ *
+ * <pre>
+ * GET  /path?start=...&amp;end=...  one path line
+ * POST /paths                   one path line for each "start TAB end" line of the body
+ * GET  /statistics              the backend's statistics string
+ * </pre>
+ *
+ * A path line holds the total time of the path followed by the stops along
+ * it, separated by tabs. A batch answers -1 alone for a query with no path,
+ * where a single query is answered with 404 Not Found. Batching many queries
+ * into one request saves a round trip and a thread for each. No more than
+ * a fixed number of requests are answered at once; any others are turned away
+ * at once with 503 Service Unavailable, rather than queued, so that clients
+ * can back off while the server keeps up with the rest.
+ *
+ * Its responses are small, so Nagle's algorithm holds each one back until
+ * the client's delayed acknowledgement, adding about 40 ms to every request,
+ * unless the program is launched with -Dsun.net.httpserver.nodelay=true. That
+ * property applies to every HTTP server of the JDK in the program, so it is
+ * left to the launcher rather than set here.
+ */
+public class RouteServer implements AutoCloseable {
+
+  // Requests answered at once unless another limit is provided
+  public static final int DEFAULT_MAX_IN_FLIGHT = 256;
+  // Largest number of queries in the body of one batch request
+  public static final int MAX_BATCH_SIZE = 10000;
+
+  protected final BackendInterface<String, Double> backend;
+  protected final HttpServer server;
+  protected final ExecutorService executor;
+  // One permit for each request that may be answered at once
+  protected final Semaphore permits;
+  protected final AtomicLong rejected = new AtomicLong();
+
+  /**
+   * Constructor for a server on the provided address, which starts once
+   * start() is called.
+   *
+   * @param backend     the backend whose graph is queried, which must not change afterwards
+   * @param address     the address to listen on, with port 0 for any free port
+   * @param maxInFlight the number of requests answered at once
+   * @throws IOException              if the address cannot be bound
+   * @throws IllegalArgumentException if maxInFlight is not positive
+   */
+  public RouteServer(BackendInterface<String, Double> backend, InetSocketAddress address, int maxInFlight)
+      throws IOException {
+    if (maxInFlight <= 0)
+      throw new IllegalArgumentException("maxInFlight must be positive");
+    this.backend = backend;
+    this.permits = new Semaphore(maxInFlight);
+    this.executor = newThreadPerRequestExecutor();
+    this.server = HttpServer.create(address, 0);
+    server.setExecutor(executor);
+    server.createContext("/path", exchange -> handle(exchange, "GET", this::path));
+    server.createContext("/paths", exchange -> handle(exchange, "POST", this::paths));
+    server.createContext("/statistics", exchange -> handle(exchange, "GET",
+        request -> backend.getStatistics() + "\n"));
+  }
+
+  /**
+   * Starts answering requests.
+   */
+  public void start() {
+    server.start();
+  }
+
+  /**
+   * Return the port the server listens on, which is chosen by the system when
+   * the server was created with port 0.
+   *
+   * @return the local port of the server
+   */
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  /**
+   * Return the number of requests turned away because too many others were
+   * being answered.
+   *
+   * @return the number of 503 responses sent so far
+   */
+  public long getRejectedCount() {
+    return rejected.get();
+  }
+
+  /**
+   * Stops the server, waiting up to a second for requests being answered.
+   */
+  @Override
+  public void close() {
+    server.stop(1);
+    executor.shutdown();
+    try {
+      executor.awaitTermination(1, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  // an executor that runs each task on a new virtual thread, looked up
+  // reflectively so that this class still compiles and runs on JDKs without
+  // them, where each task runs on a thread of a cached pool instead
+  protected static ExecutorService newThreadPerRequestExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+          .invoke(null);
+    } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+      ThreadFactory daemons = task -> {
+        Thread thread = new Thread(task, "route-server");
+        thread.setDaemon(true);
+        return thread;
+      };
+      return Executors.newCachedThreadPool(daemons);
+    }
+  }
+
+  /**
+   * Computes the body of the response to one request.
+   */
+  protected interface Responder {
+    String respond(HttpExchange exchange) throws IOException;
+  }
+
+  // answers a request with the body from a responder, after checking its
+  // method and taking a permit for it
+  protected void handle(HttpExchange exchange, String method, Responder responder)
+      throws IOException {
+    try {
+      if (!exchange.getRequestMethod().equals(method)) {
+        exchange.getResponseHeaders().set("Allow", method);
+        send(exchange, 405, "only " + method + " is allowed\n");
+        return;
+      }
+      if (!permits.tryAcquire()) {
+        rejected.incrementAndGet();
+        exchange.getResponseHeaders().set("Retry-After", "1");
+        send(exchange, 503, "too many requests\n");
+        return;
+      }
+      try {
+        send(exchange, 200, responder.respond(exchange));
+      } catch (NoSuchElementException e) {
+        send(exchange, 404, e.getMessage() + "\n");
+      } catch (IllegalArgumentException e) {
+        send(exchange, 400, e.getMessage() + "\n");
+      } finally {
+        permits.release();
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  // the response to GET /path
+  protected String path(HttpExchange exchange) {
+    String start = null;
+    String end = null;
+    String query = exchange.getRequestURI().getRawQuery();
+    for (String parameter : query == null ? new String[0] : query.split("&")) {
+      int equals = parameter.indexOf('=');
+      if (equals == -1)
+        continue;
+      String name = URLDecoder.decode(parameter.substring(0, equals), StandardCharsets.UTF_8);
+      String value = URLDecoder.decode(parameter.substring(equals + 1), StandardCharsets.UTF_8);
+      if (name.equals("start"))
+        start = value;
+      else if (name.equals("end"))
+        end = value;
+    }
+    if (start == null || end == null)
+      throw new IllegalArgumentException("start and end parameters are required");
+    return pathLine(start, end);
+  }
+
+  // the response to POST /paths, answering every query of the batch in order
+  protected String paths(HttpExchange exchange) throws IOException {
+    StringBuilder response = new StringBuilder();
+    BufferedReader body = new BufferedReader(
+        new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+    int count = 0;
+    for (String line = body.readLine(); line != null; line = body.readLine()) {
+      if (line.isEmpty())
+        continue;
+      if (++count > MAX_BATCH_SIZE)
+        throw new IllegalArgumentException("a batch holds at most " + MAX_BATCH_SIZE
+            + " queries");
+      int tab = line.indexOf('\t');
+      if (tab == -1)
+        throw new IllegalArgumentException("query " + count + " is not start TAB end");
+      try {
+        response.append(pathLine(line.substring(0, tab), line.substring(tab + 1)));
+      } catch (NoSuchElementException e) {
+        response.append("-1\n");
+      }
+    }
+    return response.toString();
+  }
+
+  // the total time and stops of the shortest path between two nodes
+  protected String pathLine(String start, String end) {
+    PathInterface<String, Double> path = backend.getShortestPath(start, end);
+    StringBuilder line = new StringBuilder().append(path.getTotalTime());
+    for (String stop : path.getPath())
+      line.append('\t').append(stop);
+    return line.append('\n').toString();
+  }
+
+  // sends a complete text response
+  protected static void send(HttpExchange exchange, int status, String body)
+      throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+    exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+}
@@ -0,0 +1,60 @@
+import java.util.List;
+
+/**
+ * Holds everything that a single shortest path search finds about the path
+ * between two nodes: the data of the nodes along the path, the weight of each
+ * edge (segment) between consecutive nodes, and the total cost of the path.
+ *
+ * @param <NodeType> the data type stored at each node of the graph
+ */
+public class ShortestPathResult<NodeType> {
+
+  // Data of the nodes along the path, from start to end
+  protected final List<NodeType> nodes;
+  // Weight of the edge between each pair of consecutive nodes
+  protected final List<Double> segmentCosts;
+  // Sum of the segment costs
+  protected final double totalCost;
+
+  /**
+   * Constructor for a search result.
+   *
+   * @param nodes        the data of the nodes along the path, from start to end
+   * @param segmentCosts the weight of each edge along the path, one fewer
+   *                     than the number of nodes
+   * @param totalCost    the total cost of the path
+   */
+  public ShortestPathResult(List<NodeType> nodes, List<Double> segmentCosts, double totalCost) {
+    this.nodes = nodes;
+    this.segmentCosts = segmentCosts;
+    this.totalCost = totalCost;
+  }
+
+  /**
+   * Retrieves the data of the nodes along the path.
+   *
+   * @return the node data along the path, starting with the start node
+   */
+  public List<NodeType> getNodes() {
+    return nodes;
+  }
+
+  /**
+   * Retrieves the weight of each edge along the path. The weight at index i
+   * belongs to the edge between the nodes at index i and i + 1.
+   *
+   * @return the edge weights along the path
+   */
+  public List<Double> getSegmentCosts() {
+    return segmentCosts;
+  }
+
+  /**
+   * Retrieves the total cost of the path.
+   *
+   * @return the sum of the edge weights along the path
+   */
+  public double getTotalCost() {
+    return totalCost;
+  }
+}
@@ -0,0 +1,146 @@
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * The shortest paths from one source node to every node of a graph snapshot,
+ * as computed by a single run of Dijkstra's algorithm. The cost of the path to
+ * each node and the previous node along it are stored in primitive arrays
+ * indexed by node id. A tree can be passed back to
+ * DijkstraGraph.shortestPathTree to be refilled for another source, which
+ * reuses its arrays instead of allocating new ones.
+ *
+ * @param <NodeType> the data type stored at each node of the graph
+ */
+public class ShortestPathTree<NodeType> {
+
+  protected CompactGraph<NodeType> graph = null;
+  protected int source = -1;
+  protected double[] dist = new double[0]; // infinity for unreached nodes
+  protected int[] pred = new int[0]; // -1 for the source and unreached nodes
+
+  /**
+   * Copies the result of a search over the whole graph into this tree, growing
+   * its arrays only when the graph has a different number of nodes.
+   *
+   * @param search the search whose last run covered the whole graph
+   * @param source the id of the node that search started from
+   */
+  protected void fill(CompactSearch<NodeType> search, int source) {
+    this.graph = search.getGraph();
+    this.source = source;
+    int nodeCount = graph.getNodeCount();
+    if (dist.length != nodeCount) {
+      dist = new double[nodeCount];
+      pred = new int[nodeCount];
+    }
+    for (int v = 0; v < nodeCount; v++) {
+      dist[v] = search.getCost(v);
+      pred[v] = search.getPredecessor(v);
+    }
+  }
+
+  /**
+   * Return the snapshot whose node ids this tree is indexed by.
+   *
+   * @return the snapshot searched to fill this tree, or null if not filled yet
+   */
+  public CompactGraph<NodeType> getGraph() {
+    return graph;
+  }
+
+  /**
+   * Return the id of the node that every path in this tree starts from.
+   *
+   * @return the id of the source node, or -1 if this tree was not filled yet
+   */
+  public int getSourceId() {
+    return source;
+  }
+
+  /**
+   * Return the data of the node that every path in this tree starts from.
+   *
+   * @return the data item in the source node
+   */
+  public NodeType getSource() {
+    return graph.getData(source);
+  }
+
+  /**
+   * Return the cost of the shortest path to every node, indexed by node id.
+   * The array is owned by this tree and is overwritten when it is refilled.
+   *
+   * @return the path costs, with infinity for nodes that cannot be reached
+   */
+  public double[] getCosts() {
+    return dist;
+  }
+
+  /**
+   * Return the previous node along the shortest path to every node, indexed
+   * by node id. The array is owned by this tree and is overwritten when it is
+   * refilled.
+   *
+   * @return the predecessor ids, with -1 for the source and unreached nodes
+   */
+  public int[] getPredecessors() {
+    return pred;
+  }
+
+  /**
+   * Return the cost of the shortest path to a node.
+   *
+   * @param node the id of the node
+   * @return the cost of that path, or infinity when the node cannot be reached
+   */
+  public double getCost(int node) {
+    return dist[node];
+  }
+
+  /**
+   * Return the cost of the shortest path to the node containing the provided
+   * data, or -1 when there is no such path, as DijkstraGraph.shortestPathCost
+   * would.
+   *
+   * @param end the data item in the destination node for the path
+   * @return the cost of the shortest path to that node
+   */
+  public double getCost(NodeType end) {
+    int node = graph.getId(end);
+    if (node == -1 || dist[node] == Double.POSITIVE_INFINITY)
+      return -1.0;
+    return dist[node];
+  }
+
+  /**
+   * Return the previous node along the shortest path to a node.
+   *
+   * @param node the id of the node
+   * @return the id of the previous node, or -1 for the source and for nodes
+   *         that cannot be reached
+   */
+  public int getPredecessor(int node) {
+    return pred[node];
+  }
+
+  /**
+   * Return the list of data values from nodes along the shortest path from
+   * the source through the node containing the provided data.
+   *
+   * @param end the data item in the destination node for the path
+   * @return list of data item from node along this shortest path
+   * @throws NoSuchElementException when end is not a node of the graph or
+   *                                cannot be reached from the source
+   */
+  public List<NodeType> getPathData(NodeType end) {
+    int node = graph.getId(end);
+    if (node == -1 || dist[node] == Double.POSITIVE_INFINITY)
+      throw new NoSuchElementException("No path from start to end is found");
+    LinkedList<NodeType> path = new LinkedList<>();
+    for (int v = node; v != -1; v = pred[v])
+      path.addFirst(graph.getData(v));
+    return path;
+  }
+
+}
@@ -0,0 +1,368 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plans the order in which to visit a list of stops on a snapshot, such as
+ * the 10 to 40 buildings a maintenance crew visits in one shift, so that the
+ * whole tour is as short as possible, and stitches the shortest paths between
+ * consecutive stops into one path. The tour starts at the first stop and may
+ * return to it at the end.
+ *
+ * The costs between every pair of stops come from a DistanceTable, with one
+ * search per stop. Up to HELD_KARP_MAX_STOPS stops are ordered exactly with
+ * the Held-Karp dynamic program. Longer tours start from the nearest
+ * neighbour tour and are improved by local search with 2-opt moves, which
+ * reverse a stretch of the tour, and Or-opt moves, which move one to three
+ * consecutive stops elsewhere. Every thread of the pool improves a tour of
+ * its own, repeatedly perturbing it and searching again from there, until
+ * its tour stops improving or the time budget runs out; the best tour found
+ * by any thread wins. Since the graph is directed, a reversed stretch is
+ * costed along its reversed edges.
+ *
+ * @param <NodeType> the data type stored at each node of the graph
+ */
+public class TourPlanner<NodeType> {
+
+  // Tours with at most this many stops are ordered exactly
+  public static final int HELD_KARP_MAX_STOPS = 13;
+  // Each thread gives up after this many perturbed tours in a row that were no better
+  private static final int MAX_FAILED_PERTURBATIONS = 200;
+  // Improvements smaller than this are rounding errors
+  private static final double EPSILON = 1e-9;
+
+  protected final CompactGraph<NodeType> graph;
+  protected final ForkJoinPool pool;
+
+  /**
+   * Constructor for a planner of tours through a snapshot.
+   *
+   * @param graph the snapshot to plan tours on
+   * @param pool  the pool whose threads find the costs between stops and improve tours
+   */
+  public TourPlanner(CompactGraph<NodeType> graph, ForkJoinPool pool) {
+    this.graph = graph;
+    this.pool = pool;
+  }
+
+  /**
+   * Returns the shortest tour found that starts at the first stop and visits
+   * every other stop, in whatever order is cheapest, as one path through the
+   * graph. Apart from finding the costs between the stops, the planner
+   * returns within the time budget with the best tour found so far.
+   *
+   * @param stops            the data items in the nodes to visit, starting with the first
+   * @param roundTrip        whether the tour returns to the first stop at the end
+   * @param timeBudgetMillis the time allowed for improving the tour, in milliseconds
+   * @return the nodes, edge weights, and total cost of the tour
+   * @throws NoSuchElementException   when a stop does not correspond to a graph node,
+   *                                  or no tour can visit every stop
+   * @throws IllegalArgumentException if there are no stops or the budget is negative
+   */
+  public ShortestPathResult<NodeType> plan(List<NodeType> stops, boolean roundTrip,
+      long timeBudgetMillis) {
+    if (stops.isEmpty())
+      throw new IllegalArgumentException("a tour needs at least one stop");
+    if (timeBudgetMillis < 0)
+      throw new IllegalArgumentException("the time budget must not be negative");
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeBudgetMillis);
+    int[] ids = DistanceTable.getIds(graph, stops);
+    for (int i = 0; i < ids.length; i++)
+      if (ids[i] == -1)
+        throw new NoSuchElementException("Stop " + stops.get(i) + " not found in the graph.");
+
+    double[][] costs = DistanceTable.compute(graph, ids, ids, pool);
+    int[] order = solve(costs, roundTrip, deadline);
+    if (tourCost(costs, order, roundTrip) == Double.POSITIVE_INFINITY)
+      throw new NoSuchElementException("No tour visits every stop");
+    return stitch(ids, order, roundTrip);
+  }
+
+  /**
+   * Orders the stops of a tour given the costs between them.
+   *
+   * @param costs     the cost from stop i to stop j at [i][j], or infinity when there is no path
+   * @param roundTrip whether the tour returns to stop 0 at the end
+   * @param deadline  the System.nanoTime() by which improving the tour stops
+   * @return the indexes of the stops in the order visited, starting with 0
+   */
+  public int[] solve(double[][] costs, boolean roundTrip, long deadline) {
+    double[][] penalized = penalize(costs);
+    if (costs.length <= HELD_KARP_MAX_STOPS)
+      return heldKarp(penalized, roundTrip);
+
+    int[] start = nearestNeighbour(penalized);
+    int threads = Math.max(1, pool.getParallelism());
+    int[][] tours = new int[threads][];
+    DistanceTable.run(pool, threads, thread -> {
+      Random random = new Random(thread);
+      int[] best = start.clone();
+      // the first thread improves the nearest neighbour tour itself
+      if (thread > 0)
+        perturb(best, random);
+      improve(penalized, best, roundTrip, deadline);
+      double bestCost = tourCost(penalized, best, roundTrip);
+      for (int failed = 0; failed < MAX_FAILED_PERTURBATIONS
+          && isBefore(deadline); failed++) {
+        int[] tour = best.clone();
+        perturb(tour, random);
+        improve(penalized, tour, roundTrip, deadline);
+        double cost = tourCost(penalized, tour, roundTrip);
+        if (cost < bestCost - EPSILON) {
+          best = tour;
+          bestCost = cost;
+          failed = -1;
+        }
+      }
+      tours[thread] = best;
+    });
+    int[] best = tours[0];
+    for (int[] tour : tours)
+      if (tourCost(penalized, tour, roundTrip) < tourCost(penalized, best, roundTrip))
+        best = tour;
+    return best;
+  }
+
+  /**
+   * Return the cost of visiting stops in an order.
+   *
+   * @param costs     the cost from stop i to stop j at [i][j]
+   * @param order     the indexes of the stops in the order visited
+   * @param roundTrip whether the tour returns to its first stop at the end
+   * @return the sum of the costs between consecutive stops
+   */
+  public static double tourCost(double[][] costs, int[] order, boolean roundTrip) {
+    double cost = 0;
+    for (int k = 0; k + 1 < order.length; k++)
+      cost += costs[order[k]][order[k + 1]];
+    if (roundTrip)
+      cost += costs[order[order.length - 1]][order[0]];
+    return cost;
+  }
+
+  // replaces infinite costs with one higher than any tour of finite costs, so
+  // that the solvers prefer tours with fewer missing paths over none at all
+  protected static double[][] penalize(double[][] costs) {
+    double largest = 0;
+    for (double[] row : costs)
+      for (double cost : row)
+        if (cost != Double.POSITIVE_INFINITY)
+          largest = Math.max(largest, cost);
+    double penalty = 1 + largest * costs.length;
+    double[][] penalized = new double[costs.length][];
+    for (int i = 0; i < costs.length; i++) {
+      penalized[i] = costs[i].clone();
+      for (int j = 0; j < costs.length; j++)
+        if (penalized[i][j] == Double.POSITIVE_INFINITY)
+          penalized[i][j] = penalty;
+    }
+    return penalized;
+  }
+
+  // the exact order by dynamic programming over the subsets of stops after
+  // the first: best[set][j] is the cheapest way to visit that set from stop 0
+  // ending at stop j + 1
+  protected static int[] heldKarp(double[][] costs, boolean roundTrip) {
+    int rest = costs.length - 1;
+    if (rest == 0)
+      return new int[] {0};
+    int sets = 1 << rest;
+    double[][] best = new double[sets][rest];
+    int[][] previous = new int[sets][rest];
+    for (double[] row : best)
+      Arrays.fill(row, Double.POSITIVE_INFINITY);
+    for (int j = 0; j < rest; j++)
+      best[1 << j][j] = costs[0][j + 1];
+    for (int set = 1; set < sets; set++) {
+      for (int j = 0; j < rest; j++) {
+        if ((set & (1 << j)) == 0 || best[set][j] == Double.POSITIVE_INFINITY)
+          continue;
+        for (int k = 0; k < rest; k++) {
+          if ((set & (1 << k)) != 0)
+            continue;
+          int next = set | (1 << k);
+          double cost = best[set][j] + costs[j + 1][k + 1];
+          if (cost < best[next][k]) {
+            best[next][k] = cost;
+            previous[next][k] = j;
+          }
+        }
+      }
+    }
+    int last = 0;
+    double bestCost = Double.POSITIVE_INFINITY;
+    for (int j = 0; j < rest; j++) {
+      double cost = best[sets - 1][j] + (roundTrip ? costs[j + 1][0] : 0);
+      if (cost < bestCost) {
+        bestCost = cost;
+        last = j;
+      }
+    }
+    // walk back from the last stop
+    int[] order = new int[costs.length];
+    int set = sets - 1;
+    for (int k = rest; k > 0; k--) {
+      order[k] = last + 1;
+      int before = previous[set][last];
+      set &= ~(1 << last);
+      last = before;
+    }
+    return order;
+  }
+
+  // starts at stop 0 and always goes on to the cheapest stop not yet visited
+  protected static int[] nearestNeighbour(double[][] costs) {
+    int[] order = new int[costs.length];
+    boolean[] visited = new boolean[costs.length];
+    visited[0] = true;
+    for (int k = 1; k < order.length; k++) {
+      int next = -1;
+      for (int j = 0; j < costs.length; j++)
+        if (!visited[j] && (next == -1 || costs[order[k - 1]][j] < costs[order[k - 1]][next]))
+          next = j;
+      order[k] = next;
+      visited[next] = true;
+    }
+    return order;
+  }
+
+  // applies improving 2-opt and Or-opt moves until there are none or the deadline passes
+  protected static void improve(double[][] costs, int[] order, boolean roundTrip,
+      long deadline) {
+    boolean improved = true;
+    while (improved && isBefore(deadline))
+      improved = twoOpt(costs, order, roundTrip) || orOpt(costs, order, roundTrip);
+  }
+
+  // whether System.nanoTime() has not yet reached a deadline, which may have
+  // overflowed for budgets of centuries
+  private static boolean isBefore(long deadline) {
+    return System.nanoTime() - deadline < 0;
+  }
+
+  // the cost of the edge from the stop at position k to the next, if there is one
+  private static double costAfter(double[][] costs, int[] order, int k, boolean roundTrip) {
+    if (k + 1 < order.length)
+      return costs[order[k]][order[k + 1]];
+    return roundTrip ? costs[order[k]][order[0]] : 0;
+  }
+
+  // the cost of the edge from stop a to the stop after position k, if there is one
+  private static double costTo(double[][] costs, int a, int[] order, int k, boolean roundTrip) {
+    if (k + 1 < order.length)
+      return costs[a][order[k + 1]];
+    return roundTrip ? costs[a][order[0]] : 0;
+  }
+
+  // reverses the first stretch found whose reversal shortens the tour
+  protected static boolean twoOpt(double[][] costs, int[] order, boolean roundTrip) {
+    int n = order.length;
+    for (int i = 1; i < n - 1; i++) {
+      double forward = 0;
+      double backward = 0;
+      for (int j = i + 1; j < n; j++) {
+        forward += costs[order[j - 1]][order[j]];
+        backward += costs[order[j]][order[j - 1]];
+        double before = costs[order[i - 1]][order[i]] + forward
+            + costAfter(costs, order, j, roundTrip);
+        double after = costs[order[i - 1]][order[j]] + backward
+            + costTo(costs, order[i], order, j, roundTrip);
+        if (after < before - EPSILON) {
+          for (int a = i, b = j; a < b; a++, b--) {
+            int swap = order[a];
+            order[a] = order[b];
+            order[b] = swap;
+          }
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  // moves the first run of one to three stops found whose move elsewhere
+  // shortens the tour
+  protected static boolean orOpt(double[][] costs, int[] order, boolean roundTrip) {
+    int n = order.length;
+    for (int length = 1; length <= 3; length++) {
+      for (int i = 1; i + length <= n; i++) {
+        int first = order[i];
+        int last = order[i + length - 1];
+        double removed = costs[order[i - 1]][first]
+            + costAfter(costs, order, i + length - 1, roundTrip)
+            - costTo(costs, order[i - 1], order, i + length - 1, roundTrip);
+        // insert the run after the stop at position p, outside the run
+        for (int p = 0; p < n; p++) {
+          if (p >= i - 1 && p < i + length)
+            continue;
+          double added = costs[order[p]][first] + costTo(costs, last, order, p, roundTrip)
+              - costAfter(costs, order, p, roundTrip);
+          if (added < removed - EPSILON) {
+            move(order, i, length, p);
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  // moves the run of stops at positions i to i + length - 1 to just after position p
+  private static void move(int[] order, int i, int length, int p) {
+    int[] run = Arrays.copyOfRange(order, i, i + length);
+    if (p < i) {
+      System.arraycopy(order, p + 1, order, p + 1 + length, i - p - 1);
+      System.arraycopy(run, 0, order, p + 1, length);
+    } else {
+      System.arraycopy(order, i + length, order, i, p - i - length + 1);
+      System.arraycopy(run, 0, order, p - length + 1, length);
+    }
+  }
+
+  // a double bridge move: cuts the stops after the first into four stretches
+  // and swaps the middle two, which local search cannot easily undo
+  protected static void perturb(int[] order, Random random) {
+    int n = order.length;
+    if (n < 5)
+      return;
+    int[] cuts = {1 + random.nextInt(n - 1), 1 + random.nextInt(n - 1),
+        1 + random.nextInt(n - 1)};
+    Arrays.sort(cuts);
+    int[] old = order.clone();
+    int k = cuts[0];
+    for (int j = cuts[1]; j < cuts[2]; j++)
+      order[k++] = old[j];
+    for (int j = cuts[0]; j < cuts[1]; j++)
+      order[k++] = old[j];
+  }
+
+  // joins the shortest paths between consecutive stops into one path
+  protected ShortestPathResult<NodeType> stitch(int[] ids, int[] order, boolean roundTrip) {
+    CompactSearch<NodeType> search =
+        new CompactSearch<>(graph, CompactSearch.QueueType.INDEXED_HEAP);
+    List<NodeType> path = new ArrayList<>();
+    List<Double> segmentCosts = new ArrayList<>();
+    path.add(graph.getData(ids[order[0]]));
+    double totalCost = 0;
+    int legs = roundTrip && order.length > 1 ? order.length : order.length - 1;
+    for (int k = 0; k < legs; k++) {
+      int source = ids[order[k]];
+      int target = ids[order[(k + 1) % order.length]];
+      if (source == target)
+        continue;
+      search.search(source, target);
+      int[] leg = search.getPath(target);
+      for (int i = 1; i < leg.length; i++) {
+        path.add(graph.getData(leg[i]));
+        segmentCosts.add(graph.getWeight(search.getPredecessorEdge(leg[i])));
+      }
+      totalCost += search.getCost(target);
+    }
+    return new ShortestPathResult<>(path, segmentCosts, totalCost);
+  }
+
+}